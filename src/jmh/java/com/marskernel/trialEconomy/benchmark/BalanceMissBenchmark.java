@@ -0,0 +1,80 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lettura del bilancio con cache fredda: ogni chiamata carica dal database un account
+ * esistente e non ancora in cache.
+ *
+ * Ogni iterazione parte da un EconomyManager nuovo e scorre gli account in ordine: se un'iterazione
+ * esaurisce gli account le chiamate successive diventano hit e il teardown lo segnala.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceMissBenchmark {
+
+    @Param({"50000", "200000"})
+    public int accounts;
+
+    private BenchmarkEnvironment environment;
+    private EconomyManager economy;
+    private UUID[] uuids;
+    private String[] names;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = BenchmarkEnvironment.create(Map.of("cache.max-entries", accounts));
+        uuids = environment.createAccounts(accounts);
+        names = BenchmarkEnvironment.namesOf(accounts);
+    }
+
+    @Setup(Level.Iteration)
+    public void coldCache() {
+        economy = environment.newEconomyManager();
+        environment.awaitDatabaseIdle();
+        cursor.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeIteration() {
+        if (cursor.get() > accounts) {
+            System.err.println("Account esauriti: " + (cursor.get() - accounts) + " chiamate non erano miss, aumentare accounts");
+        }
+        environment.closeEconomyManager(economy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public BigDecimal getBalanceMiss() {
+        int index = cursor.getAndIncrement() % accounts;
+        return economy.getBalance(uuids[index], names[index]).join();
+    }
+}
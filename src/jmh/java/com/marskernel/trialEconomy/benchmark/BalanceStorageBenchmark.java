@@ -0,0 +1,73 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latenza delle operazioni puntuali sugli account con i due archivi (database.balance-storage):
+ * lettura e salvataggio di un singolo bilancio, passaggio dal DB executor compreso.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceStorageBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+
+    @Param({"JDBC", "MVSTORE"})
+    public String storage;
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    private BenchmarkEnvironment environment;
+    private DatabaseManager database;
+    private UUID[] uuids;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = BenchmarkEnvironment.create(Map.of("database.balance-storage", storage));
+        database = environment.getDatabase();
+        uuids = environment.createAccounts(accounts);
+        names = BenchmarkEnvironment.namesOf(accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public BigDecimal loadBalance() {
+        int index = ThreadLocalRandom.current().nextInt(accounts);
+        return database.loadBalance(uuids[index], names[index], BenchmarkEnvironment.STARTING_BALANCE).join();
+    }
+
+    @Benchmark
+    public boolean saveBalance() {
+        int index = ThreadLocalRandom.current().nextInt(accounts);
+        return database.saveBalance(uuids[index], names[index], AMOUNT).join();
+    }
+}
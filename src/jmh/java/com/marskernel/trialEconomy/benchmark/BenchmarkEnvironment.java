@@ -0,0 +1,137 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import com.marskernel.trialEconomy.database.DatabaseExecutor;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Ambiente headless per i benchmark: plugin stub e database H2 su file in una cartella temporanea,
+ * eliminata alla chiusura.
+ */
+public final class BenchmarkEnvironment implements AutoCloseable {
+
+    public static final BigDecimal STARTING_BALANCE = new BigDecimal("1000.00");
+
+    private final Path dataFolder;
+    private final BenchmarkPlugin plugin;
+    private final DatabaseManager database;
+    private final List<EconomyManager> managers = new ArrayList<>();
+
+    private BenchmarkEnvironment(Map<String, Object> settings) throws IOException {
+        this.dataFolder = Files.createTempDirectory("trial-economy-jmh");
+        this.plugin = new BenchmarkPlugin(dataFolder.toFile());
+
+        plugin.getConfig().set("starting-balance", STARTING_BALANCE.doubleValue());
+        settings.forEach(plugin.getConfig()::set);
+
+        this.database = new DatabaseManager(dataFolder.toFile(), plugin.getLogger(), plugin.getConfig(), new EconomyMetrics());
+    }
+
+    /**
+     * Crea un ambiente con le impostazioni indicate (chiavi di config.yml)
+     */
+    public static BenchmarkEnvironment create(Map<String, Object> settings) {
+        try {
+            return new BenchmarkEnvironment(settings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public DatabaseManager getDatabase() {
+        return database;
+    }
+
+    /**
+     * Crea un EconomyManager sul database dell'ambiente, chiuso insieme all'ambiente
+     */
+    public EconomyManager newEconomyManager() {
+        EconomyManager manager = new EconomyManager(plugin, database);
+        managers.add(manager);
+        return manager;
+    }
+
+    /**
+     * Attende che il DB executor non abbia operazioni in corso (es. il caricamento dell'indice nomi
+     * avviato dal costruttore di EconomyManager), così non si sovrappone alle misure
+     */
+    public void awaitDatabaseIdle() {
+        DatabaseExecutor executor = database.getExecutor();
+        while (executor.getActiveCount() > 0 || executor.getQueueDepth() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Chiude un EconomyManager prima della fine del benchmark (flush finale incluso)
+     */
+    public void closeEconomyManager(EconomyManager manager) {
+        if (managers.remove(manager)) {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * Crea count account nel database con il bilancio iniziale, usando il caricamento batch
+     */
+    public UUID[] createAccounts(int count) {
+        UUID[] uuids = new UUID[count];
+        Map<UUID, String> players = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            uuids[i] = UUID.randomUUID();
+            players.put(uuids[i], nameOf(i));
+        }
+
+        int created = database.loadBalances(players, STARTING_BALANCE, 500).join().size();
+        if (created != count) {
+            throw new IllegalStateException("Creati " + created + " account su " + count);
+        }
+        return uuids;
+    }
+
+    /**
+     * Nome del giocatore di indice i (massimo 16 caratteri come i nomi Minecraft)
+     */
+    public static String nameOf(int index) {
+        return "bench" + index;
+    }
+
+    public static String[] namesOf(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = nameOf(i);
+        }
+        return names;
+    }
+
+    @Override
+    public void close() {
+        for (EconomyManager manager : managers) {
+            manager.shutdown();
+        }
+        managers.clear();
+        database.close();
+
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
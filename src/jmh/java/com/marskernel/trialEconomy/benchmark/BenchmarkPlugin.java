@@ -0,0 +1,26 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.util.logging.Level;
+
+/**
+ * Plugin creato fuori dal PluginClassLoader tramite il costruttore di inizializzazione di JavaPlugin.
+ * La configurazione parte dal config.yml del plugin (risorsa nel classpath) e può essere modificata
+ * prima di creare i manager.
+ */
+public final class BenchmarkPlugin extends JavaPlugin {
+
+    @SuppressWarnings("deprecation")
+    public BenchmarkPlugin(File dataFolder) {
+        super(new JavaPluginLoader(BenchmarkServer.install()),
+                new PluginDescriptionFile("TrialEconomy", "benchmark", "com.marskernel.trialEconomy.TrialEconomy"),
+                dataFolder, new File(dataFolder, "TrialEconomy.jar"));
+
+        // I log per operazione falserebbero le misure
+        getLogger().setLevel(Level.WARNING);
+    }
+}
@@ -0,0 +1,46 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.reflect.Proxy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server Bukkit minimo per eseguire i benchmark senza un server Minecraft.
+ * Implementa solo i metodi usati da Bukkit.setServer e da JavaPlugin: qualsiasi altra chiamata
+ * fallisce subito, così un benchmark non misura per errore un percorso che dipende dal server.
+ */
+public final class BenchmarkServer {
+
+    private static final Logger LOGGER = Logger.getLogger("TrialEconomy-Benchmark");
+
+    private BenchmarkServer() {
+    }
+
+    /**
+     * Registra lo stub come server Bukkit (una sola volta per JVM)
+     */
+    public static synchronized Server install() {
+        Server current = Bukkit.getServer();
+        if (current != null) {
+            return current;
+        }
+
+        LOGGER.setLevel(Level.WARNING);
+        Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLogger" -> LOGGER;
+                    case "getName" -> "BenchmarkServer";
+                    case "getVersion", "getBukkitVersion" -> "benchmark";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "BenchmarkServer";
+                    default -> throw new UnsupportedOperationException("Non disponibile nei benchmark: Server." + method.getName());
+                });
+
+        Bukkit.setServer(server);
+        return server;
+    }
+}
@@ -0,0 +1,43 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Esegue i benchmark una volta per ogni numero di thread indicato, con il profiler GC
+ * (allocazioni per operazione) e un file di risultati JSON per ogni esecuzione.
+ *
+ * Argomenti: thread separati da virgola (es. 1,4,16), cartella dei risultati, regex dei benchmark
+ */
+public final class BenchmarkSweep {
+
+    private BenchmarkSweep() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String threads = args.length > 0 ? args[0] : "1,4,16";
+        File resultDir = new File(args.length > 1 ? args[1] : "build/results/jmh");
+        String include = args.length > 2 ? args[2] : ".*";
+
+        resultDir.mkdirs();
+        for (String value : threads.split(",")) {
+            int threadCount = Integer.parseInt(value.trim());
+
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "results-t" + threadCount + ".json").getPath())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
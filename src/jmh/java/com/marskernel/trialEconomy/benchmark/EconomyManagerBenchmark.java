@@ -0,0 +1,110 @@
+package com.marskernel.trialEconomy.benchmark;
+
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percorsi in memoria di EconomyManager: lettura del bilancio con la cache calda,
+ * trasferimenti concorrenti e formattazione degli importi.
+ *
+ * Con pochi account i trasferimenti contendono gli stessi lock; alla fine del trial
+ * viene verificato che la somma dei bilanciamenti sia invariata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EconomyManagerBenchmark {
+
+    private static final BigDecimal[] AMOUNTS = {
+            new BigDecimal("0.01"), new BigDecimal("1.50"), new BigDecimal("12.34"),
+            new BigDecimal("250.00"), new BigDecimal("999999.99")
+    };
+
+    @Param({"10", "1000", "100000"})
+    public int accounts;
+
+    private BenchmarkEnvironment environment;
+    private EconomyManager economy;
+    private UUID[] uuids;
+    private String[] names;
+    private BigDecimal expectedTotal;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Il log delle transazioni è misurato in DatabaseManagerBenchmark: qui non deve rallentare i trasferimenti.
+        // Il journal registra comunque ogni modifica, ma i trasferimenti non attendono l'fsync.
+        environment = BenchmarkEnvironment.create(Map.of(
+                "cache.max-entries", accounts * 2,
+                "transaction-log.overflow-policy", "DROP",
+                "journal.wait-for-sync", false));
+        economy = environment.newEconomyManager();
+        uuids = environment.createAccounts(accounts);
+        names = BenchmarkEnvironment.namesOf(accounts);
+
+        for (int i = 0; i < accounts; i++) {
+            economy.getBalance(uuids[i], names[i]).join();
+        }
+        environment.awaitDatabaseIdle();
+        expectedTotal = total();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BigDecimal actual = total();
+        environment.close();
+
+        if (actual.compareTo(expectedTotal) != 0) {
+            throw new IllegalStateException("Somma dei bilanciamenti cambiata: " + expectedTotal + " -> " + actual);
+        }
+    }
+
+    private BigDecimal total() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < accounts; i++) {
+            total = total.add(economy.getBalance(uuids[i], names[i]).join());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal getBalanceHit() {
+        int index = ThreadLocalRandom.current().nextInt(accounts);
+        return economy.getBalance(uuids[index], names[index]).join();
+    }
+
+    @Benchmark
+    public EconomyManager.TransactionResult transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(accounts);
+        int receiver = (sender + 1 + random.nextInt(accounts - 1)) % accounts;
+
+        return economy.transfer(uuids[sender], names[sender], uuids[receiver], names[receiver],
+                AMOUNTS[random.nextInt(AMOUNTS.length - 1)]).join();
+    }
+
+    @Benchmark
+    public String formatAmount() {
+        return economy.formatAmount(AMOUNTS[ThreadLocalRandom.current().nextInt(AMOUNTS.length)]);
+    }
+}
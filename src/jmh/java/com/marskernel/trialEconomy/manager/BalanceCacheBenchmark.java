@@ -0,0 +1,98 @@
+package com.marskernel.trialEconomy.manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache limitata: lettura con conteggio hit/frequenza e ciclo di manutenzione
+ * con la cache piena al doppio del limite (eviction di metà delle voci).
+ */
+@Fork(1)
+public class BalanceCacheBenchmark {
+
+    private static final long EXPIRE_AFTER = TimeUnit.MINUTES.toMillis(30);
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        @Param({"10000", "100000"})
+        public int accounts;
+
+        UUID[] uuids;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            uuids = new UUID[accounts];
+            for (int i = 0; i < accounts; i++) {
+                uuids[i] = UUID.randomUUID();
+            }
+        }
+
+        BalanceCache fill(int maxEntries) {
+            BalanceCache cache = new BalanceCache(new AccountLocks(), maxEntries, EXPIRE_AFTER);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < accounts; i++) {
+                CachedAccount account = new CachedAccount("bench" + i, 100_000, now);
+                account.frequency = i % 64;
+                cache.putIfAbsent(uuids[i], account);
+            }
+            return cache;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WarmCache {
+
+        BalanceCache cache;
+
+        @Setup(Level.Trial)
+        public void setup(Accounts accounts) {
+            cache = accounts.fill(accounts.accounts);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FullCache {
+
+        BalanceCache cache;
+
+        // Ricreata ad ogni invocazione: runMaintenance svuota metà della cache
+        @Setup(Level.Invocation)
+        public void setup(Accounts accounts) {
+            cache = accounts.fill(accounts.accounts / 2);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public CachedAccount get(Accounts accounts, WarmCache warm) {
+        return warm.cache.get(accounts.uuids[ThreadLocalRandom.current().nextInt(accounts.accounts)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int runMaintenance(FullCache full) {
+        full.cache.runMaintenance(System.currentTimeMillis());
+        return full.cache.size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.marskernel.trialEconomy.manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra la rappresentazione precedente della cache (due mappe UUID -> BigDecimal
+ * e UUID -> Long) e la voce unica {@link CachedAccount} con bilancio in centesimi.
+ * Da eseguire con il profiler GC per confrontare le allocazioni per operazione.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheEntryBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+    private static final long AMOUNT_MINOR = Money.toMinor(AMOUNT);
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    private UUID[] uuids;
+
+    // Rappresentazione precedente
+    private ConcurrentHashMap<UUID, BigDecimal> balances;
+    private ConcurrentHashMap<UUID, Long> lastAccess;
+
+    // Rappresentazione attuale
+    private ConcurrentHashMap<UUID, CachedAccount> entries;
+    private AccountLocks locks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        uuids = new UUID[accounts];
+        balances = new ConcurrentHashMap<>();
+        lastAccess = new ConcurrentHashMap<>();
+        entries = new ConcurrentHashMap<>();
+        locks = new AccountLocks();
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < accounts; i++) {
+            uuids[i] = UUID.randomUUID();
+            balances.put(uuids[i], new BigDecimal("1000.00"));
+            lastAccess.put(uuids[i], now);
+            entries.put(uuids[i], new CachedAccount("bench" + i, 100_000, now));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal readBigDecimalMaps() {
+        UUID uuid = uuids[ThreadLocalRandom.current().nextInt(accounts)];
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return balances.get(uuid);
+    }
+
+    @Benchmark
+    public long readCachedAccount() {
+        CachedAccount account = entries.get(uuids[ThreadLocalRandom.current().nextInt(accounts)]);
+        account.touch(System.currentTimeMillis());
+        return account.balance;
+    }
+
+    @Benchmark
+    public BigDecimal addBigDecimalMaps() {
+        UUID uuid = uuids[ThreadLocalRandom.current().nextInt(accounts)];
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return balances.compute(uuid, (key, balance) -> balance.add(AMOUNT));
+    }
+
+    @Benchmark
+    public long addCachedAccount() {
+        UUID uuid = uuids[ThreadLocalRandom.current().nextInt(accounts)];
+        return locks.withLock(uuid, () -> {
+            CachedAccount account = entries.get(uuid);
+            account.balance = Money.addClamped(account.balance, AMOUNT_MINOR, Long.MAX_VALUE);
+            account.touch(System.currentTimeMillis());
+            return account.balance;
+        });
+    }
+}
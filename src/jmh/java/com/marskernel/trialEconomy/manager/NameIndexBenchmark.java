@@ -0,0 +1,90 @@
+package com.marskernel.trialEconomy.manager;
+
+import com.marskernel.trialEconomy.benchmark.BenchmarkEnvironment;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ricerca di un target offline per nome: indice in memoria contro query sulla colonna
+ * player_name_lower, più il tab completion per prefisso sull'indice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameIndexBenchmark {
+
+    @Param({"100000"})
+    public int accounts;
+
+    private BenchmarkEnvironment environment;
+    private DatabaseManager database;
+    private PlayerNameIndex index;
+    private String[] lookups;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = BenchmarkEnvironment.create(Map.of());
+        database = environment.getDatabase();
+        UUID[] uuids = environment.createAccounts(accounts);
+
+        index = new PlayerNameIndex();
+        lookups = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            String name = BenchmarkEnvironment.nameOf(i);
+            index.put(uuids[i], name);
+            // Le ricerche arrivano dai comandi con maiuscole arbitrarie
+            lookups[i] = i % 2 == 0 ? name.toUpperCase(Locale.ROOT) : name;
+        }
+        index.markLoaded();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    private String randomName() {
+        return lookups[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    @Benchmark
+    public UUID findInIndex() {
+        return index.find(randomName());
+    }
+
+    @Benchmark
+    public UUID findInDatabase() {
+        return database.getPlayerUUIDByName(randomName()).join();
+    }
+
+    @Benchmark
+    public List<String> completePrefix() {
+        String name = randomName();
+        List<String> results = new ArrayList<>(20);
+        index.complete(name.substring(0, Math.min(name.length(), 7)), 20, null, results);
+        return results;
+    }
+}
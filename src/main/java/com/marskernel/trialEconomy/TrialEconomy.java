@@ -1,13 +1,29 @@
 package com.marskernel.trialEconomy;
 
 import com.marskernel.trialEconomy.commands.BalanceCommand;
+import com.marskernel.trialEconomy.commands.BaltopCommand;
+import com.marskernel.trialEconomy.commands.EcoCommand;
+import com.marskernel.trialEconomy.commands.MessageDispatcher;
 import com.marskernel.trialEconomy.commands.PayCommand;
+import com.marskernel.trialEconomy.commands.PayRateLimiter;
+import com.marskernel.trialEconomy.commands.PaylogCommand;
 import com.marskernel.trialEconomy.database.DatabaseManager;
 import com.marskernel.trialEconomy.listeners.PlayerListener;
+import com.marskernel.trialEconomy.manager.BulkScheduler;
 import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.EconomySettings;
+import com.marskernel.trialEconomy.messages.Messages;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import com.marskernel.trialEconomy.metrics.MetricsReporter;
+import com.marskernel.trialEconomy.vault.VaultEconomyProvider;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Trial: Economy Plugin
  *
@@ -18,6 +34,7 @@ import org.bukkit.plugin.java.JavaPlugin;
  * - Operazioni completamente asincrone
  * - Logging completo delle transazioni
  * - Supporto giocatori offline
+ * - Provider Vault per gli altri plugin
  *
  * @author Patrizio
  * @version 1.0-SNAPSHOT
@@ -26,6 +43,11 @@ public final class TrialEconomy extends JavaPlugin {
 
     private DatabaseManager databaseManager;
     private EconomyManager economyManager;
+    private MetricsReporter metricsReporter;
+    private MessageDispatcher messageDispatcher;
+    private Messages messages;
+    private PayRateLimiter payRateLimiter;
+    private BulkScheduler bulkScheduler;
 
     @Override
     public void onEnable() {
@@ -42,7 +64,7 @@ public final class TrialEconomy extends JavaPlugin {
 
         // Inizializza database H2
         try {
-            databaseManager = new DatabaseManager(getDataFolder(), getLogger());
+            databaseManager = new DatabaseManager(getDataFolder(), getLogger(), getConfig(), new EconomyMetrics());
             getLogger().info("✓ Database H2 inizializzato con successo!");
         } catch (Exception e) {
             getLogger().severe("✗ Errore critico durante l'inizializzazione del database!");
@@ -55,6 +77,20 @@ public final class TrialEconomy extends JavaPlugin {
         try {
             economyManager = new EconomyManager(this, databaseManager);
             getLogger().info("✓ EconomyManager inizializzato!");
+
+            messages = new Messages(this, getConfig(), economyManager.getCurrencySymbol());
+
+            messageDispatcher = new MessageDispatcher(this, getConfig(), databaseManager.getMetrics());
+            messageDispatcher.start();
+
+            payRateLimiter = new PayRateLimiter(getConfig(), databaseManager.getMetrics());
+
+            metricsReporter = new MetricsReporter(getDataFolder(), getLogger(), getConfig(), databaseManager, economyManager,
+                    messageDispatcher);
+            metricsReporter.start();
+
+            bulkScheduler = new BulkScheduler(getLogger(), getConfig(), economyManager, databaseManager);
+            bulkScheduler.start();
         } catch (Exception e) {
             getLogger().severe("✗ Errore durante l'inizializzazione dell'EconomyManager!");
             e.printStackTrace();
@@ -64,8 +100,12 @@ public final class TrialEconomy extends JavaPlugin {
         }
 
         try {
-            BalanceCommand balanceCommand = new BalanceCommand(economyManager);
-            PayCommand payCommand = new PayCommand(economyManager);
+            BalanceCommand balanceCommand = new BalanceCommand(economyManager, messages, messageDispatcher);
+            PayCommand payCommand = new PayCommand(economyManager, payRateLimiter, messages, messageDispatcher);
+            BaltopCommand baltopCommand = new BaltopCommand(economyManager, messageDispatcher);
+            PaylogCommand paylogCommand = new PaylogCommand(economyManager, messageDispatcher);
+            EcoCommand ecoCommand = new EcoCommand(economyManager, metricsReporter, messageDispatcher,
+                    new File(getDataFolder(), "exports"), this::reloadSettings);
 
             getCommand("balance").setExecutor(balanceCommand);
             getCommand("balance").setTabCompleter(balanceCommand);
@@ -73,7 +113,17 @@ public final class TrialEconomy extends JavaPlugin {
             getCommand("pay").setExecutor(payCommand);
             getCommand("pay").setTabCompleter(payCommand);
 
-            getLogger().info("✓ Comandi registrati: /balance, /pay");
+            getCommand("baltop").setExecutor(baltopCommand);
+            getCommand("baltop").setTabCompleter(baltopCommand);
+
+            getCommand("paylog").setExecutor(paylogCommand);
+            getCommand("paylog").setTabCompleter(paylogCommand);
+            Bukkit.getPluginManager().registerEvents(paylogCommand, this);
+
+            getCommand("eco").setExecutor(ecoCommand);
+            getCommand("eco").setTabCompleter(ecoCommand);
+
+            getLogger().info("✓ Comandi registrati: /balance, /pay, /baltop, /paylog, /eco");
         } catch (Exception e) {
             getLogger().severe("✗ Errore durante la registrazione dei comandi!");
             e.printStackTrace();
@@ -87,9 +137,16 @@ public final class TrialEconomy extends JavaPlugin {
             e.printStackTrace();
         }
 
-        // Carica bilanciamenti per giocatori già online (in caso di reload)
-        Bukkit.getOnlinePlayers().forEach(player -> {
-            economyManager.onPlayerJoin(player);
+        registerVault();
+
+        // Carica bilanciamenti per giocatori già online (in caso di reload) con query batch
+        long preloadStart = System.currentTimeMillis();
+        int onlinePlayers = Bukkit.getOnlinePlayers().size();
+        economyManager.preloadPlayers(Bukkit.getOnlinePlayers()).thenAccept(loaded -> {
+            if (onlinePlayers > 0) {
+                getLogger().info("✓ Bilanciamenti precaricati per " + loaded + "/" + onlinePlayers +
+                        " giocatori online in " + (System.currentTimeMillis() - preloadStart) + "ms");
+            }
         });
 
         long endTime = System.currentTimeMillis();
@@ -108,7 +165,16 @@ public final class TrialEconomy extends JavaPlugin {
         getLogger().info("  Disabilitazione Trial Economy...");
         getLogger().info("=========================================");
 
-        // Salva tutti i bilanciamenti prima dello shutdown
+        // Ordine di chiusura: ultimo campione delle metriche, operazioni di massa programmate, flush finale dei bilanciamenti (usa ancora
+        // il DB executor), poi log transazioni, executor e pool di connessioni dentro DatabaseManager.close()
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+
+        if (bulkScheduler != null) {
+            bulkScheduler.close();
+        }
+
         if (economyManager != null) {
             try {
                 getLogger().info("Salvataggio bilanciamenti in corso...");
@@ -120,6 +186,11 @@ public final class TrialEconomy extends JavaPlugin {
             }
         }
 
+        // Consegna i messaggi rimasti in coda (onDisable gira sul main thread)
+        if (messageDispatcher != null) {
+            messageDispatcher.close();
+        }
+
         // Chiudi database
         if (databaseManager != null) {
             try {
@@ -137,6 +208,55 @@ public final class TrialEconomy extends JavaPlugin {
         getLogger().info("=========================================");
     }
 
+    /**
+     * Ricarica config.yml e i file dei messaggi (/eco reload, main thread).
+     * Economy, pool, pay-rate-limit e message-dispatch vengono letti e validati prima di applicare qualcosa:
+     * se un valore non è valido restano attivi tutti i valori precedenti. Storage, journal, cluster, log transazioni, metriche e capacità delle code
+     * richiedono un riavvio.
+     * @throws IllegalArgumentException se il file non è leggibile o contiene valori non validi
+     */
+    public void reloadSettings() {
+        YamlConfiguration candidate = new YamlConfiguration();
+        try {
+            candidate.load(new File(getDataFolder(), "config.yml"));
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new IllegalArgumentException("config.yml non leggibile: " + e.getMessage(), e);
+        }
+        EconomySettings settings = EconomySettings.load(candidate);
+        DatabaseManager.PoolSettings pool = DatabaseManager.PoolSettings.load(candidate);
+        PayRateLimiter.Limits limits = PayRateLimiter.Limits.load(candidate);
+        long dispatchBudget = MessageDispatcher.loadBudget(candidate);
+
+        // Da qui nessun valore può più essere rifiutato: tutto viene applicato insieme
+        reloadConfig();
+        economyManager.applySettings(settings);
+        databaseManager.resizePool(pool);
+        payRateLimiter.reload(limits);
+        messageDispatcher.reload(dispatchBudget);
+        messages.reload(getConfig(), settings.currencySymbol());
+        getLogger().info("✓ Configurazione ricaricata!");
+    }
+
+    /**
+     * Registra il provider Vault se Vault è installato e vault.enabled è attivo
+     */
+    private void registerVault() {
+        if (!getConfig().getBoolean("vault.enabled", true)) {
+            return;
+        }
+        if (Bukkit.getPluginManager().getPlugin("Vault") == null) {
+            getLogger().info("Vault non trovato: provider economy non registrato");
+            return;
+        }
+
+        try {
+            VaultEconomyProvider.register(this, economyManager);
+            getLogger().info("✓ Provider Vault registrato!");
+        } catch (Exception | LinkageError e) {
+            getLogger().severe("✗ Errore durante la registrazione del provider Vault: " + e.getMessage());
+        }
+    }
+
     /**
      * Ottiene l'istanza dell'EconomyManager
      * @return EconomyManager
@@ -1,7 +1,9 @@
 package com.marskernel.trialEconomy.commands;
 
 import com.marskernel.trialEconomy.manager.EconomyManager;
-import org.bukkit.ChatColor;
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.messages.MessageKey;
+import com.marskernel.trialEconomy.messages.Messages;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -18,39 +20,33 @@ import java.util.List;
 public class BalanceCommand implements CommandExecutor, TabCompleter {
 
     private final EconomyManager economyManager;
+    private final Messages messages;
+    private final MessageDispatcher dispatcher;
 
-    public BalanceCommand(EconomyManager economyManager) {
+    public BalanceCommand(EconomyManager economyManager, Messages messages, MessageDispatcher dispatcher) {
         this.economyManager = economyManager;
+        this.messages = messages;
+        this.dispatcher = dispatcher;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player player)) {
-            sender.sendMessage(ChatColor.RED + "Questo comando può essere usato solo dai giocatori!");
+            messages.send(sender, MessageKey.PLAYERS_ONLY);
             return true;
         }
 
         if (!player.hasPermission("economy.balance")) {
-            player.sendMessage(ChatColor.RED + "Non hai il permesso per usare questo comando!");
+            messages.send(player, MessageKey.NO_PERMISSION);
             return true;
         }
 
-        // Ottieni bilancio (operazione asincrona)
+        // Ottieni bilancio (operazione asincrona, risposta consegnata sul main thread)
         economyManager.getBalance(player.getUniqueId(), player.getName())
-                .thenAccept(balance -> {
-                    // Messaggio formattato con il bilancio
-                    String currencyName = economyManager.getCurrencyName();
-                    String formattedBalance = economyManager.formatAmount(balance);
-
-                    player.sendMessage(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-                    player.sendMessage(ChatColor.YELLOW + "  " + ChatColor.BOLD + "IL TUO BILANCIO");
-                    player.sendMessage("");
-                    player.sendMessage(ChatColor.GREEN + "  » " + ChatColor.WHITE + formattedBalance + " " + currencyName);
-                    player.sendMessage("");
-                    player.sendMessage(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-                })
+                .thenAccept(balance -> dispatcher.send(player, messages.render(player, MessageKey.BALANCE,
+                        Money.toMinor(balance), economyManager.getCurrencyName())))
                 .exceptionally(throwable -> {
-                    player.sendMessage(ChatColor.RED + "Errore durante il recupero del bilancio!");
+                    dispatcher.send(player, messages.render(player, MessageKey.BALANCE_ERROR));
                     throwable.printStackTrace();
                     return null;
                 });
@@ -0,0 +1,105 @@
+package com.marskernel.trialEconomy.commands;
+
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.Leaderboard;
+import com.marskernel.trialEconomy.manager.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comando /baltop - Mostra la classifica dei bilanciamenti
+ * Permesso richiesto: economy.baltop
+ * Uso: /baltop [pagina]
+ */
+public class BaltopCommand implements CommandExecutor, TabCompleter {
+
+    private final EconomyManager economyManager;
+    private final MessageDispatcher dispatcher;
+
+    public BaltopCommand(EconomyManager economyManager, MessageDispatcher dispatcher) {
+        this.economyManager = economyManager;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("economy.baltop")) {
+            sender.sendMessage(ChatColor.RED + "Non hai il permesso per usare questo comando!");
+            return true;
+        }
+
+        int page = 1;
+        if (args.length > 0) {
+            try {
+                page = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+
+            if (page < 1) {
+                sender.sendMessage(ChatColor.RED + "Numero di pagina non valido!");
+                return true;
+            }
+        }
+
+        economyManager.getTopBalances(page)
+                .thenAccept(result -> dispatcher.send(sender, formatPage(sender, result)))
+                .exceptionally(throwable -> {
+                    dispatcher.send(sender, ChatColor.RED + "Errore durante il recupero della classifica!");
+                    throwable.printStackTrace();
+                    return null;
+                });
+
+        return true;
+    }
+
+    /**
+     * Righe di una pagina della classifica
+     */
+    private List<String> formatPage(CommandSender sender, Leaderboard.Page page) {
+        if (page.entries().isEmpty()) {
+            return List.of(ChatColor.RED + "La pagina " + page.page() + " non esiste! Pagine disponibili: " +
+                    page.totalPages());
+        }
+
+        String currencyName = economyManager.getCurrencyName();
+        List<String> lines = new ArrayList<>();
+
+        lines.add(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        lines.add(ChatColor.YELLOW + "  " + ChatColor.BOLD + "CLASSIFICA" + ChatColor.GRAY +
+                " (pagina " + page.page() + "/" + page.totalPages() + ")");
+        lines.add("");
+
+        for (Leaderboard.Entry entry : page.entries()) {
+            String name = entry.name() != null ? entry.name() : entry.uuid().toString();
+            lines.add(ChatColor.GREEN + "  " + entry.rank() + ". " + ChatColor.WHITE + name +
+                    ChatColor.GRAY + " » " + ChatColor.WHITE +
+                    economyManager.formatAmount(Money.toDecimal(entry.balance())) + " " + currencyName);
+        }
+
+        if (sender instanceof Player player) {
+            int rank = economyManager.getLeaderboardRank(player.getUniqueId());
+            if (rank > 0) {
+                lines.add("");
+                lines.add(ChatColor.YELLOW + "  La tua posizione: " + ChatColor.WHITE + rank);
+            }
+        }
+
+        lines.add("");
+        lines.add(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        return lines;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        // Nessun tab completion necessario per /baltop
+        return new ArrayList<>();
+    }
+}
@@ -0,0 +1,360 @@
+package com.marskernel.trialEconomy.commands;
+
+import com.marskernel.trialEconomy.database.BulkOperation;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.database.EconomyDump;
+import com.marskernel.trialEconomy.manager.BalanceCache;
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.TransferFailure;
+import com.marskernel.trialEconomy.metrics.LatencyHistogram;
+import com.marskernel.trialEconomy.metrics.MetricsReporter;
+import com.marskernel.trialEconomy.metrics.MetricsSnapshot;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comando /eco - Comandi di amministrazione dell'economy
+ * Permesso richiesto: economy.admin
+ * Uso: /eco stats | /eco reload | /eco export [nome] | /eco import <nome> | /eco giveall <importo>
+ *      | /eco interest <percentuale> | /eco tax <percentuale> [soglia]
+ */
+public class EcoCommand implements CommandExecutor, TabCompleter {
+
+    private static final List<String> SUBCOMMANDS = List.of("stats", "reload", "export", "import", "giveall", "interest", "tax");
+    private static final String USAGE = "/eco <stats|reload|export|import|giveall|interest|tax>";
+    private static final BigDecimal MAX_PERCENT = BigDecimal.valueOf(100);
+    private static final String EXPORT_EXTENSION = ".teco";
+    private static final DateTimeFormatter EXPORT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final EconomyManager economyManager;
+    private final MetricsReporter metricsReporter;
+    private final MessageDispatcher dispatcher;
+    private final File exportFolder;
+    // Ricarica la configurazione, IllegalArgumentException se non valida
+    private final Runnable reloader;
+
+    public EcoCommand(EconomyManager economyManager, MetricsReporter metricsReporter, MessageDispatcher dispatcher,
+                      File exportFolder, Runnable reloader) {
+        this.economyManager = economyManager;
+        this.metricsReporter = metricsReporter;
+        this.dispatcher = dispatcher;
+        this.exportFolder = exportFolder;
+        this.reloader = reloader;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("economy.admin")) {
+            sender.sendMessage(ChatColor.RED + "Non hai il permesso per usare questo comando!");
+            return true;
+        }
+
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.RED + "Uso corretto: " + USAGE);
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "stats" -> sendStats(sender);
+            case "reload" -> reload(sender);
+            case "export" -> export(sender, args);
+            case "import" -> importDump(sender, args);
+            case "giveall", "interest", "tax" -> bulk(sender, args);
+            default -> sender.sendMessage(ChatColor.RED + "Sottocomando sconosciuto! Uso corretto: " + USAGE);
+        }
+        return true;
+    }
+
+    /**
+     * Ricarica config.yml e i messaggi senza riavviare il server; le operazioni in corso non vengono interrotte
+     */
+    private void reload(CommandSender sender) {
+        long start = System.nanoTime();
+        try {
+            reloader.run();
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(ChatColor.RED + "Configurazione non valida: " + e.getMessage() +
+                    ". Restano attivi i valori precedenti.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GREEN + "Configurazione ricaricata in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+        sender.sendMessage(ChatColor.GRAY + "Richiedono un riavvio: database (url, storage, executor, queue-capacity), " +
+                "journal, cluster, transaction-log, metrics, vault, bulk-operations.schedule, paylog.recent-buffer.");
+    }
+
+    /**
+     * Operazioni su tutti gli account: giveall (importo), interest e tax (percentuale, tassa oltre una soglia)
+     */
+    private void bulk(CommandSender sender, String[] args) {
+        String operation = args[0].toLowerCase(Locale.ROOT);
+        boolean percent = !operation.equals("giveall");
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Uso corretto: /eco " + operation +
+                    (percent ? " <percentuale>" : " <importo>") + (operation.equals("tax") ? " [soglia]" : ""));
+            return;
+        }
+
+        BigDecimal value = parseAmount(args[1]);
+        BigDecimal threshold = args.length > 2 && operation.equals("tax") ? parseAmount(args[2]) : BigDecimal.ZERO;
+        if (threshold == null) {
+            sender.sendMessage(ChatColor.RED + "Soglia non valida!");
+            return;
+        }
+        if (value == null || value.signum() == 0 || (percent && value.compareTo(MAX_PERCENT) > 0)
+                || (!percent && value.compareTo(economyManager.getMaxBalance()) > 0)) {
+            sender.sendMessage(ChatColor.RED + (percent ? "Percentuale non valida! (massimo 100)" : "Importo non valido!"));
+            return;
+        }
+
+        String source = "da " + sender.getName();
+        CompletableFuture<BulkOperation.Result> result = switch (operation) {
+            case "giveall" -> economyManager.giveAll(value, source);
+            case "interest" -> economyManager.applyInterest(value, source);
+            default -> economyManager.applyTax(value, threshold, source);
+        };
+
+        sender.sendMessage(ChatColor.YELLOW + "Operazione " + operation + " avviata su tutti gli account...");
+        result.thenAccept(done -> dispatcher.send(sender, ChatColor.GREEN + "Operazione " + operation + " completata: " +
+                        done.accounts() + " account modificati, variazione totale " +
+                        economyManager.formatAmount(Money.toDecimal(done.total())) + " " + economyManager.getCurrencyName()))
+                .exceptionally(throwable -> {
+                    BulkOperation.PartialFailure partial = BulkOperation.PartialFailure.find(throwable);
+                    if (partial != null) {
+                        // Ripetere il comando modificherebbe due volte gli account già aggiornati
+                        dispatcher.send(sender, ChatColor.RED + "Operazione " + operation + " interrotta: " +
+                                        rootMessage(throwable),
+                                ChatColor.YELLOW + "Già applicata a " + partial.getApplied().accounts() +
+                                        " account (variazione " + economyManager.formatAmount(
+                                        Money.toDecimal(partial.getApplied().total())) + "): non ripeterla per intero.");
+                    } else {
+                        dispatcher.send(sender, ChatColor.RED + "Operazione " + operation + " fallita: " + rootMessage(throwable));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Numero non negativo, o null se non valido
+     */
+    private static BigDecimal parseAmount(String value) {
+        try {
+            BigDecimal parsed = new BigDecimal(value);
+            return parsed.signum() >= 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Esporta l'economy in plugins/trial-economy/exports (nome predefinito: data e ora)
+     */
+    private void export(CommandSender sender, String[] args) {
+        String name = args.length > 1 ? args[1] : "economy-" + LocalDateTime.now().format(EXPORT_NAME);
+        File target = resolve(name);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "Nome file non valido!");
+            return;
+        }
+        if (target.exists()) {
+            sender.sendMessage(ChatColor.RED + "Il file " + target.getName() + " esiste già!");
+            return;
+        }
+        if (!exportFolder.isDirectory() && !exportFolder.mkdirs()) {
+            sender.sendMessage(ChatColor.RED + "Impossibile creare la cartella " + exportFolder.getName() + "!");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "Esportazione in " + target.getName() + " avviata...");
+        economyManager.exportEconomy(target, progress(sender))
+                .thenAccept(result -> dispatcher.send(sender, ChatColor.GREEN + "Esportazione completata: " +
+                        describe(result) + " in " + target.getName()))
+                .exceptionally(throwable -> {
+                    dispatcher.send(sender, ChatColor.RED + "Esportazione fallita: " + rootMessage(throwable));
+                    return null;
+                });
+    }
+
+    /**
+     * Importa un file di plugins/trial-economy/exports: account e transazioni con la stessa chiave vengono sostituiti
+     */
+    private void importDump(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Uso corretto: /eco import <nome>");
+            return;
+        }
+
+        File source = resolve(args[1]);
+        if (source == null || !source.isFile()) {
+            sender.sendMessage(ChatColor.RED + "File non trovato nella cartella " + exportFolder.getName() + "!");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "Importazione di " + source.getName() + " avviata...");
+        economyManager.importEconomy(source, progress(sender))
+                .thenAccept(result -> dispatcher.send(sender, ChatColor.GREEN + "Importazione completata: " +
+                        describe(result)))
+                .exceptionally(throwable -> {
+                    dispatcher.send(sender, ChatColor.RED + "Importazione fallita: " + rootMessage(throwable));
+                    return null;
+                });
+    }
+
+    /**
+     * File nella cartella delle esportazioni, o null se il nome esce dalla cartella
+     */
+    private File resolve(String name) {
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            return null;
+        }
+        return new File(exportFolder, name.endsWith(EXPORT_EXTENSION) ? name : name + EXPORT_EXTENSION);
+    }
+
+    private EconomyDump.Progress progress(CommandSender sender) {
+        return (stage, done, total) -> dispatcher.send(sender, ChatColor.GRAY + "  » " + stage + ": " + ChatColor.WHITE +
+                done + "/" + total + ChatColor.GRAY + " (" + percent(total == 0 ? 1 : (double) done / total) + ")");
+    }
+
+    private static String describe(EconomyDump.Result result) {
+        return result.accounts() + " account, " + result.transactions() + " transazioni, " +
+                String.format(Locale.ROOT, "%.1f MB", result.bytes() / (1024.0 * 1024.0)) + " in " + result.millis() + "ms";
+    }
+
+    private static String rootMessage(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * Mostra le metriche runtime: cache, pool di connessioni, trasferimenti, flush e latenze del database
+     */
+    private void sendStats(CommandSender sender) {
+        MetricsSnapshot snapshot = metricsReporter.collect();
+        BalanceCache.Stats cache = snapshot.cache();
+        DatabaseManager.PoolStats pool = snapshot.pool();
+
+        sender.sendMessage(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        sender.sendMessage(ChatColor.YELLOW + "  " + ChatColor.BOLD + "STATISTICHE ECONOMY");
+        sender.sendMessage("");
+
+        sender.sendMessage(ChatColor.GREEN + "  Cache: " + ChatColor.WHITE + cache.size() + "/" + cache.maxEntries() +
+                " account, hit ratio " + percent(cache.hitRatio()) +
+                ", " + cache.evictions() + " eviction, " + snapshot.coalescedLoads() + " caricamenti uniti");
+
+        sender.sendMessage(ChatColor.GREEN + "  Pool DB: " + ChatColor.WHITE + pool.active() + " attive, " +
+                pool.idle() + " libere, " + pool.waiting() + " in attesa (max " + pool.max() + ")");
+
+        sender.sendMessage(ChatColor.GREEN + "  Code: " + ChatColor.WHITE + "executor " + snapshot.databaseQueue() +
+                ", log transazioni " + snapshot.logQueue());
+
+        sender.sendMessage(ChatColor.GREEN + "  Trasferimenti: " + ChatColor.WHITE +
+                String.format(Locale.ROOT, "%.1f/s", metricsReporter.getTransfersPerSecond()) +
+                " (ultimi " + metricsReporter.getInterval() + "s), " + snapshot.transfers() + " totali");
+
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<TransferFailure, Long> entry : snapshot.failedTransfers().entrySet()) {
+            if (entry.getValue() > 0) {
+                failures.add(entry.getKey().name().toLowerCase(Locale.ROOT) + " " + entry.getValue());
+            }
+        }
+        if (!failures.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + "  Rifiutati: " + ChatColor.WHITE + String.join(", ", failures));
+        }
+
+        LatencyHistogram.Snapshot flush = snapshot.flush();
+        if (flush.getCount() > 0) {
+            sender.sendMessage(ChatColor.GREEN + "  Flush: " + ChatColor.WHITE + "ultimo " +
+                    TimeUnit.NANOSECONDS.toMillis(snapshot.lastFlushNanos()) + "ms (" + snapshot.lastFlushRows() +
+                    " righe), p99 " + millis(flush.percentile(99)) + ", max " + millis(flush.getMaxMicros()));
+        }
+
+        LatencyHistogram.Snapshot vault = snapshot.vaultCalls();
+        if (vault.getCount() > 0) {
+            sender.sendMessage(ChatColor.GREEN + "  Vault: " + ChatColor.WHITE + vault.getCount() + " chiamate, p50 " +
+                    micros(vault.percentile(50)) + ", p99 " + micros(vault.percentile(99)) + ", max " +
+                    micros(vault.getMaxMicros()) + ", " + snapshot.uncachedReads() + " fuori cache");
+        }
+
+        LatencyHistogram.Snapshot dispatch = snapshot.dispatch();
+        if (dispatch.getCount() > 0) {
+            sender.sendMessage(ChatColor.GREEN + "  Messaggi: " + ChatColor.WHITE + "coda " + snapshot.dispatchQueue() +
+                    ", tick p50 " + micros(dispatch.percentile(50)) + ", p99 " + micros(dispatch.percentile(99)) +
+                    ", max " + micros(dispatch.getMaxMicros()));
+        }
+
+        sender.sendMessage("");
+        sender.sendMessage(ChatColor.YELLOW + "  Latenze database (p50 / p99 / max):");
+        for (Map.Entry<DatabaseOperation, LatencyHistogram.Snapshot> entry : snapshot.databaseLatency().entrySet()) {
+            LatencyHistogram.Snapshot latency = entry.getValue();
+            if (latency.getCount() == 0) {
+                continue;
+            }
+
+            sender.sendMessage(ChatColor.GRAY + "  » " + ChatColor.WHITE + entry.getKey().name().toLowerCase(Locale.ROOT) +
+                    ": " + millis(latency.percentile(50)) + " / " + millis(latency.percentile(99)) +
+                    " / " + millis(latency.getMaxMicros()) + ChatColor.GRAY + " (" + latency.getCount() + ")");
+        }
+        sender.sendMessage(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    }
+
+    private static String percent(double ratio) {
+        return String.format(Locale.ROOT, "%.1f%%", ratio * 100);
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.2fms", micros / 1000.0);
+    }
+
+    /**
+     * L'istogramma conta microsecondi interi: 0 indica una chiamata sotto il microsecondo
+     */
+    private static String micros(long micros) {
+        return micros == 0 ? "<1µs" : micros + "µs";
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (!sender.hasPermission("economy.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1) {
+            for (String subcommand : SUBCOMMANDS) {
+                if (subcommand.startsWith(args[0].toLowerCase(Locale.ROOT))) {
+                    completions.add(subcommand);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("import")) {
+            String[] files = exportFolder.list((dir, name) -> name.endsWith(EXPORT_EXTENSION));
+            if (files != null) {
+                for (String file : files) {
+                    if (file.startsWith(args[1])) {
+                        completions.add(file);
+                    }
+                }
+            }
+        }
+        return completions;
+    }
+}
@@ -0,0 +1,178 @@
+package com.marskernel.trialEconomy.commands;
+
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consegna sul main thread i messaggi prodotti dai callback asincroni dei comandi.
+ *
+ * I thread del database accodano i messaggi in una coda lock-free (più produttori, un consumatore);
+ * un unico task ripetuto ogni tick la svuota, unisce i messaggi dello stesso destinatario in una sola
+ * chiamata sendMessage e si ferma dopo message-dispatch.tick-budget-ms: il resto passa al tick successivo.
+ */
+public class MessageDispatcher {
+
+    private final Plugin plugin;
+    private final EconomyMetrics metrics;
+    private long budgetNanos; // Letto e aggiornato solo sul main thread
+
+    private final ConcurrentLinkedQueue<Message> queue;
+    private final AtomicInteger depth;
+
+    // Destinatario -> righe in attesa, nell'ordine di arrivo (solo main thread)
+    private final LinkedHashMap<Object, Batch> pending;
+    private BukkitTask task;
+
+    public MessageDispatcher(Plugin plugin, ConfigurationSection settings, EconomyMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.budgetNanos = loadBudget(settings);
+
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.pending = new LinkedHashMap<>();
+    }
+
+    /**
+     * Legge e valida message-dispatch.tick-budget-ms (almeno 50 µs)
+     * @return Budget per tick in nanosecondi
+     * @throws IllegalArgumentException se il valore non è valido
+     */
+    public static long loadBudget(ConfigurationSection settings) {
+        double budget = settings.getDouble("message-dispatch.tick-budget-ms", 1.0);
+        if (!(budget > 0) || Double.isInfinite(budget)) {
+            throw new IllegalArgumentException("message-dispatch.tick-budget-ms deve essere maggiore di zero");
+        }
+        return Math.max(TimeUnit.MICROSECONDS.toNanos(50), (long) (budget * 1_000_000));
+    }
+
+    /**
+     * Applica il budget letto da {@link #loadBudget} dopo /eco reload (main thread)
+     */
+    public void reload(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public void start() {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+    }
+
+    /**
+     * Accoda le righe per un destinatario; thread-safe, non blocca
+     */
+    public void send(CommandSender recipient, String... lines) {
+        send(recipient, List.of(lines));
+    }
+
+    public void send(CommandSender recipient, List<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        queue.add(new Message(recipient, lines));
+        depth.incrementAndGet();
+    }
+
+    /**
+     * Messaggi accodati e non ancora consegnati
+     */
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Un tick: raccoglie la coda per destinatario, poi consegna finché c'è budget (almeno un destinatario)
+     */
+    private void drain() {
+        if (depth.get() == 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        collect();
+
+        Iterator<Batch> batches = pending.values().iterator();
+        while (batches.hasNext()) {
+            Batch batch = batches.next();
+            batches.remove();
+            deliver(batch);
+            if (System.nanoTime() - start > budgetNanos) {
+                break;
+            }
+        }
+
+        metrics.recordDispatch(System.nanoTime() - start);
+    }
+
+    /**
+     * Sposta i messaggi accodati nelle righe in attesa del loro destinatario (un giocatore per UUID)
+     */
+    private void collect() {
+        Message message;
+        while ((message = queue.poll()) != null) {
+            CommandSender recipient = message.recipient();
+            Object key = recipient instanceof Player player ? player.getUniqueId() : recipient;
+            pending.computeIfAbsent(key, k -> new Batch(recipient)).messages.add(message);
+        }
+    }
+
+    private void deliver(Batch batch) {
+        List<String> lines = new ArrayList<>();
+        for (Message message : batch.messages) {
+            lines.addAll(message.lines());
+        }
+        depth.addAndGet(-batch.messages.size());
+
+        CommandSender recipient = batch.recipient;
+        if (recipient instanceof Player player) {
+            // Dopo un rientro l'oggetto Player è un altro: si consegna a quello attuale
+            recipient = Bukkit.getPlayer(player.getUniqueId());
+            if (recipient == null) {
+                return;
+            }
+        }
+        recipient.sendMessage(lines.toArray(String[]::new));
+    }
+
+    /**
+     * Ferma il task e consegna i messaggi rimasti (da chiamare sul main thread)
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel();
+        }
+
+        collect();
+        for (Batch batch : pending.values()) {
+            deliver(batch);
+        }
+        pending.clear();
+    }
+
+    private record Message(CommandSender recipient, List<String> lines) {
+    }
+
+    /**
+     * Messaggi in attesa per un destinatario
+     */
+    private static final class Batch {
+        final CommandSender recipient;
+        final List<Message> messages = new ArrayList<>();
+
+        Batch(CommandSender recipient) {
+            this.recipient = recipient;
+        }
+    }
+}
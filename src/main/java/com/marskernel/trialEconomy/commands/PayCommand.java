@@ -1,9 +1,11 @@
 package com.marskernel.trialEconomy.commands;
 
 import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.EconomyManager.TransactionResult;
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.messages.MessageKey;
+import com.marskernel.trialEconomy.messages.Messages;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -14,35 +16,41 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Comando /pay - Trasferisce denaro tra giocatori
- * Permesso richiesto: economy.pay
+ * Permesso richiesto: economy.pay (economy.pay.bypass-limit ignora pay-rate-limit)
  * Uso: /pay <giocatore> <importo>
  */
 public class PayCommand implements CommandExecutor, TabCompleter {
 
     private final EconomyManager economyManager;
+    private final PayRateLimiter rateLimiter;
+    private final Messages messages;
+    private final MessageDispatcher dispatcher;
 
-    public PayCommand(EconomyManager economyManager) {
+    public PayCommand(EconomyManager economyManager, PayRateLimiter rateLimiter, Messages messages,
+                      MessageDispatcher dispatcher) {
         this.economyManager = economyManager;
+        this.rateLimiter = rateLimiter;
+        this.messages = messages;
+        this.dispatcher = dispatcher;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player player)) {
-            sender.sendMessage(ChatColor.RED + "Questo comando può essere usato solo dai giocatori!");
+            messages.send(sender, MessageKey.PLAYERS_ONLY);
             return true;
         }
 
         if (!player.hasPermission("economy.pay")) {
-            player.sendMessage(ChatColor.RED + "Non hai il permesso per usare questo comando!");
+            messages.send(player, MessageKey.NO_PERMISSION);
             return true;
         }
 
         if (args.length != 2) {
-            player.sendMessage(ChatColor.RED + "Uso corretto: /pay <giocatore> <importo>");
+            messages.send(player, MessageKey.PAY_USAGE);
             return true;
         }
 
@@ -54,13 +62,19 @@ public class PayCommand implements CommandExecutor, TabCompleter {
         try {
             amount = new BigDecimal(amountString);
         } catch (NumberFormatException e) {
-            player.sendMessage(ChatColor.RED + "Importo non valido! Usa un numero (es: 100 o 50.50)");
+            messages.send(player, MessageKey.PAY_INVALID_AMOUNT);
+            return true;
+        }
+
+        // Al massimo due decimali: l'importo non viene mai arrotondato
+        if (!Money.isExact(amount)) {
+            messages.send(player, MessageKey.PAY_INVALID_AMOUNT);
             return true;
         }
 
         // Controlla che l'importo sia positivo
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            player.sendMessage(ChatColor.RED + "L'importo deve essere maggiore di zero!");
+            messages.send(player, MessageKey.PAY_NOT_POSITIVE);
             return true;
         }
 
@@ -68,19 +82,28 @@ public class PayCommand implements CommandExecutor, TabCompleter {
         BigDecimal minTransaction = economyManager.getMinTransaction();
 
         if (amount.compareTo(minTransaction) < 0) {
-            player.sendMessage(ChatColor.RED + "L'importo minimo trasferibile è " +
-                    economyManager.formatAmount(minTransaction) + "!");
+            messages.send(player, MessageKey.PAY_BELOW_MINIMUM, Money.toMinor(minTransaction));
             return true;
         }
 
         // Non puoi pagare te stesso
         if (targetName.equalsIgnoreCase(player.getName())) {
-            player.sendMessage(ChatColor.RED + "Non puoi inviare denaro a te stesso!");
+            messages.send(player, MessageKey.PAY_SELF);
             return true;
         }
 
+        // Limite di frequenza: i comandi in eccesso non arrivano né alla ricerca né al database
+        if (!player.hasPermission("economy.pay.bypass-limit")) {
+            long wait = rateLimiter.tryAcquire(player.getUniqueId());
+            if (wait > 0) {
+                long tenths = (wait + 99) / 100;
+                messages.send(player, MessageKey.PAY_RATE_LIMITED, tenths / 10 + "." + tenths % 10);
+                return true;
+            }
+        }
+
         // Cerca il giocatore target (online o offline)
-        player.sendMessage(ChatColor.YELLOW + "Ricerca del giocatore in corso...");
+        messages.send(player, MessageKey.PAY_SEARCHING);
 
         // Prima prova con giocatore online
         Player targetPlayer = Bukkit.getPlayer(targetName);
@@ -89,19 +112,19 @@ public class PayCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        // Cerca nel database per giocatori offline
-        economyManager.getDatabase().getPlayerUUIDByName(targetName)
+        // Cerca tra gli account conosciuti per giocatori offline (indice in memoria)
+        economyManager.findPlayerUUID(targetName)
                 .thenAccept(targetUUID -> {
                     if (targetUUID == null) {
-                        player.sendMessage(ChatColor.RED + "Giocatore '" + targetName + "' non trovato!");
+                        dispatcher.send(player, messages.render(player, MessageKey.PAY_NOT_FOUND, targetName));
                         return;
                     }
 
-                    OfflinePlayer offlineTarget = Bukkit.getOfflinePlayer(targetUUID);
-                    executeTransfer(player, targetUUID, offlineTarget.getName(), amount, null);
+                    String offlineName = economyManager.getPlayerName(targetUUID);
+                    executeTransfer(player, targetUUID, offlineName != null ? offlineName : targetName, amount, null);
                 })
                 .exceptionally(throwable -> {
-                    player.sendMessage(ChatColor.RED + "Errore durante la ricerca del giocatore!");
+                    dispatcher.send(player, messages.render(player, MessageKey.PAY_LOOKUP_ERROR));
                     throwable.printStackTrace();
                     return null;
                 });
@@ -110,7 +133,7 @@ public class PayCommand implements CommandExecutor, TabCompleter {
     }
 
     /**
-     * Esegue il trasferimento di denaro
+     * Esegue il trasferimento di denaro; gli esiti vengono consegnati dal MessageDispatcher
      */
     private void executeTransfer(Player sender, UUID receiverUUID, String receiverName, BigDecimal amount, Player receiverPlayer) {
         economyManager.transfer(
@@ -121,38 +144,50 @@ public class PayCommand implements CommandExecutor, TabCompleter {
                 amount
         ).thenAccept(result -> {
             if (result.isSuccess()) {
-                // Successo - Notifica il sender
-                sender.sendMessage(ChatColor.GREEN + "✓ Hai inviato " + economyManager.formatAmount(amount) +
-                        " a " + ChatColor.YELLOW + receiverName + ChatColor.GREEN + "!");
-
-                // Notifica il receiver se online
-                if (receiverPlayer != null && receiverPlayer.isOnline()) {
-                    receiverPlayer.sendMessage(ChatColor.GREEN + "✓ Hai ricevuto " +
-                            economyManager.formatAmount(amount) + " da " +
-                            ChatColor.YELLOW + sender.getName() + ChatColor.GREEN + "!");
+                // Successo - Notifica il sender e il receiver se online (il dispatcher salta chi è uscito nel frattempo)
+                long amountMinor = Money.toMinor(amount);
+                dispatcher.send(sender, messages.render(sender, MessageKey.PAY_SENT, amountMinor, receiverName));
+                if (receiverPlayer != null) {
+                    dispatcher.send(receiverPlayer, messages.render(receiverPlayer, MessageKey.PAY_RECEIVED,
+                            amountMinor, sender.getName()));
                 }
             } else {
                 // Errore
-                sender.sendMessage(ChatColor.RED + "✗ " + result.getMessage());
+                dispatcher.send(sender, messages.render(sender, failureKey(result), result.getMessage()));
             }
         }).exceptionally(throwable -> {
-            sender.sendMessage(ChatColor.RED + "Errore durante il trasferimento!");
+            dispatcher.send(sender, messages.render(sender, MessageKey.PAY_ERROR));
             throwable.printStackTrace();
             return null;
         });
     }
 
+    /**
+     * Messaggio per il motivo di un trasferimento rifiutato
+     */
+    private static MessageKey failureKey(TransactionResult result) {
+        if (result.getFailure() == null) {
+            return MessageKey.TRANSFER_FAILED;
+        }
+        return switch (result.getFailure()) {
+            case BELOW_MINIMUM -> MessageKey.TRANSFER_BELOW_MINIMUM;
+            case ABOVE_MAXIMUM -> MessageKey.TRANSFER_ABOVE_MAXIMUM;
+            case SELF_TRANSFER -> MessageKey.TRANSFER_SELF;
+            case INSUFFICIENT_FUNDS -> MessageKey.TRANSFER_INSUFFICIENT_FUNDS;
+            case RECEIVER_LIMIT -> MessageKey.TRANSFER_RECEIVER_LIMIT;
+            case INVALID_AMOUNT -> MessageKey.PAY_INVALID_AMOUNT;
+            default -> MessageKey.TRANSFER_FAILED;
+        };
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
         List<String> completions = new ArrayList<>();
 
         if (args.length == 1) {
-            String partialName = args[0].toLowerCase();
-            completions = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(partialName))
-                    .filter(name -> !name.equals(sender.getName())) // Escludi il sender
-                    .collect(Collectors.toList());
+            // Tutti gli account conosciuti (anche offline), escluso il sender
+            UUID senderUUID = sender instanceof Player player ? player.getUniqueId() : null;
+            completions = economyManager.completePlayerNames(senderUUID, sender.getName(), args[0]);
         } else if (args.length == 2) {
             // Suggerimenti per importi comuni
             completions.add("10");
@@ -0,0 +1,131 @@
+package com.marskernel.trialEconomy.commands;
+
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.TransferFailure;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limite di frequenza di /pay per mittente (token bucket, pay-rate-limit).
+ *
+ * Ogni bucket è un solo long aggiornato con CAS: l'istante in cui il bucket torna pieno
+ * (algoritmo GCRA, equivalente a un token bucket con burst e ricarica). Un bucket pieno
+ * equivale a uno assente, quindi i bucket inattivi vengono rimossi senza perdere stato.
+ */
+public class PayRateLimiter {
+
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+    // Valore di un bucket rimosso dalla mappa: chi lo legge ne crea uno nuovo
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final EconomyMetrics metrics;
+    // Sostituiti insieme da /eco reload
+    private volatile Limits limits;
+
+    // Mittente -> istante (System.nanoTime) in cui il bucket torna pieno
+    private final ConcurrentHashMap<UUID, AtomicLong> buckets;
+    private final AtomicLong lastSweep;
+
+    public PayRateLimiter(ConfigurationSection settings, EconomyMetrics metrics) {
+        this.metrics = metrics;
+        this.limits = Limits.load(settings);
+        this.buckets = new ConcurrentHashMap<>();
+        this.lastSweep = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Consuma un /pay dal bucket del mittente
+     * @return 0 se il comando può proseguire, altrimenti i millisecondi da attendere
+     */
+    public long tryAcquire(UUID sender) {
+        Limits current = limits;
+        if (!current.enabled()) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        sweepIfDue(now);
+
+        while (true) {
+            AtomicLong bucket = buckets.computeIfAbsent(sender, key -> new AtomicLong(now));
+            long full = bucket.get();
+            if (full == EVICTED) {
+                // Rimosso dalla pulizia tra computeIfAbsent e get: si riparte da un bucket nuovo
+                buckets.remove(sender, bucket);
+                continue;
+            }
+
+            long next = Math.max(full, now) + current.interval();
+            long wait = next - now - current.capacity();
+            if (wait > 0) {
+                metrics.recordTransferFailure(TransferFailure.RATE_LIMITED);
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Applica i nuovi pay-rate-limit dopo /eco reload; i bucket esistenti restano validi
+     */
+    public void reload(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Numero di bucket in memoria
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Al massimo una volta al minuto rimuove i bucket tornati pieni.
+     * Solo il thread che vince il CAS su lastSweep esegue la pulizia
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+
+        buckets.forEach((sender, bucket) -> {
+            long full = bucket.get();
+            if (full != EVICTED && full - now <= 0 && bucket.compareAndSet(full, EVICTED)) {
+                buckets.remove(sender, bucket);
+            }
+        });
+    }
+
+    /**
+     * @param interval Nanosecondi per ricaricare un /pay
+     * @param capacity Nanosecondi di credito di un bucket pieno (burst * interval)
+     */
+    public record Limits(boolean enabled, long interval, long capacity) {
+
+        /**
+         * Legge e valida pay-rate-limit
+         * @throws IllegalArgumentException se un valore non è valido
+         */
+        public static Limits load(ConfigurationSection settings) {
+            int burst = settings.getInt("pay-rate-limit.burst", 5);
+            double refill = settings.getDouble("pay-rate-limit.refill-per-second", 1.0);
+
+            if (burst < 1) {
+                throw new IllegalArgumentException("pay-rate-limit.burst deve essere almeno 1");
+            }
+            if (!(refill > 0) || Double.isInfinite(refill)) {
+                throw new IllegalArgumentException("pay-rate-limit.refill-per-second deve essere maggiore di zero");
+            }
+
+            long interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refill));
+            return new Limits(settings.getBoolean("pay-rate-limit.enabled", true), interval, interval * burst);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.marskernel.trialEconomy.commands;
+
+import com.marskernel.trialEconomy.database.DatabaseManager.HistoryEntry;
+import com.marskernel.trialEconomy.database.DatabaseManager.HistoryPage;
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Comando /paylog - Mostra lo storico delle transazioni, dalla più recente
+ * Permessi richiesti: economy.paylog, economy.paylog.others per lo storico di altri giocatori
+ * Uso: /paylog [giocatore] [pagina]
+ *
+ * Per ogni sender ricorda l'ultima voce delle pagine già mostrate: la pagina successiva parte da lì
+ * (paginazione per chiave) e resta stabile anche se nel frattempo arrivano nuove transazioni.
+ * /paylog senza pagina riparte dalla più recente.
+ */
+public class PaylogCommand implements CommandExecutor, TabCompleter, Listener {
+
+    private static final UUID CONSOLE = new UUID(0, 0);
+    private static final int MAX_CURSORS = 100;
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm").withZone(ZoneId.systemDefault());
+
+    private final EconomyManager economyManager;
+    private final MessageDispatcher dispatcher;
+
+    // Sender -> storico che sta sfogliando
+    private final ConcurrentHashMap<UUID, Session> sessions;
+
+    public PaylogCommand(EconomyManager economyManager, MessageDispatcher dispatcher) {
+        this.economyManager = economyManager;
+        this.dispatcher = dispatcher;
+        this.sessions = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("economy.paylog")) {
+            sender.sendMessage(ChatColor.RED + "Non hai il permesso per usare questo comando!");
+            return true;
+        }
+
+        if (args.length > 2) {
+            sender.sendMessage(ChatColor.RED + "Uso corretto: /paylog [giocatore] [pagina]");
+            return true;
+        }
+
+        // Con un solo argomento numerico si intende la pagina del proprio storico
+        String targetName = null;
+        String pageArg = null;
+        if (args.length == 2) {
+            targetName = args[0];
+            pageArg = args[1];
+        } else if (args.length == 1) {
+            if (isNumber(args[0])) {
+                pageArg = args[0];
+            } else {
+                targetName = args[0];
+            }
+        }
+
+        int page = 1;
+        if (pageArg != null) {
+            try {
+                page = Integer.parseInt(pageArg);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+
+            if (page < 1) {
+                sender.sendMessage(ChatColor.RED + "Numero di pagina non valido!");
+                return true;
+            }
+        }
+
+        if (targetName == null || targetName.equalsIgnoreCase(sender.getName())) {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage(ChatColor.RED + "Uso da console: /paylog <giocatore> [pagina]");
+                return true;
+            }
+            showPage(sender, player.getUniqueId(), player.getName(), page);
+            return true;
+        }
+
+        if (!sender.hasPermission("economy.paylog.others")) {
+            sender.sendMessage(ChatColor.RED + "Non hai il permesso di vedere lo storico di altri giocatori!");
+            return true;
+        }
+
+        String requestedName = targetName;
+        int requestedPage = page;
+        economyManager.findPlayerUUID(requestedName)
+                .thenAccept(targetUUID -> {
+                    if (targetUUID == null) {
+                        dispatcher.send(sender, ChatColor.RED + "Giocatore '" + requestedName + "' non trovato!");
+                        return;
+                    }
+
+                    String name = economyManager.getPlayerName(targetUUID);
+                    showPage(sender, targetUUID, name != null ? name : requestedName, requestedPage);
+                })
+                .exceptionally(throwable -> {
+                    dispatcher.send(sender, ChatColor.RED + "Errore durante la ricerca del giocatore!");
+                    throwable.printStackTrace();
+                    return null;
+                });
+
+        return true;
+    }
+
+    /**
+     * Legge una pagina partendo dalla pagina più vicina di cui si conosce l'ultima voce
+     */
+    private void showPage(CommandSender sender, UUID targetUUID, String targetName, int page) {
+        UUID key = sender instanceof Player player ? player.getUniqueId() : CONSOLE;
+        Session session = sessions.compute(key, (k, current) ->
+                current != null && page > 1 && current.target.equals(targetUUID) ? current : new Session(targetUUID));
+
+        Map.Entry<Integer, HistoryEntry> cursor = page > 1 ? session.cursors.floorEntry(page - 1) : null;
+        HistoryEntry after = cursor != null ? cursor.getValue() : null;
+        int skip = page - 1 - (cursor != null ? cursor.getKey() : 0);
+
+        economyManager.getHistory(targetUUID, after, skip)
+                .thenAccept(result -> {
+                    if (!result.entries().isEmpty()) {
+                        session.remember(page, result.entries().get(result.entries().size() - 1));
+                    }
+                    dispatcher.send(sender, formatPage(sender, targetUUID, targetName, page, result));
+                })
+                .exceptionally(throwable -> {
+                    dispatcher.send(sender, ChatColor.RED + "Errore durante il recupero dello storico!");
+                    throwable.printStackTrace();
+                    return null;
+                });
+    }
+
+    /**
+     * Righe di una pagina dello storico
+     */
+    private List<String> formatPage(CommandSender sender, UUID targetUUID, String targetName, int page, HistoryPage result) {
+        boolean own = sender instanceof Player player && player.getUniqueId().equals(targetUUID);
+
+        if (result.entries().isEmpty()) {
+            if (page == 1) {
+                return List.of(ChatColor.YELLOW + (own ? "Non hai ancora nessuna transazione!"
+                        : "Nessuna transazione per " + targetName + "!"));
+            }
+            return List.of(ChatColor.RED + "La pagina " + page + " non esiste!");
+        }
+
+        String currencyName = economyManager.getCurrencyName();
+        List<String> lines = new ArrayList<>();
+
+        lines.add(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        lines.add(ChatColor.YELLOW + "  " + ChatColor.BOLD + "STORICO TRANSAZIONI" +
+                (own ? "" : ChatColor.YELLOW + " di " + targetName) + ChatColor.GRAY + " (pagina " + page + ")");
+        lines.add("");
+
+        for (HistoryEntry entry : result.entries()) {
+            boolean outgoing = targetUUID.equals(entry.sender());
+            UUID other = outgoing ? entry.receiver() : entry.sender();
+
+            String amount = (outgoing ? ChatColor.RED + "-" : ChatColor.GREEN + "+") +
+                    economyManager.formatAmount(Money.toDecimal(entry.amount())) + " " + currencyName;
+            String detail = other != null
+                    ? (outgoing ? "a " : "da ") + nameOf(other)
+                    : entry.type();
+
+            lines.add(ChatColor.GRAY + "  " + DATE_FORMAT.format(Instant.ofEpochMilli(entry.timestamp())) +
+                    " " + amount + ChatColor.GRAY + " » " + ChatColor.WHITE + detail);
+        }
+
+        if (result.hasMore()) {
+            lines.add("");
+            lines.add(ChatColor.YELLOW + "  Pagina successiva: " + ChatColor.WHITE +
+                    "/paylog " + (own ? "" : targetName + " ") + (page + 1));
+        }
+
+        lines.add("");
+        lines.add(ChatColor.GOLD + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        return lines;
+    }
+
+    private String nameOf(UUID playerUUID) {
+        String name = economyManager.getPlayerName(playerUUID);
+        return name != null ? name : playerUUID.toString();
+    }
+
+    private static boolean isNumber(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+
+    /**
+     * Dimentica i cursori di un giocatore disconnesso
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 1 && sender.hasPermission("economy.paylog.others")) {
+            UUID senderUUID = sender instanceof Player player ? player.getUniqueId() : null;
+            return economyManager.completePlayerNames(senderUUID, sender.getName(), args[0]);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Storico sfogliato da un sender: ultima voce di ogni pagina già mostrata
+     */
+    private static final class Session {
+        final UUID target;
+        final ConcurrentSkipListMap<Integer, HistoryEntry> cursors = new ConcurrentSkipListMap<>();
+
+        Session(UUID target) {
+            this.target = target;
+        }
+
+        void remember(int page, HistoryEntry last) {
+            cursors.put(page, last);
+            if (cursors.size() > MAX_CURSORS) {
+                cursors.pollFirstEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.marskernel.trialEconomy.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal write-ahead dei bilanciamenti modificati in memoria tra un flush e l'altro.
+ *
+ * Ogni modifica aggiunge un record binario di dimensione fissa (UUID, nuovo bilancio in centesimi,
+ * numero di sequenza, CRC32C) ad un segmento mappato in memoria: l'append è una prenotazione
+ * atomica della posizione seguita da scritture nel buffer, senza system call né lock globali.
+ * Un thread dedicato forza i segmenti su disco (group commit): tutte le operazioni in attesa
+ * vengono confermate da un unico fsync.
+ *
+ * Checkpoint: prima di un flush il segmento attivo viene sigillato e le nuove modifiche vanno
+ * in un altro segmento; se il flush salva tutto, i segmenti sigillati tornano liberi e vengono
+ * riusati (mai cancellati: un file mappato non si può eliminare su tutti i sistemi).
+ * All'avvio i record validi dei segmenti non liberi vengono riapplicati a player_balances.
+ *
+ * Formato del segmento: intestazione di 64 byte (magic, versione, stato, sequenza base) seguita
+ * da record di 36 byte. Sono validi solo i record con CRC corretto e sequenza maggiore della base:
+ * i record rimasti da un uso precedente del segmento hanno sequenze più basse e vengono ignorati.
+ */
+public class BalanceJournal {
+
+    private static final int MAGIC = 0x54454a31; // "TEJ1"
+    private static final int VERSION = 1;
+
+    private static final int STATE_FREE = 0;
+    private static final int STATE_ACTIVE = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int STATE_OFFSET = 8;
+    private static final int BASE_OFFSET = 16;
+
+    // sequenza (8) + UUID (16) + bilancio (8) + CRC (4)
+    private static final int RECORD_SIZE = 36;
+    private static final int CRC_OFFSET = 32;
+
+    // Un singolo MappedByteBuffer è limitato a 2 GiB
+    private static final int MAX_SEGMENT_SIZE_MB = 1024;
+
+    private final DatabaseManager database;
+    private final Logger logger;
+    private final File directory;
+
+    private final boolean enabled;
+    private final boolean waitForSync;
+    private final long syncIntervalNanos;
+    private final int segmentSize;
+
+    // Ultimo numero di sequenza assegnato, crescente anche tra un riavvio e l'altro
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Segmenti con record non ancora coperti da un checkpoint (dal più vecchio) e segmenti riusabili.
+    // Modificati solo con il lock dell'oggetto.
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private final Deque<Segment> free = new ArrayDeque<>();
+    private final List<Segment> all = new ArrayList<>();
+    private volatile Segment current;
+
+    // Group commit
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+    private final Thread syncThread;
+    private volatile boolean running;
+
+    public BalanceJournal(DatabaseManager database, File dataFolder, Logger logger,
+                          boolean enabled, boolean waitForSync, long syncIntervalMillis, int segmentSizeMb) {
+        this.database = database;
+        this.logger = logger;
+        this.directory = new File(dataFolder, "journal");
+
+        this.enabled = enabled;
+        this.waitForSync = waitForSync;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncIntervalMillis));
+        if (segmentSizeMb < 1 || segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+            int clamped = Math.max(1, Math.min(segmentSizeMb, MAX_SEGMENT_SIZE_MB));
+            logger.warning("journal.segment-size-mb non valido: " + segmentSizeMb + " (1-" + MAX_SEGMENT_SIZE_MB +
+                    "), uso " + clamped);
+            segmentSizeMb = clamped;
+        }
+        this.segmentSize = HEADER_SIZE + RECORD_SIZE * (int) (segmentSizeMb * 1024L * 1024L / RECORD_SIZE);
+
+        this.syncThread = new Thread(this::runSync, "TrialEconomy-Journal");
+        this.syncThread.setDaemon(true);
+    }
+
+    /**
+     * Riapplica al database le modifiche rimaste nel journal da un'esecuzione precedente,
+     * poi avvia il journal. Se la riapplicazione fallisce i segmenti restano intatti e
+     * l'avvio viene interrotto: partire con bilanciamenti vecchi li perderebbe al primo checkpoint.
+     */
+    public void start() throws IOException, SQLException {
+        if (!enabled) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("impossibile creare " + directory.getPath());
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".bin"));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                all.add(Segment.open(file, segmentSize));
+            }
+        }
+
+        replay();
+
+        for (Segment segment : all) {
+            segment.release();
+            free.add(segment);
+        }
+        current = activate();
+
+        running = true;
+        syncThread.start();
+    }
+
+    private void replay() throws SQLException {
+        Map<UUID, long[]> latest = new HashMap<>();
+        long maxSequence = 0;
+
+        for (Segment segment : all) {
+            long base = segment.buffer.getLong(BASE_OFFSET);
+            boolean active = segment.buffer.getInt(STATE_OFFSET) == STATE_ACTIVE;
+
+            for (int offset = HEADER_SIZE; offset + RECORD_SIZE <= segment.capacity; offset += RECORD_SIZE) {
+                if (!segment.isValid(offset)) {
+                    continue;
+                }
+
+                // Anche i record dei segmenti liberi contano per la sequenza: non devono mai tornare validi
+                long recordSequence = segment.buffer.getLong(offset);
+                maxSequence = Math.max(maxSequence, recordSequence);
+
+                if (active && recordSequence > base) {
+                    UUID uuid = new UUID(segment.buffer.getLong(offset + 8), segment.buffer.getLong(offset + 16));
+                    long[] previous = latest.get(uuid);
+                    if (previous == null || previous[0] < recordSequence) {
+                        latest.put(uuid, new long[]{recordSequence, segment.buffer.getLong(offset + 24)});
+                    }
+                }
+            }
+            maxSequence = Math.max(maxSequence, base);
+        }
+        sequence.set(maxSequence);
+
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Long> balances = new HashMap<>();
+        for (Map.Entry<UUID, long[]> entry : latest.entrySet()) {
+            balances.put(entry.getKey(), entry.getValue()[1]);
+        }
+        int missing = database.storage().replay(balances);
+
+        logger.warning("Journal: riapplicati " + latest.size() + " bilanciamenti non salvati prima dell'ultimo arresto");
+        if (missing > 0) {
+            logger.warning("Journal: " + missing + " account non presenti nel database, bilancio non riapplicato");
+        }
+    }
+
+    /**
+     * Registra il nuovo bilancio di un account. Va chiamato con il lock dell'account acquisito,
+     * così i numeri di sequenza di uno stesso account seguono l'ordine delle modifiche.
+     */
+    public void append(UUID uuid, long balance) {
+        if (!enabled) {
+            return;
+        }
+
+        while (true) {
+            Segment segment = current;
+            segment.writers.incrementAndGet();
+            if (segment.sealed) {
+                segment.writers.decrementAndGet();
+                Thread.onSpinWait();
+                continue;
+            }
+
+            long offset = segment.position.getAndAdd(RECORD_SIZE);
+            if (offset + RECORD_SIZE > segment.capacity) {
+                // Segmento pieno: passa al successivo senza attendere un checkpoint
+                segment.writers.decrementAndGet();
+                rotate(segment);
+                continue;
+            }
+
+            segment.write((int) offset, sequence.incrementAndGet(), uuid, balance);
+            segment.dirty.set(true);
+            segment.writers.decrementAndGet();
+            return;
+        }
+    }
+
+    /**
+     * Future completato quando tutte le modifiche registrate finora sono su disco.
+     * Con journal.wait-for-sync disabilitato è già completato (fsync ogni sync-interval-ms).
+     */
+    public CompletableFuture<Void> sync() {
+        if (!enabled || !waitForSync || !running) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        waiters.add(future);
+        LockSupport.unpark(syncThread);
+        return future;
+    }
+
+    /**
+     * Inizio di un checkpoint: sigilla il segmento attivo, le modifiche successive vanno nel prossimo.
+     * @return Segmento da passare a {@link #release} se il flush salva tutti gli account modificati
+     */
+    public synchronized Object checkpoint() {
+        if (!enabled) {
+            return null;
+        }
+
+        if (current.position.get() > HEADER_SIZE) {
+            rotate(current);
+        }
+        return current;
+    }
+
+    /**
+     * Fine di un checkpoint riuscito: forza su disco il database e libera i segmenti sigillati
+     * prima di {@link #checkpoint}. Se il database non conferma, i segmenti restano per il prossimo.
+     */
+    public void release(Object checkpoint) {
+        if (!enabled || checkpoint == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (sealed.isEmpty() || sealed.peekFirst() == checkpoint) {
+                return;
+            }
+        }
+
+        try {
+            database.storage().sync();
+        } catch (SQLException e) {
+            logger.warning("Journal: checkpoint rimandato, sincronizzazione del database fallita: " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            while (!sealed.isEmpty() && sealed.peekFirst() != checkpoint) {
+                Segment segment = sealed.pollFirst();
+                // Un writer sospeso dopo il controllo del sigillo potrebbe non aver ancora finito
+                while (segment.writers.get() > 0) {
+                    Thread.onSpinWait();
+                }
+                segment.release();
+                free.add(segment);
+            }
+        }
+    }
+
+    /**
+     * Sigilla il segmento e ne attiva un altro (riusato o nuovo)
+     */
+    private synchronized void rotate(Segment expected) {
+        if (current != expected) {
+            return;
+        }
+
+        expected.sealed = true;
+        sealed.addLast(expected);
+        current = activate();
+    }
+
+    private Segment activate() {
+        Segment segment = free.pollFirst();
+        if (segment == null) {
+            try {
+                segment = Segment.open(new File(directory, String.format("segment-%06d.bin", all.size())), segmentSize);
+            } catch (IOException e) {
+                // Senza un nuovo segmento si continua su quello attuale, ormai pieno: il journal si ferma
+                throw new IllegalStateException("Impossibile creare un segmento del journal: " + e.getMessage(), e);
+            }
+            all.add(segment);
+        }
+
+        segment.activate(sequence.get());
+        return segment;
+    }
+
+    /**
+     * Thread del group commit: un fsync per tutte le operazioni accodate nel frattempo
+     */
+    private void runSync() {
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+
+        while (running) {
+            if (waiters.isEmpty()) {
+                LockSupport.parkNanos(this, syncIntervalNanos);
+            }
+
+            // Le operazioni accodate prima del force hanno già scritto i loro record
+            CompletableFuture<Void> waiter;
+            while ((waiter = waiters.poll()) != null) {
+                batch.add(waiter);
+            }
+
+            force();
+            batch.forEach(future -> future.complete(null));
+            batch.clear();
+        }
+    }
+
+    private void force() {
+        List<Segment> segments;
+        synchronized (this) {
+            segments = List.copyOf(all);
+        }
+
+        for (Segment segment : segments) {
+            if (segment.dirty.getAndSet(false)) {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    /**
+     * Ferma il group commit dopo un ultimo fsync.
+     * I segmenti non liberati dal flush finale verranno riapplicati al prossimo avvio.
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(syncThread);
+        try {
+            syncThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        force();
+        CompletableFuture<Void> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            waiter.complete(null);
+        }
+
+        synchronized (this) {
+            for (Segment segment : all) {
+                try {
+                    segment.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Segmenti con modifiche non ancora coperte da un checkpoint (attivo escluso)
+     */
+    public synchronized int getSealedSegments() {
+        return sealed.size();
+    }
+
+    /**
+     * File del journal mappato in memoria
+     */
+    private static final class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final AtomicLong position = new AtomicLong(HEADER_SIZE);
+        final AtomicInteger writers = new AtomicInteger();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        volatile boolean sealed;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment open(File file, int size) throws IOException {
+            boolean created = !file.exists();
+            FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+            // Un segmento esistente mantiene la sua dimensione anche se la configurazione è cambiata
+            long length = created ? size : Math.max(HEADER_SIZE, channel.size());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+
+            if (created || buffer.getInt(0) != MAGIC) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(STATE_OFFSET, STATE_FREE);
+                buffer.putLong(BASE_OFFSET, 0);
+            }
+            return new Segment(channel, buffer);
+        }
+
+        void activate(long baseSequence) {
+            buffer.putLong(BASE_OFFSET, baseSequence);
+            buffer.putInt(STATE_OFFSET, STATE_ACTIVE);
+            position.set(HEADER_SIZE);
+            sealed = false;
+            dirty.set(true);
+        }
+
+        void release() {
+            buffer.putInt(STATE_OFFSET, STATE_FREE);
+            buffer.force();
+        }
+
+        void write(int offset, long recordSequence, UUID uuid, long balance) {
+            buffer.putLong(offset, recordSequence);
+            buffer.putLong(offset + 8, uuid.getMostSignificantBits());
+            buffer.putLong(offset + 16, uuid.getLeastSignificantBits());
+            buffer.putLong(offset + 24, balance);
+            buffer.putInt(offset + CRC_OFFSET, crc(offset));
+        }
+
+        boolean isValid(int offset) {
+            return buffer.getLong(offset) != 0 && buffer.getInt(offset + CRC_OFFSET) == crc(offset);
+        }
+
+        private int crc(int offset) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(offset, CRC_OFFSET));
+            return (int) crc.getValue();
+        }
+    }
+}
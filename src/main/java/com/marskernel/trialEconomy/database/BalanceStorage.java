@@ -0,0 +1,121 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.database.DatabaseManager.AccountRowConsumer;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceListener;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceRecord;
+import com.marskernel.trialEconomy.database.DatabaseManager.BatchSaveResult;
+import com.marskernel.trialEconomy.database.DatabaseManager.TopBalances;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Archivio degli account: UUID, nome e bilancio in centesimi.
+ *
+ * Due implementazioni, scelte con database.balance-storage: {@link JdbcBalanceStorage} (tabella player_balances
+ * via SQL, predefinita) e {@link MVStoreBalanceStorage} (mappe chiave-valore MVStore, senza SQL né pool).
+ * Il log transazioni e le altre tabelle restano sempre sul database H2.
+ *
+ * I metodi sono sincroni e vengono chiamati dal DB executor di {@link DatabaseManager}. Quelli usati
+ * dal caricamento e dal salvataggio gestiscono da sé gli errori (log e valore di ripiego, come prima
+ * dell'estrazione); gli altri li propagano come SQLException.
+ */
+interface BalanceStorage {
+
+    enum Backend {
+        JDBC, MVSTORE
+    }
+
+    Backend backend();
+
+    /**
+     * Bilancio di un account, creato con defaultBalance se non esiste.
+     * Un errore viene propagato: un bilancio predefinito al posto di quello reale finirebbe in cache e poi nel database
+     */
+    long loadBalance(UUID playerUUID, String playerName, long defaultBalance) throws SQLException;
+
+    /**
+     * Bilanciamenti di più account, letti a blocchi di chunkSize; gli account mancanti vengono creati.
+     * Gli account che non è stato possibile caricare o creare non compaiono nel risultato.
+     */
+    Map<UUID, Long> loadBalances(Map<UUID, String> players, long defaultBalance, int chunkSize);
+
+    boolean saveBalance(BalanceRecord record);
+
+    /**
+     * Salva i record a blocchi di batchSize, ognuno confermato separatamente
+     */
+    BatchSaveResult saveBalances(List<BalanceRecord> records, int batchSize);
+
+    /**
+     * UUID dell'account con quel nome (case-insensitive), o null
+     */
+    UUID findByName(String playerName);
+
+    /**
+     * @return Numero di account letti, o -1 se la lettura si è interrotta per un errore
+     */
+    int streamAccounts(AccountRowConsumer consumer);
+
+    TopBalances loadTopBalances(int offset, int limit);
+
+    /**
+     * Applica un'operazione di massa a tutti gli account tranne quelli in skip, a blocchi di chunkSize account.
+     * I blocchi già confermati restano applicati anche se uno successivo fallisce: l'errore è una
+     * {@link BulkOperation.PartialFailure} con il loro conteggio, oppure l'errore originale se nessun account
+     * è stato modificato.
+     */
+    BulkOperation.Result applyBulk(BulkOperation operation, Collection<UUID> skip, int chunkSize,
+                                   BalanceListener listener) throws SQLException;
+
+    /**
+     * Riapplica i bilanci del journal agli account esistenti
+     * @return Account non trovati
+     */
+    int replay(Map<UUID, Long> balances) throws SQLException;
+
+    /**
+     * Forza su disco tutte le scritture confermate
+     */
+    void sync() throws SQLException;
+
+    /**
+     * Numero di account. conn è la transazione del chiamante (usata solo dal backend JDBC).
+     */
+    long count(Connection conn) throws SQLException;
+
+    /**
+     * Visita tutti gli account, per esportazione e migrazione.
+     * conn è la transazione del chiamante: il backend JDBC legge nella stessa, coerente con il log transazioni.
+     */
+    void forEachAccount(Connection conn, AccountVisitor visitor) throws SQLException, IOException;
+
+    /**
+     * Inserisce o sostituisce un blocco di account e lo conferma (su conn per il backend JDBC)
+     */
+    void putAccounts(Connection conn, List<StoredAccount> accounts) throws SQLException;
+
+    /**
+     * Elimina tutti gli account, prima di una migrazione verso questo archivio
+     */
+    void clear() throws SQLException;
+
+    void close();
+
+    /**
+     * Account completo (lastUpdated null se l'archivio non lo conserva)
+     */
+    record StoredAccount(UUID playerUUID, String playerName, long balance, Timestamp lastUpdated) {
+    }
+
+    @FunctionalInterface
+    interface AccountVisitor {
+        void visit(StoredAccount account) throws IOException;
+    }
+}
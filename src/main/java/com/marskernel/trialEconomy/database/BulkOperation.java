@@ -0,0 +1,146 @@
+package com.marskernel.trialEconomy.database;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+
+/**
+ * Operazione applicata a tutti gli account (/eco giveall, interest, tax e le esecuzioni programmate).
+ *
+ * Lo stesso calcolo esiste in due forme: un'espressione SQL per le righe del database
+ * ({@link #newBalanceSql()}) e {@link #apply(long)} per gli account in cache. Entrambe lavorano
+ * in centesimi troncando verso il basso e limitano il risultato a max-balance.
+ *
+ * @param amount Importo in centesimi (GIVE)
+ * @param rate Frazione del bilancio, ad es. 0.015 per l'1,5% (INTEREST, TAX)
+ * @param threshold Soglia in centesimi: la tassa si applica solo alla parte eccedente (TAX)
+ * @param maxBalance Bilancio massimo in centesimi
+ */
+public record BulkOperation(Type type, long amount, BigDecimal rate, long threshold, long maxBalance) {
+
+    public enum Type {
+        GIVE("GIVEALL"), INTEREST("INTEREST"), TAX("TAX");
+
+        private final String logType;
+
+        Type(String logType) {
+            this.logType = logType;
+        }
+
+        /**
+         * Valore di transaction_type della riga di riepilogo
+         */
+        public String getLogType() {
+            return logType;
+        }
+    }
+
+    public static BulkOperation give(long amount, long maxBalance) {
+        return new BulkOperation(Type.GIVE, amount, BigDecimal.ZERO, 0, maxBalance);
+    }
+
+    public static BulkOperation interest(BigDecimal percent, long maxBalance) {
+        return new BulkOperation(Type.INTEREST, 0, toRate(percent), 0, maxBalance);
+    }
+
+    public static BulkOperation tax(BigDecimal percent, long threshold, long maxBalance) {
+        return new BulkOperation(Type.TAX, 0, toRate(percent), threshold, maxBalance);
+    }
+
+    private static BigDecimal toRate(BigDecimal percent) {
+        return percent.movePointLeft(2).stripTrailingZeros();
+    }
+
+    /**
+     * Nuovo bilancio di un account in cache (centesimi)
+     */
+    public long apply(long balance) {
+        return switch (type) {
+            case GIVE -> clamp(balance, amount);
+            case INTEREST -> balance > 0 ? clamp(balance, share(balance)) : balance;
+            case TAX -> balance > threshold ? balance - share(balance - threshold) : balance;
+        };
+    }
+
+    /**
+     * Stesso calcolo di {@link #apply(long)} sulla colonna balance (DECIMAL con 2 decimali).
+     * I valori sono numeri generati dal plugin, non testo dell'utente.
+     */
+    String newBalanceSql() {
+        String max = BigDecimal.valueOf(maxBalance, 2).toPlainString();
+        String rate = this.rate.toPlainString();
+
+        return switch (type) {
+            case GIVE -> "LEAST(" + max + ", balance + " + BigDecimal.valueOf(amount, 2).toPlainString() + ")";
+            case INTEREST -> "CASE WHEN balance > 0 THEN LEAST(" + max + ", balance + TRUNC(balance * " + rate +
+                    ", 2)) ELSE balance END";
+            case TAX -> {
+                String threshold = BigDecimal.valueOf(this.threshold, 2).toPlainString();
+                yield "CASE WHEN balance > " + threshold + " THEN balance - TRUNC((balance - " + threshold +
+                        ") * " + rate + ", 2) ELSE balance END";
+            }
+        };
+    }
+
+    /**
+     * Quota del bilancio in centesimi, troncata come TRUNC(..., 2) nel database
+     */
+    private long share(long balance) {
+        return BigDecimal.valueOf(balance).multiply(rate).setScale(0, RoundingMode.DOWN)
+                .min(BigDecimal.valueOf(maxBalance)).longValue();
+    }
+
+    private long clamp(long balance, long delta) {
+        return delta > maxBalance - balance ? maxBalance : balance + delta;
+    }
+
+    /**
+     * Esito di un'operazione di massa: account modificati e variazione totale in centesimi
+     */
+    public record Result(long accounts, long total) {
+
+        public Result plus(Result other) {
+            return new Result(accounts + other.accounts, total + other.total);
+        }
+    }
+
+    /**
+     * Operazione interrotta dopo aver già modificato degli account: ripeterla li modificherebbe due volte
+     */
+    public static final class PartialFailure extends SQLException {
+
+        private final Result applied;
+
+        public PartialFailure(Result applied, Throwable cause) {
+            super("interrotta dopo " + applied.accounts() + " account: " + cause.getMessage(), cause);
+            this.applied = applied;
+        }
+
+        /**
+         * Errore da propagare per un'operazione interrotta: PartialFailure solo se ha già modificato degli account,
+         * altrimenti l'errore originale (l'operazione può essere ripetuta)
+         */
+        public static SQLException of(Result applied, SQLException cause) {
+            return applied.accounts() > 0 ? new PartialFailure(applied, cause) : cause;
+        }
+
+        /**
+         * Account modificati e variazione totale prima dell'interruzione
+         */
+        public Result getApplied() {
+            return applied;
+        }
+
+        /**
+         * L'interruzione parziale nella catena delle cause, o null se l'operazione non ha modificato nulla
+         */
+        public static PartialFailure find(Throwable throwable) {
+            for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+                if (cause instanceof PartialFailure partial && partial.applied.accounts() > 0) {
+                    return partial;
+                }
+            }
+            return null;
+        }
+    }
+}
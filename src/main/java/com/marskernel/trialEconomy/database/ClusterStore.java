@@ -0,0 +1,558 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.manager.Money;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Accesso a player_balances quando più server condividono lo stesso database (cluster.enabled).
+ *
+ * Ogni riga ha una colonna version incrementata ad ogni scrittura. Ogni nodo salva solo la differenza
+ * tra il bilancio in cache e quello letto (base, alla versione nota) con un UPDATE condizionato
+ * sulla versione: se un altro nodo ha scritto nel frattempo l'UPDATE non trova la riga, il bilancio
+ * viene riletto e la differenza riapplicata, fino a cluster.max-retries tentativi.
+ * I trasferimenti sono un'unica transazione di UPDATE relativi (balance = balance - ?), con il controllo
+ * dei fondi nella condizione: nessun nodo può portare un bilancio nel database sotto zero o oltre il massimo.
+ *
+ * Ogni scrittura aggiunge una riga a balance_changes (UUID, nodo, versione). Gli altri nodi la leggono
+ * a intervalli regolari oltre il proprio watermark e ricaricano gli account in cache diventati vecchi.
+ * Una riga senza UUID indica che sono cambiati tutti gli account (operazioni di massa, importazione).
+ *
+ * I metodi sono sincroni e vengono chiamati dal DB executor di {@link DatabaseManager}.
+ */
+public class ClusterStore {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int POLL_LIMIT = 1000;
+    private static final long PRUNE_INTERVAL = 60_000; // In millisecondi
+
+    // Una riga di balance_changes può diventare visibile dopo righe con seq maggiore (commit in ordine diverso):
+    // il watermark avanza solo oltre le righe più vecchie di questo intervallo, le più recenti vengono ricordate
+    private static final int SETTLE_SECONDS = 5;
+
+    // Stato SQL di un deadlock o di un timeout sul lock di una riga: la transazione può essere ripetuta
+    private static final String DEADLOCK = "40001";
+    private static final String LOCK_TIMEOUT = "HYT00";
+
+    private static final String SELECT_VERSIONED = "SELECT player_name, balance, version FROM player_balances WHERE player_uuid = ?";
+
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO player_balances (player_uuid, player_name, balance, version) VALUES (?, ?, ?, 0)";
+
+    private static final String COMPARE_AND_SET = """
+            UPDATE player_balances SET balance = ?, player_name = ?, version = version + 1, last_updated = CURRENT_TIMESTAMP
+            WHERE player_uuid = ? AND version = ?
+            """;
+
+    private static final String WITHDRAW = """
+            SELECT balance, version FROM FINAL TABLE (
+                UPDATE player_balances SET balance = balance - ?, version = version + 1, last_updated = CURRENT_TIMESTAMP
+                WHERE player_uuid = ? AND balance + LEAST(?, 0) >= ?)
+            """;
+
+    private static final String DEPOSIT = """
+            SELECT balance, version FROM FINAL TABLE (
+                UPDATE player_balances SET balance = balance + ?, version = version + 1, last_updated = CURRENT_TIMESTAMP
+                WHERE player_uuid = ? AND balance + GREATEST(?, 0) + ? <= ?)
+            """;
+
+    private static final String INSERT_CHANGE = "INSERT INTO balance_changes (player_uuid, node_id, version) VALUES (?, ?, ?)";
+
+    private static final String SELECT_CHANGES = """
+            SELECT seq, player_uuid, node_id, version, changed_at < DATEADD(SECOND, ?, CURRENT_TIMESTAMP)
+            FROM balance_changes WHERE seq > ? ORDER BY seq LIMIT ?
+            """;
+
+    private static final String PRUNE_CHANGES = "DELETE FROM balance_changes WHERE changed_at < DATEADD(MINUTE, ?, CURRENT_TIMESTAMP)";
+
+    private final DatabaseManager database;
+    private final Logger logger;
+    private final String nodeId;
+    private final int maxRetries;
+    private final int retentionMinutes;
+
+    // Ultima riga del feed oltre la quale sono state lette tutte le modifiche, e righe successive già lette
+    private long watermark;
+    private final Set<Long> seen = new HashSet<>();
+    private long lastPrune;
+
+    ClusterStore(DatabaseManager database, Logger logger, String nodeId, int maxRetries, int retentionMinutes) {
+        this.database = database;
+        this.logger = logger;
+        this.nodeId = nodeId;
+        this.maxRetries = Math.max(1, maxRetries);
+        this.retentionMinutes = Math.max(1, retentionMinutes);
+    }
+
+    /**
+     * Parte dalla fine del feed: le modifiche precedenti sono già nei bilanci letti dal database
+     */
+    synchronized void start() throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM balance_changes");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            watermark = rs.getLong(1);
+        }
+        logger.info("Modalità cluster attiva (nodo " + nodeId + ")");
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Bilancio e versione di un account, creato con defaultBalance (versione 0) se non esiste
+     */
+    VersionedBalance load(UUID playerUUID, String playerName, long defaultBalance) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            VersionedBalance balance = select(conn, playerUUID);
+            if (balance != null) {
+                return balance;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_ACCOUNT)) {
+                stmt.setString(1, playerUUID.toString());
+                stmt.setString(2, playerName);
+                stmt.setBigDecimal(3, BigDecimal.valueOf(defaultBalance, 2));
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                // Creato nel frattempo da un altro nodo
+                balance = select(conn, playerUUID);
+                if (balance != null) {
+                    return balance;
+                }
+                throw e;
+            }
+
+            insertChanges(conn, Map.of(playerUUID, 0L));
+            logger.info("Nuovo account creato per " + playerName + " con bilancio " + BigDecimal.valueOf(defaultBalance, 2));
+            return new VersionedBalance(playerName, defaultBalance, 0);
+        }
+    }
+
+    private static VersionedBalance select(Connection conn, UUID playerUUID) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_VERSIONED)) {
+            stmt.setString(1, playerUUID.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readBalance(rs, 1) : null;
+            }
+        }
+    }
+
+    private static VersionedBalance readBalance(ResultSet rs, int column) throws SQLException {
+        return new VersionedBalance(rs.getString(column), Money.toMinor(rs.getBigDecimal(column + 1)),
+                rs.getLong(column + 2));
+    }
+
+    /**
+     * Bilancio e versione attuali degli account esistenti tra quelli richiesti
+     */
+    Map<UUID, VersionedBalance> read(Collection<UUID> playerUUIDs) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            return read(conn, playerUUIDs);
+        }
+    }
+
+    private static Map<UUID, VersionedBalance> read(Connection conn, Collection<UUID> playerUUIDs) throws SQLException {
+        Map<UUID, VersionedBalance> balances = new HashMap<>();
+        List<UUID> uuids = new ArrayList<>(playerUUIDs);
+
+        for (int from = 0; from < uuids.size(); from += CHUNK_SIZE) {
+            List<UUID> chunk = uuids.subList(from, Math.min(uuids.size(), from + CHUNK_SIZE));
+            String query = "SELECT player_uuid, player_name, balance, version FROM player_balances WHERE player_uuid IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i).toString());
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        balances.put(UUID.fromString(rs.getString(1)), readBalance(rs, 2));
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Salva i record a blocchi di batchSize, ognuno in una transazione.
+     *
+     * Per ogni record l'UPDATE è condizionato sulla versione letta: in caso di conflitto il bilancio viene
+     * riletto e il nuovo valore diventa bilancio attuale + (balance - base), o balance per i record assoluti
+     * (/eco set), limitato tra 0 e maxBalance. I record ancora in conflitto dopo cluster.max-retries tentativi
+     * o di un blocco fallito vengono restituiti tra quelli da ritentare.
+     */
+    SaveResult save(List<VersionedRecord> records, int batchSize, long maxBalance) {
+        List<SavedBalance> saved = new ArrayList<>(records.size());
+        List<VersionedRecord> failed = new ArrayList<>();
+        int conflicts = 0;
+        int size = Math.max(1, batchSize);
+
+        // Righe bloccate in ordine di UUID, come nei trasferimenti: nessun deadlock tra due nodi
+        List<VersionedRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(record -> record.playerUUID().toString()));
+
+        for (int from = 0; from < sorted.size(); from += size) {
+            List<VersionedRecord> chunk = sorted.subList(from, Math.min(sorted.size(), from + size));
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    ChunkResult result = saveChunk(chunk, maxBalance);
+                    saved.addAll(result.saved());
+                    failed.addAll(result.conflicted());
+                    conflicts += result.conflicts();
+                    break;
+                } catch (SQLException e) {
+                    if (isRetryable(e) && attempt < maxRetries) {
+                        continue;
+                    }
+                    logger.severe("Errore durante il salvataggio di " + chunk.size() + " bilanciamenti: " + e.getMessage());
+                    failed.addAll(chunk);
+                    break;
+                }
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            logger.warning(failed.size() + " bilanciamenti non salvati per conflitti o errori, verranno ritentati");
+        }
+        return new SaveResult(saved, failed, conflicts);
+    }
+
+    private ChunkResult saveChunk(List<VersionedRecord> chunk, long maxBalance) throws SQLException {
+        List<SavedBalance> saved = new ArrayList<>(chunk.size());
+        int conflicts = 0;
+
+        // Nuovo bilancio e versione attesa di ogni record, aggiornati dopo ogni conflitto
+        Map<UUID, VersionedRecord> records = new HashMap<>();
+        Map<UUID, long[]> attempts = new LinkedHashMap<>();
+        for (VersionedRecord record : chunk) {
+            records.put(record.playerUUID(), record);
+            attempts.put(record.playerUUID(), new long[]{record.balance(), record.version()});
+        }
+
+        try (Connection conn = database.getConnection()) {
+            // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+            conn.setAutoCommit(false);
+
+            try {
+                for (int attempt = 0; attempt < maxRetries && !attempts.isEmpty(); attempt++) {
+                    List<UUID> pending = new ArrayList<>(attempts.keySet());
+                    int[] updated;
+
+                    try (PreparedStatement stmt = conn.prepareStatement(COMPARE_AND_SET)) {
+                        for (UUID uuid : pending) {
+                            long[] target = attempts.get(uuid);
+                            stmt.setBigDecimal(1, BigDecimal.valueOf(target[0], 2));
+                            stmt.setString(2, records.get(uuid).playerName());
+                            stmt.setString(3, uuid.toString());
+                            stmt.setLong(4, target[1]);
+                            stmt.addBatch();
+                        }
+                        updated = stmt.executeBatch();
+                    }
+
+                    List<UUID> conflicted = new ArrayList<>();
+                    for (int i = 0; i < pending.size(); i++) {
+                        UUID uuid = pending.get(i);
+                        if (updated[i] > 0) {
+                            long[] target = attempts.remove(uuid);
+                            saved.add(new SavedBalance(uuid, target[0], target[1] + 1));
+                        } else {
+                            conflicted.add(uuid);
+                        }
+                    }
+
+                    if (conflicted.isEmpty()) {
+                        break;
+                    }
+
+                    // Un altro nodo ha scritto dopo la lettura: riapplica la differenza al bilancio attuale
+                    Map<UUID, VersionedBalance> fresh = read(conn, conflicted);
+                    for (UUID uuid : conflicted) {
+                        VersionedRecord record = records.get(uuid);
+                        VersionedBalance current = fresh.get(uuid);
+
+                        if (current == null) {
+                            // Account cancellato: ricreato con il bilancio in cache
+                            try (PreparedStatement stmt = conn.prepareStatement(INSERT_ACCOUNT)) {
+                                stmt.setString(1, uuid.toString());
+                                stmt.setString(2, record.playerName());
+                                stmt.setBigDecimal(3, BigDecimal.valueOf(record.balance(), 2));
+                                stmt.executeUpdate();
+                            }
+                            attempts.remove(uuid);
+                            saved.add(new SavedBalance(uuid, record.balance(), 0));
+                            continue;
+                        }
+
+                        long target = record.absolute() ? record.balance() : current.balance() + record.balance() - record.base();
+                        long clamped = Math.max(0, Math.min(maxBalance, target));
+                        if (clamped != target) {
+                            conflicts++;
+                            logger.warning("Conflitto su " + record.playerName() + ": bilancio " +
+                                    BigDecimal.valueOf(target, 2) + " limitato a " + BigDecimal.valueOf(clamped, 2));
+                        }
+                        attempts.put(uuid, new long[]{clamped, current.version()});
+                    }
+                }
+
+                Map<UUID, Long> versions = new HashMap<>();
+                for (SavedBalance balance : saved) {
+                    versions.put(balance.playerUUID(), balance.version());
+                }
+                insertChanges(conn, versions);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        List<VersionedRecord> conflicted = new ArrayList<>(attempts.size());
+        for (UUID uuid : attempts.keySet()) {
+            conflicted.add(records.get(uuid));
+        }
+        return new ChunkResult(saved, conflicted, conflicts);
+    }
+
+    private record ChunkResult(List<SavedBalance> saved, List<VersionedRecord> conflicted, int conflicts) {
+    }
+
+    /**
+     * Trasferisce amount dal mittente al destinatario in un'unica transazione, con UPDATE relativi.
+     * pending è la differenza non ancora salvata dalla cache di questo nodo: contano solo gli addebiti
+     * del mittente e gli accrediti del destinatario, così il bilancio nel database resta sempre
+     * tra 0 e maxBalance anche prima del flush. Le righe vengono bloccate in ordine di UUID;
+     * deadlock e timeout vengono ritentati fino a cluster.max-retries volte.
+     */
+    TransferOutcome transfer(UUID sender, long senderPending, UUID receiver, long receiverPending,
+                             long amount, long maxBalance) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transferOnce(sender, senderPending, receiver, receiverPending, amount, maxBalance);
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isRetryable(SQLException e) {
+        return DEADLOCK.equals(e.getSQLState()) || LOCK_TIMEOUT.equals(e.getSQLState());
+    }
+
+    private TransferOutcome transferOnce(UUID sender, long senderPending, UUID receiver, long receiverPending,
+                                         long amount, long maxBalance) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                VersionedBalance withdrawn = null;
+                VersionedBalance deposited = null;
+                boolean senderFirst = sender.toString().compareTo(receiver.toString()) < 0;
+
+                for (int step = 0; step < 2; step++) {
+                    if (senderFirst == (step == 0)) {
+                        withdrawn = update(conn, WITHDRAW, amount, sender, senderPending, amount);
+                        if (withdrawn == null) {
+                            conn.rollback();
+                            return new TransferOutcome(TransferOutcome.Status.INSUFFICIENT_FUNDS, null, null);
+                        }
+                    } else {
+                        deposited = update(conn, DEPOSIT, amount, receiver, receiverPending, amount, maxBalance);
+                        if (deposited == null) {
+                            conn.rollback();
+                            return new TransferOutcome(TransferOutcome.Status.RECEIVER_LIMIT, null, null);
+                        }
+                    }
+                }
+
+                insertChanges(conn, Map.of(sender, withdrawn.version(), receiver, deposited.version()));
+                conn.commit();
+                return new TransferOutcome(TransferOutcome.Status.APPLIED, withdrawn, deposited);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static VersionedBalance update(Connection conn, String sql, long amount, UUID playerUUID,
+                                           long... guard) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, BigDecimal.valueOf(amount, 2));
+            stmt.setString(2, playerUUID.toString());
+            for (int i = 0; i < guard.length; i++) {
+                stmt.setBigDecimal(3 + i, BigDecimal.valueOf(guard[i], 2));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next()
+                        ? new VersionedBalance(null, Money.toMinor(rs.getBigDecimal(1)), rs.getLong(2))
+                        : null;
+            }
+        }
+    }
+
+    /**
+     * Segnala agli altri nodi che tutti gli account sono cambiati.
+     * bumpVersions incrementa anche la versione di ogni account, per le scritture che non lo fanno da sé.
+     */
+    void publishAll(boolean bumpVersions) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (bumpVersions) {
+                    try (PreparedStatement stmt = conn.prepareStatement("UPDATE player_balances SET version = version + 1")) {
+                        stmt.executeUpdate();
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_CHANGE)) {
+                    stmt.setString(1, null);
+                    stmt.setString(2, nodeId);
+                    stmt.setLong(3, 0);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void insertChanges(Connection conn, Map<UUID, Long> versions) throws SQLException {
+        if (versions.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_CHANGE)) {
+            for (Map.Entry<UUID, Long> entry : versions.entrySet()) {
+                stmt.setString(1, entry.getKey().toString());
+                stmt.setString(2, nodeId);
+                stmt.setLong(3, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Modifiche degli altri nodi non ancora lette. Ogni riga viene restituita una sola volta;
+     * quelle più vecchie di cluster.change-retention-minutes vengono cancellate ogni minuto.
+     */
+    synchronized List<BalanceChange> poll() throws SQLException {
+        List<BalanceChange> changes = new ArrayList<>();
+
+        try (Connection conn = database.getConnection()) {
+            boolean more = true;
+            while (more) {
+                int rows = 0;
+                long settled = watermark;
+                boolean pending = false;
+
+                try (PreparedStatement stmt = conn.prepareStatement(SELECT_CHANGES)) {
+                    stmt.setInt(1, -SETTLE_SECONDS);
+                    stmt.setLong(2, watermark);
+                    stmt.setInt(3, POLL_LIMIT);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            long seq = rs.getLong(1);
+                            if (!pending && rs.getBoolean(5)) {
+                                settled = seq;
+                            } else {
+                                pending = true;
+                            }
+
+                            if (seen.add(seq) && !nodeId.equals(rs.getString(3))) {
+                                String uuid = rs.getString(2);
+                                changes.add(new BalanceChange(uuid != null ? UUID.fromString(uuid) : null, rs.getLong(4)));
+                            }
+                        }
+                    }
+                }
+
+                // Le righe fino a settled non possono più comparire: non serve ricordarle
+                watermark = settled;
+                for (Iterator<Long> iterator = seen.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next() <= watermark) {
+                        iterator.remove();
+                    }
+                }
+                more = rows == POLL_LIMIT && !pending;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastPrune >= PRUNE_INTERVAL) {
+                lastPrune = now;
+                try (PreparedStatement stmt = conn.prepareStatement(PRUNE_CHANGES)) {
+                    stmt.setInt(1, -retentionMinutes);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Nome, bilancio (in centesimi) e versione di un account nel database (nome null dopo un trasferimento)
+     */
+    public record VersionedBalance(String playerName, long balance, long version) {
+    }
+
+    /**
+     * Bilancio in cache da salvare: base è il bilancio del database alla versione version,
+     * balance - base la differenza di questo nodo. absolute: balance sostituisce il valore nel database.
+     */
+    public record VersionedRecord(UUID playerUUID, String playerName, long balance, long base, long version,
+                                  boolean absolute) {
+    }
+
+    /**
+     * Bilancio scritto e nuova versione di un account salvato
+     */
+    public record SavedBalance(UUID playerUUID, long balance, long version) {
+    }
+
+    /**
+     * Esito di un salvataggio: account salvati, record da ritentare e bilanci limitati per un conflitto
+     */
+    public record SaveResult(List<SavedBalance> saved, List<VersionedRecord> failed, int conflicts) {
+    }
+
+    /**
+     * Esito di un trasferimento: bilanci e versioni scritti se applicato
+     */
+    public record TransferOutcome(Status status, VersionedBalance sender, VersionedBalance receiver) {
+
+        public enum Status {
+            APPLIED, INSUFFICIENT_FUNDS, RECEIVER_LIMIT
+        }
+    }
+
+    /**
+     * Account cambiato su un altro nodo (playerUUID null: tutti gli account)
+     */
+    public record BalanceChange(UUID playerUUID, long version) {
+    }
+}
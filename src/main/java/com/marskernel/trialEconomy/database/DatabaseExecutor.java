@@ -0,0 +1,222 @@
+package com.marskernel.trialEconomy.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Executor dedicato alle operazioni JDBC bloccanti.
+ *
+ * Sostituisce il ForkJoinPool comune (dimensionato sui core e condiviso con tutti i plugin):
+ * la concorrenza è pari alla dimensione del pool HikariCP, le operazioni in attesa sono
+ * limitate da queue-capacity e oltre quel limite vengono rifiutate con un future fallito,
+ * così un disco lento non può accumulare lavoro senza limite né affamare altri task async.
+ *
+ * Modalità:
+ * - platform: thread di piattaforma con nome "TrialEconomy-DB-N" e coda limitata
+ * - virtual: un virtual thread per operazione, concorrenza limitata da un semaforo
+ *
+ * La concorrenza segue database.pool-size anche dopo /eco reload (vedi {@link #resize}); la capacità
+ * della coda resta quella dell'avvio.
+ */
+public class DatabaseExecutor implements Executor {
+
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    private final Logger logger;
+    private final Mode mode;
+    private volatile int concurrency;
+    private final int queueCapacity;
+
+    // Modalità platform
+    private final ThreadPoolExecutor platformPool;
+
+    // Modalità virtual
+    private final ExecutorService virtualPool;
+    private final ResizableSemaphore permits;
+    private final AtomicInteger pending;
+
+    public DatabaseExecutor(Logger logger, Mode mode, int concurrency, int queueCapacity) {
+        this.logger = logger;
+        this.mode = mode;
+        this.concurrency = Math.max(1, concurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+
+        if (mode == Mode.VIRTUAL) {
+            this.platformPool = null;
+            this.virtualPool = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("TrialEconomy-DB-v", 1).factory());
+            this.permits = new ResizableSemaphore(this.concurrency);
+            this.pending = new AtomicInteger();
+        } else {
+            this.platformPool = new ThreadPoolExecutor(this.concurrency, this.concurrency,
+                    60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(this.queueCapacity), namedThreads());
+            this.platformPool.allowCoreThreadTimeOut(true);
+            this.virtualPool = null;
+            this.permits = null;
+            this.pending = null;
+        }
+    }
+
+    private static ThreadFactory namedThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "TrialEconomy-DB-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Esegue un task sul DB executor.
+     * @throws RejectedExecutionException se la coda è piena o l'executor è chiuso
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (mode == Mode.PLATFORM) {
+            platformPool.execute(task);
+            return;
+        }
+
+        // Operazioni in esecuzione + in attesa del semaforo
+        if (pending.incrementAndGet() > concurrency + queueCapacity) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("Coda del database piena (" + queueCapacity + " operazioni in attesa)");
+        }
+
+        try {
+            virtualPool.execute(() -> {
+                try {
+                    permits.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Cambia il numero di operazioni eseguite in parallelo senza toccare quelle in corso o in coda:
+     * riducendo, i thread (o i permessi) in eccesso si liberano man mano che le operazioni attive terminano
+     */
+    public synchronized void resize(int newConcurrency) {
+        int target = Math.max(1, newConcurrency);
+        int previous = concurrency;
+        if (target == previous) {
+            return;
+        }
+
+        if (mode == Mode.PLATFORM) {
+            // ThreadPoolExecutor richiede core <= max in ogni momento
+            if (target > previous) {
+                platformPool.setMaximumPoolSize(target);
+                platformPool.setCorePoolSize(target);
+            } else {
+                platformPool.setCorePoolSize(target);
+                platformPool.setMaximumPoolSize(target);
+            }
+        } else if (target > previous) {
+            permits.release(target - previous);
+        } else {
+            // I permessi possono andare in negativo: le operazioni attive li restituiscono alla fine
+            permits.reducePermits(previous - target);
+        }
+        concurrency = target;
+    }
+
+    /**
+     * Esegue un'operazione asincrona; con la coda piena restituisce un future fallito invece di lanciare
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Operazioni in attesa di un thread o di un permesso
+     */
+    public int getQueueDepth() {
+        if (mode == Mode.PLATFORM) {
+            return platformPool.getQueue().size();
+        }
+        return Math.max(0, pending.get() - getActiveCount());
+    }
+
+    /**
+     * Operazioni in esecuzione
+     */
+    public int getActiveCount() {
+        if (mode == Mode.PLATFORM) {
+            return platformPool.getActiveCount();
+        }
+        return Math.max(0, concurrency - permits.availablePermits());
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Rifiuta nuovi task e attende il completamento di quelli accodati
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        ExecutorService service = mode == Mode.PLATFORM ? platformPool : virtualPool;
+        service.shutdown();
+
+        try {
+            if (!service.awaitTermination(timeout, unit)) {
+                logger.warning("Timeout durante la chiusura del DB executor, " +
+                        service.shutdownNow().size() + " operazioni annullate");
+            }
+        } catch (InterruptedException e) {
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Semaphore espone reducePermits solo alle sottoclassi
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -1,38 +1,79 @@
 package com.marskernel.trialEconomy.database;
 
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.bukkit.configuration.ConfigurationSection;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * Gestore del database H2 con connection pooling HikariCP
  * Ottimizzato per alte prestazioni (500+ giocatori concorrenti)
+ * Tutte le operazioni JDBC girano sul {@link DatabaseExecutor} dedicato
  */
 public class DatabaseManager {
 
+    // Account copiati per blocco durante una migrazione tra archivi
+    private static final int MIGRATION_BLOCK = 1000;
+
     private final HikariDataSource dataSource;
     private final Logger logger;
-
-    public DatabaseManager(File dataFolder, Logger logger) {
+    private final BalanceStorage storage;
+    private final TransactionLogWriter logWriter;
+    private final TransactionArchiver archiver;
+    private final BalanceJournal journal;
+    private final ClusterStore cluster; // null se cluster.enabled è false
+    private final DatabaseExecutor executor;
+    private final EconomyMetrics metrics;
+
+    // Esportazione o importazione in corso (una alla volta)
+    private final AtomicBoolean dumpRunning = new AtomicBoolean();
+
+    public DatabaseManager(File dataFolder, Logger logger, ConfigurationSection settings, EconomyMetrics metrics) {
         this.logger = logger;
+        this.metrics = metrics;
 
         // Configurazione HikariCP per massime prestazioni
         HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:h2:" + new File(dataFolder, "economy").getAbsolutePath() + ";MODE=MySQL");
+        // database.url: database condiviso da più server (es. H2 in modalità server), altrimenti il file locale
+        String url = settings.getString("database.url", "");
+        config.setJdbcUrl(url == null || url.isBlank()
+                ? "jdbc:h2:" + new File(dataFolder, "economy").getAbsolutePath() + ";MODE=MySQL"
+                : url);
+        config.setUsername(settings.getString("database.username", ""));
+        config.setPassword(settings.getString("database.password", ""));
         config.setDriverClassName("org.h2.Driver");
 
         // Ottimizzazioni per alta concorrenza
-        config.setMaximumPoolSize(20); // Pool size ottimale per 500+ giocatori
-        config.setMinimumIdle(5);
+        PoolSettings pool = PoolSettings.load(settings); // 20 connessioni ottimali per 500+ giocatori
+        int poolSize = pool.poolSize();
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(pool.minIdle());
         config.setMaxLifetime(1800000); // 30 minuti
         config.setConnectionTimeout(10000); // 10 secondi
         config.setLeakDetectionThreshold(60000); // Rilevamento memory leak
@@ -44,10 +85,83 @@ public class DatabaseManager {
 
         this.dataSource = new HikariDataSource(config);
 
+        // Executor dedicato: una operazione per connessione disponibile, coda limitata
+        this.executor = new DatabaseExecutor(logger,
+                parseExecutorMode(settings.getString("database.executor", "PLATFORM")),
+                poolSize,
+                settings.getInt("database.queue-capacity", 10000));
+
         // Inizializza schema database
         initializeDatabase();
 
-        logger.info("Database H2 inizializzato con successo!");
+        // Più server sullo stesso database: versioni e feed delle modifiche esistono solo nella tabella player_balances
+        boolean clustered = settings.getBoolean("cluster.enabled", false);
+        BalanceStorage.Backend backend = parseBackend(settings.getString("database.balance-storage", "JDBC"));
+        if (clustered && backend != BalanceStorage.Backend.JDBC) {
+            logger.warning("database.balance-storage " + backend + " non supportato in modalità cluster, uso JDBC");
+            backend = BalanceStorage.Backend.JDBC;
+        }
+
+        // Archivio degli account: migrato una sola volta quando cambia database.balance-storage
+        this.storage = openStorage(dataFolder, backend);
+        try {
+            migrateStorage(dataFolder);
+        } catch (IOException | SQLException | RuntimeException e) {
+            storage.close();
+            throw new IllegalStateException("Impossibile migrare gli account verso " + storage.backend() + ": " +
+                    e.getMessage(), e);
+        }
+
+        if (clustered) {
+            String nodeId = settings.getString("cluster.node-id", "");
+            this.cluster = new ClusterStore(this, logger,
+                    nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId,
+                    settings.getInt("cluster.max-retries", 5),
+                    settings.getInt("cluster.change-retention-minutes", 10));
+            try {
+                this.cluster.start();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Impossibile leggere il feed delle modifiche: " + e.getMessage(), e);
+            }
+        } else {
+            this.cluster = null;
+        }
+
+        // Journal dei bilanciamenti: riapplica le modifiche non salvate prima di qualsiasi lettura.
+        // In modalità cluster riapplicare bilanci assoluti cancellerebbe le modifiche degli altri nodi
+        boolean journalEnabled = settings.getBoolean("journal.enabled", true);
+        if (clustered && journalEnabled) {
+            logger.info("Journal dei bilanciamenti disattivato in modalità cluster");
+            journalEnabled = false;
+        }
+        this.journal = new BalanceJournal(this, dataFolder, logger,
+                journalEnabled,
+                settings.getBoolean("journal.wait-for-sync", true),
+                settings.getLong("journal.sync-interval-ms", 50),
+                settings.getInt("journal.segment-size-mb", 16));
+        try {
+            this.journal.start();
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Impossibile riapplicare il journal dei bilanciamenti: " + e.getMessage(), e);
+        }
+
+        // Scrittore dedicato del log transazioni
+        this.logWriter = new TransactionLogWriter(this, dataFolder, logger,
+                settings.getInt("transaction-log.queue-capacity", 65536),
+                settings.getInt("transaction-log.flush-size", 500),
+                settings.getLong("transaction-log.flush-latency-ms", 250),
+                parseOverflowPolicy(settings.getString("transaction-log.overflow-policy", "SPILL")));
+        this.logWriter.start();
+
+        // Archiviazione delle voci del log oltre il periodo di conservazione
+        this.archiver = new TransactionArchiver(this, dataFolder, logger,
+                settings.getInt("transaction-log.retention-days", 90),
+                settings.getBoolean("transaction-log.archive", true),
+                settings.getLong("transaction-log.archive-interval", 6),
+                settings.getInt("transaction-log.archive-batch-size", 5000));
+        this.archiver.start();
+
+        logger.info("Database H2 inizializzato con successo! (account: " + storage.backend() + ")");
     }
 
     /**
@@ -64,8 +178,15 @@ public class DatabaseManager {
 
             CREATE INDEX IF NOT EXISTS idx_player_name ON player_balances(player_name);
 
+            ALTER TABLE player_balances ADD COLUMN IF NOT EXISTS
+                player_name_lower VARCHAR(16) GENERATED ALWAYS AS (LOWER(player_name));
+
+            CREATE INDEX IF NOT EXISTS idx_player_name_lower ON player_balances(player_name_lower);
+
+            CREATE INDEX IF NOT EXISTS idx_balance_desc ON player_balances(balance DESC, player_uuid);
+
             CREATE TABLE IF NOT EXISTS transaction_logs (
-                id INT AUTO_INCREMENT PRIMARY KEY,
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
                 sender_uuid VARCHAR(36),
                 receiver_uuid VARCHAR(36),
                 amount DECIMAL(20, 2) NOT NULL,
@@ -75,11 +196,38 @@ public class DatabaseManager {
             );
 
             CREATE INDEX IF NOT EXISTS idx_transaction_timestamp ON transaction_logs(timestamp);
+
+            CREATE INDEX IF NOT EXISTS idx_transaction_sender ON transaction_logs(sender_uuid, timestamp DESC, id DESC);
+
+            CREATE INDEX IF NOT EXISTS idx_transaction_receiver ON transaction_logs(receiver_uuid, timestamp DESC, id DESC);
+
+            CREATE TABLE IF NOT EXISTS bulk_runs (
+                name VARCHAR(64) PRIMARY KEY,
+                last_run TIMESTAMP NOT NULL
+            );
+
+            CREATE TABLE IF NOT EXISTS storage_state (
+                name VARCHAR(64) PRIMARY KEY,
+                backend VARCHAR(16) NOT NULL
+            );
+
+            ALTER TABLE player_balances ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+            CREATE TABLE IF NOT EXISTS balance_changes (
+                seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+                player_uuid VARCHAR(36),
+                node_id VARCHAR(36) NOT NULL,
+                version BIGINT NOT NULL,
+                changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            );
+
+            CREATE INDEX IF NOT EXISTS idx_balance_changes_time ON balance_changes(changed_at);
             """;
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(createTableSQL)) {
             stmt.execute();
+            migrateTransactionLogId(conn);
             logger.info("Schema database creato con successo!");
         } catch (SQLException e) {
             logger.severe("Errore durante la creazione dello schema database: " + e.getMessage());
@@ -88,137 +236,723 @@ public class DatabaseManager {
     }
 
     /**
-     * Ottiene una connessione dal pool
+     * Porta a BIGINT l'id di transaction_logs nei database creati con INT (identity conservata)
      */
-    public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+    private void migrateTransactionLogId(Connection conn) throws SQLException {
+        String query = """
+                SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_NAME = 'TRANSACTION_LOGS' AND COLUMN_NAME = 'ID'
+                """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next() || "BIGINT".equals(rs.getString(1))) {
+                return;
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("ALTER TABLE transaction_logs ALTER COLUMN id SET DATA TYPE BIGINT")) {
+            stmt.execute();
+            logger.info("Colonna transaction_logs.id convertita in BIGINT");
+        }
+    }
+
+    private BalanceStorage openStorage(File dataFolder, BalanceStorage.Backend backend) {
+        return switch (backend) {
+            case JDBC -> new JdbcBalanceStorage(this, logger);
+            case MVSTORE -> new MVStoreBalanceStorage(dataFolder, logger);
+        };
+    }
+
+    private BalanceStorage.Backend parseBackend(String value) {
+        try {
+            return BalanceStorage.Backend.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("database.balance-storage non valido: " + value + ", uso JDBC");
+            return BalanceStorage.Backend.JDBC;
+        }
     }
 
     /**
-     * Carica il bilancio di un giocatore in modo asincrono
+     * Se gli account aggiornati sono nell'altro archivio (storage_state, JDBC se assente) li copia
+     * in quello scelto, svuotato prima: una copia interrotta viene ripetuta al riavvio successivo.
+     * L'archivio di origine resta com'era, come copia di sicurezza non più aggiornata.
+     * Va eseguita prima della riapplicazione del journal, che scrive nell'archivio scelto.
      */
-    public CompletableFuture<BigDecimal> loadBalance(UUID playerUUID, String playerName, BigDecimal defaultBalance) {
-        return CompletableFuture.supplyAsync(() -> {
-            String query = "SELECT balance FROM player_balances WHERE player_uuid = ?";
+    private void migrateStorage(File dataFolder) throws IOException, SQLException {
+        BalanceStorage.Backend owner = BalanceStorage.Backend.JDBC;
 
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT backend FROM storage_state WHERE name = 'balances'");
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                owner = BalanceStorage.Backend.valueOf(rs.getString(1));
+            }
+        }
 
-                stmt.setString(1, playerUUID.toString());
-                ResultSet rs = stmt.executeQuery();
+        if (owner == storage.backend()) {
+            return;
+        }
+
+        if (owner == BalanceStorage.Backend.MVSTORE && !MVStoreBalanceStorage.exists(dataFolder)) {
+            throw new IOException(MVStoreBalanceStorage.FILE_NAME + " non trovato");
+        }
 
-                if (rs.next()) {
-                    return rs.getBigDecimal("balance");
-                } else {
-                    // Crea nuovo account con bilancio predefinito
-                    createAccount(playerUUID, playerName, defaultBalance);
-                    return defaultBalance;
+        long start = System.currentTimeMillis();
+        BalanceStorage source = openStorage(dataFolder, owner);
+        long[] copied = {0};
+
+        try (Connection conn = getConnection()) {
+            // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+            conn.setAutoCommit(false);
+
+            storage.clear();
+            List<BalanceStorage.StoredAccount> block = new ArrayList<>(MIGRATION_BLOCK);
+            source.forEachAccount(conn, account -> {
+                block.add(account);
+                if (block.size() == MIGRATION_BLOCK) {
+                    try {
+                        storage.putAccounts(conn, block);
+                    } catch (SQLException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    copied[0] += block.size();
+                    block.clear();
                 }
+            });
+            storage.putAccounts(conn, block);
+            copied[0] += block.size();
+            storage.sync();
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "MERGE INTO storage_state (name, backend) KEY(name) VALUES ('balances', ?)")) {
+                stmt.setString(1, storage.backend().name());
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } finally {
+            source.close();
+        }
+
+        logger.info("Migrati " + copied[0] + " account da " + owner + " a " + storage.backend() + " in " +
+                (System.currentTimeMillis() - start) + "ms (l'archivio " + owner + " non viene più aggiornato)");
+    }
+
+    /**
+     * Archivio degli account (journal ed esportazione)
+     */
+    BalanceStorage storage() {
+        return storage;
+    }
+
+    /**
+     * Esegue un'operazione sul DB executor registrandone la latenza,
+     * misurata dalla richiesta (attesa in coda inclusa) al completamento
+     */
+    private <T> CompletableFuture<T> timed(DatabaseOperation operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        return executor.supply(() -> {
+            try {
+                return action.get();
+            } finally {
+                metrics.recordDatabase(operation, System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Ottiene una connessione dal pool
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Carica il bilancio di un giocatore in modo asincrono, creando l'account se non esiste.
+     * Il future fallisce in caso di errore (mai un bilancio predefinito al posto di quello reale)
+     */
+    public CompletableFuture<BigDecimal> loadBalance(UUID playerUUID, String playerName, BigDecimal defaultBalance) {
+        return timed(DatabaseOperation.LOAD_BALANCE, () -> {
+            try {
+                return BigDecimal.valueOf(storage.loadBalance(playerUUID, playerName, Money.toMinor(defaultBalance)), 2);
             } catch (SQLException e) {
-                logger.severe("Errore durante il caricamento del bilancio per " + playerName + ": " + e.getMessage());
-                return defaultBalance;
+                logger.severe("Errore durante il caricamento del bilancio di " + playerName + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
         });
     }
 
+    /**
+     * Carica i bilanciamenti di più giocatori a blocchi di chunkSize UUID.
+     * Gli account mancanti vengono creati in blocco.
+     * Gli account che non è stato possibile caricare o creare non compaiono nel risultato.
+     */
+    public CompletableFuture<Map<UUID, BigDecimal>> loadBalances(Map<UUID, String> players, BigDecimal defaultBalance,
+                                                                 int chunkSize) {
+        return timed(DatabaseOperation.LOAD_BALANCES, () -> {
+            Map<UUID, BigDecimal> balances = new HashMap<>();
+            storage.loadBalances(players, Money.toMinor(defaultBalance), chunkSize)
+                    .forEach((uuid, balance) -> balances.put(uuid, BigDecimal.valueOf(balance, 2)));
+            return balances;
+        });
+    }
+
     /**
      * Salva il bilancio di un giocatore in modo asincrono
      */
     public CompletableFuture<Boolean> saveBalance(UUID playerUUID, String playerName, BigDecimal balance) {
-        return CompletableFuture.supplyAsync(() -> {
-            String upsert = """
-                MERGE INTO player_balances (player_uuid, player_name, balance, last_updated)
-                KEY(player_uuid)
-                VALUES (?, ?, ?, CURRENT_TIMESTAMP)
-                """;
+        return timed(DatabaseOperation.SAVE_BALANCE, () ->
+                storage.saveBalance(new BalanceRecord(playerUUID, playerName, Money.toMinor(balance))));
+    }
 
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(upsert)) {
+    /**
+     * Salva più bilanciamenti a blocchi di batchSize righe, ognuno confermato separatamente:
+     * se un blocco fallisce viene restituito tra i record falliti, i blocchi già confermati restano salvati.
+     */
+    public CompletableFuture<BatchSaveResult> saveBalances(List<BalanceRecord> records, int batchSize) {
+        return timed(DatabaseOperation.SAVE_BALANCES, () -> storage.saveBalances(records, batchSize));
+    }
 
-                stmt.setString(1, playerUUID.toString());
-                stmt.setString(2, playerName);
-                stmt.setBigDecimal(3, balance);
+    /**
+     * Modalità cluster: più server condividono il database (vedi {@link ClusterStore})
+     */
+    public boolean isClustered() {
+        return cluster != null;
+    }
 
-                stmt.executeUpdate();
-                return true;
+    /**
+     * Bilancio e versione di un account, creato se non esiste (solo modalità cluster).
+     * Come {@link #loadBalance} il future fallisce in caso di errore.
+     */
+    public CompletableFuture<ClusterStore.VersionedBalance> loadVersionedBalance(UUID playerUUID, String playerName,
+                                                                               BigDecimal defaultBalance) {
+        return timed(DatabaseOperation.LOAD_BALANCE, () -> {
+            try {
+                return cluster.load(playerUUID, playerName, Money.toMinor(defaultBalance));
             } catch (SQLException e) {
-                logger.severe("Errore durante il salvataggio del bilancio per " + playerName + ": " + e.getMessage());
-                return false;
+                logger.severe("Errore durante il caricamento del bilancio di " + playerName + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
         });
     }
 
     /**
-     * Crea un nuovo account giocatore
+     * Bilancio e versione attuali degli account esistenti tra quelli richiesti (solo modalità cluster)
      */
-    private void createAccount(UUID playerUUID, String playerName, BigDecimal startingBalance) {
-        String insert = "INSERT INTO player_balances (player_uuid, player_name, balance) VALUES (?, ?, ?)";
+    public CompletableFuture<Map<UUID, ClusterStore.VersionedBalance>> readVersionedBalances(Collection<UUID> playerUUIDs) {
+        return timed(DatabaseOperation.LOAD_BALANCES, () -> {
+            try {
+                return cluster.read(playerUUIDs);
+            } catch (SQLException e) {
+                logger.severe("Errore durante la lettura di " + playerUUIDs.size() + " bilanciamenti: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(insert)) {
+    /**
+     * Salva le differenze della cache con UPDATE condizionati sulla versione (solo modalità cluster, vedi
+     * {@link ClusterStore#save})
+     */
+    public CompletableFuture<ClusterStore.SaveResult> saveVersionedBalances(List<ClusterStore.VersionedRecord> records,
+                                                                          int batchSize, long maxBalance) {
+        return timed(DatabaseOperation.SAVE_BALANCES, () -> cluster.save(records, batchSize, maxBalance));
+    }
+
+    /**
+     * Trasferimento come unica transazione di UPDATE relativi (solo modalità cluster, vedi {@link ClusterStore#transfer})
+     */
+    public CompletableFuture<ClusterStore.TransferOutcome> transferBalance(UUID sender, long senderPending, UUID receiver,
+                                                                         long receiverPending, long amount, long maxBalance) {
+        return timed(DatabaseOperation.TRANSFER, () -> {
+            try {
+                return cluster.transfer(sender, senderPending, receiver, receiverPending, amount, maxBalance);
+            } catch (SQLException e) {
+                logger.severe("Errore durante il trasferimento da " + sender + " a " + receiver + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, playerName);
-            stmt.setBigDecimal(3, startingBalance);
+    /**
+     * Modifiche degli altri nodi non ancora lette (solo modalità cluster)
+     */
+    public CompletableFuture<List<ClusterStore.BalanceChange>> pollChanges() {
+        return timed(DatabaseOperation.POLL_CHANGES, () -> {
+            try {
+                return cluster.poll();
+            } catch (SQLException e) {
+                logger.warning("Errore durante la lettura delle modifiche degli altri nodi: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-            stmt.executeUpdate();
-            logger.info("Nuovo account economy creato per " + playerName + " con bilancio iniziale: " + startingBalance);
+    /**
+     * Segnala agli altri nodi che tutti gli account sono cambiati (nessun effetto fuori dalla modalità cluster)
+     */
+    private void publishAll(boolean bumpVersions) {
+        if (cluster == null) {
+            return;
+        }
+        try {
+            cluster.publishAll(bumpVersions);
         } catch (SQLException e) {
-            logger.severe("Errore durante la creazione dell'account per " + playerName + ": " + e.getMessage());
+            logger.severe("Errore durante la notifica delle modifiche agli altri nodi: " + e.getMessage());
         }
     }
 
     /**
-     * Registra una transazione nel log
+     * Registra una transazione nel log.
+     * La voce viene accodata e scritta in batch dal {@link TransactionLogWriter}.
      */
-    public CompletableFuture<Void> logTransaction(UUID sender, UUID receiver, BigDecimal amount, String type, String description) {
-        return CompletableFuture.runAsync(() -> {
-            String insert = "INSERT INTO transaction_logs (sender_uuid, receiver_uuid, amount, transaction_type, description) VALUES (?, ?, ?, ?, ?)";
+    public void logTransaction(UUID sender, UUID receiver, BigDecimal amount, String type, String description) {
+        logWriter.submit(sender, receiver, amount, type, description);
+    }
 
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(insert)) {
+    /**
+     * Imposta chi riceve le voci del log dopo il commit del loro batch (con l'id assegnato dal database)
+     */
+    public void setHistoryListener(HistoryListener listener) {
+        logWriter.setListener(listener);
+    }
 
-                stmt.setString(1, sender != null ? sender.toString() : null);
-                stmt.setString(2, receiver != null ? receiver.toString() : null);
-                stmt.setBigDecimal(3, amount);
-                stmt.setString(4, type);
-                stmt.setString(5, description);
+    private DatabaseExecutor.Mode parseExecutorMode(String value) {
+        try {
+            return DatabaseExecutor.Mode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("database.executor non valido: " + value + ", uso PLATFORM");
+            return DatabaseExecutor.Mode.PLATFORM;
+        }
+    }
 
-                stmt.executeUpdate();
+    private TransactionLogWriter.OverflowPolicy parseOverflowPolicy(String value) {
+        try {
+            return TransactionLogWriter.OverflowPolicy.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("transaction-log.overflow-policy non valida: " + value + ", uso SPILL");
+            return TransactionLogWriter.OverflowPolicy.SPILL;
+        }
+    }
+
+    /**
+     * Ottiene l'executor delle operazioni database (coda e metriche)
+     */
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Ottiene lo scrittore del log transazioni (coda e metriche)
+     */
+    public TransactionLogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    /**
+     * Journal write-ahead dei bilanciamenti
+     */
+    public BalanceJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Archiviazione del log transazioni
+     */
+    public TransactionArchiver getArchiver() {
+        return archiver;
+    }
+
+    /**
+     * Cerca un giocatore per nome (supporta offline players), senza distinguere maiuscole e minuscole
+     */
+    public CompletableFuture<UUID> getPlayerUUIDByName(String playerName) {
+        return timed(DatabaseOperation.FIND_BY_NAME, () -> storage.findByName(playerName));
+    }
+
+    public EconomyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stato del pool di connessioni HikariCP
+     */
+    public PoolStats getPoolStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return new PoolStats(0, 0, 0, 0, dataSource.getMaximumPoolSize());
+        }
+        return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), pool.getTotalConnections(), dataSource.getMaximumPoolSize());
+    }
+
+    /**
+     * Applica database.pool-size e database.min-idle dopo /eco reload, insieme alla concorrenza dell'executor.
+     * Crescendo si allarga prima il pool, riducendo prima l'executor: ogni operazione trova sempre una connessione.
+     * Le connessioni in eccesso vengono chiuse da HikariCP quando tornano libere.
+     */
+    public void resizePool(PoolSettings settings) {
+        HikariConfigMXBean pool = dataSource.getHikariConfigMXBean();
+
+        if (settings.poolSize() >= pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(settings.poolSize());
+            pool.setMinimumIdle(settings.minIdle());
+            executor.resize(settings.poolSize());
+        } else {
+            executor.resize(settings.poolSize());
+            pool.setMinimumIdle(settings.minIdle());
+            pool.setMaximumPoolSize(settings.poolSize());
+        }
+    }
+
+    /**
+     * Dimensioni del pool di connessioni (database.pool-size, database.min-idle)
+     */
+    public record PoolSettings(int poolSize, int minIdle) {
+
+        /**
+         * Legge e valida le dimensioni; min-idle oltre pool-size viene limitato a pool-size
+         * @throws IllegalArgumentException se un valore non è valido
+         */
+        public static PoolSettings load(ConfigurationSection settings) {
+            int poolSize = settings.getInt("database.pool-size", 20);
+            int minIdle = settings.getInt("database.min-idle", 5);
+
+            if (poolSize < 1) {
+                throw new IllegalArgumentException("database.pool-size deve essere almeno 1");
+            }
+            if (minIdle < 0) {
+                throw new IllegalArgumentException("database.min-idle non può essere negativo");
+            }
+            return new PoolSettings(poolSize, Math.min(poolSize, minIdle));
+        }
+    }
+
+    /**
+     * Connessioni in uso, libere, thread in attesa di una connessione, totale e massimo del pool
+     */
+    public record PoolStats(int active, int idle, int waiting, int total, int max) {
+    }
+
+    /**
+     * Bilancio da salvare nel database (in centesimi, convertito in DECIMAL solo qui)
+     */
+    public record BalanceRecord(UUID playerUUID, String playerName, long balance) {
+    }
+
+    /**
+     * Esito di un salvataggio batch: righe scritte e record da ritentare
+     */
+    public record BatchSaveResult(int written, List<BalanceRecord> failed) {
+    }
+
+    /**
+     * Riga letta da {@link #streamAccounts}
+     */
+    @FunctionalInterface
+    public interface AccountRowConsumer {
+        void accept(UUID playerUUID, String playerName, BigDecimal balance);
+    }
+
+    /**
+     * Legge in streaming UUID, nome e bilancio di tutti gli account, senza caricare la tabella in memoria
+     * @return Numero di account letti, o -1 se la lettura si è interrotta per un errore
+     */
+    public CompletableFuture<Integer> streamAccounts(AccountRowConsumer consumer) {
+        return timed(DatabaseOperation.STREAM_ACCOUNTS, () -> storage.streamAccounts(consumer));
+    }
+
+    /**
+     * Legge una pagina della classifica direttamente dall'archivio degli account.
+     * Usato solo finché la classifica in memoria non è stata caricata.
+     */
+    public CompletableFuture<TopBalances> loadTopBalances(int offset, int limit) {
+        return timed(DatabaseOperation.TOP_BALANCES, () -> storage.loadTopBalances(offset, limit));
+    }
+
+    /**
+     * Pagina della classifica letta dal database: numero totale di account e righe richieste
+     */
+    public record TopBalances(int total, List<BalanceRecord> records) {
+    }
+
+    /**
+     * Legge lo storico delle transazioni in cui un giocatore è mittente o destinatario, dalla più recente.
+     *
+     * Paginazione per chiave (timestamp, id) invece di OFFSET: ogni lato è una ricerca sull'indice
+     * idx_transaction_sender o idx_transaction_receiver che parte subito dopo after e legge solo le righe
+     * richieste, a qualsiasi profondità. I due lati sono interrogati separatamente e uniti qui.
+     *
+     * @param after Ultima voce già mostrata, o null per partire dalla più recente
+     * @param skip Voci da saltare dopo after (salto di più pagine senza cursore)
+     */
+    public CompletableFuture<HistoryPage> loadHistory(UUID playerUUID, HistoryEntry after, int skip, int limit) {
+        return timed(DatabaseOperation.LOAD_HISTORY, () -> {
+            // Una riga in più per sapere se esiste una pagina successiva
+            int fetch = skip + limit + 1;
+
+            try (Connection conn = getConnection()) {
+                List<HistoryEntry> sent = loadHistorySide(conn, "sender_uuid", playerUUID, after, fetch);
+                List<HistoryEntry> received = loadHistorySide(conn, "receiver_uuid", playerUUID, after, fetch);
+
+                List<HistoryEntry> merged = new ArrayList<>(Math.min(fetch, sent.size() + received.size()));
+                int i = 0;
+                int j = 0;
+                while (merged.size() < fetch && (i < sent.size() || j < received.size())) {
+                    if (j == received.size()) {
+                        merged.add(sent.get(i++));
+                    } else if (i == sent.size()) {
+                        merged.add(received.get(j++));
+                    } else {
+                        int comparison = HistoryEntry.NEWEST_FIRST.compare(sent.get(i), received.get(j));
+                        if (comparison == 0) {
+                            // Stessa riga su entrambi i lati (mittente e destinatario coincidono)
+                            j++;
+                        }
+                        merged.add(comparison <= 0 ? sent.get(i++) : received.get(j++));
+                    }
+                }
+
+                if (merged.size() <= skip) {
+                    return new HistoryPage(List.of(), false);
+                }
+                boolean hasMore = merged.size() > skip + limit;
+                return new HistoryPage(List.copyOf(merged.subList(skip, Math.min(merged.size(), skip + limit))), hasMore);
             } catch (SQLException e) {
-                logger.severe("Errore durante il logging della transazione: " + e.getMessage());
+                logger.severe("Errore durante il caricamento dello storico di " + playerUUID + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
         });
     }
 
+    private List<HistoryEntry> loadHistorySide(Connection conn, String column, UUID playerUUID,
+                                               HistoryEntry after, int limit) throws SQLException {
+        // Il predicato su timestamp <= ? restringe la ricerca nell'indice, quello su id risolve le parità.
+        // H2 evita l'ordinamento solo se ORDER BY ricalca tutte le colonne dell'indice, uuid compreso
+        String query = "SELECT id, sender_uuid, receiver_uuid, amount, transaction_type, timestamp, description " +
+                "FROM transaction_logs WHERE " + column + " = ?" +
+                (after != null ? " AND timestamp <= ? AND (timestamp < ? OR id < ?)" : "") +
+                " ORDER BY " + column + ", timestamp DESC, id DESC LIMIT ?";
+        List<HistoryEntry> entries = new ArrayList<>(Math.min(limit, 256));
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int index = 1;
+            stmt.setString(index++, playerUUID.toString());
+            if (after != null) {
+                Timestamp timestamp = new Timestamp(after.timestamp());
+                stmt.setTimestamp(index++, timestamp);
+                stmt.setTimestamp(index++, timestamp);
+                stmt.setLong(index++, after.id());
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String sender = rs.getString(2);
+                    String receiver = rs.getString(3);
+                    entries.add(new HistoryEntry(rs.getLong(1),
+                            sender != null ? UUID.fromString(sender) : null,
+                            receiver != null ? UUID.fromString(receiver) : null,
+                            Money.toMinor(rs.getBigDecimal(4)),
+                            rs.getString(5), rs.getTimestamp(6).getTime(), rs.getString(7)));
+                }
+            }
+        }
+        return entries;
+    }
+
     /**
-     * Cerca un giocatore per nome (supporta offline players)
+     * Voce dello storico transazioni (importo in centesimi, timestamp in millisecondi)
      */
-    public CompletableFuture<UUID> getPlayerUUIDByName(String playerName) {
-        return CompletableFuture.supplyAsync(() -> {
-            String query = "SELECT player_uuid FROM player_balances WHERE LOWER(player_name) = LOWER(?)";
+    public record HistoryEntry(long id, UUID sender, UUID receiver, long amount, String type, long timestamp,
+                               String description) {
+
+        /**
+         * Ordine dello storico: dalla voce più recente, a parità di timestamp per id decrescente
+         */
+        public static final Comparator<HistoryEntry> NEWEST_FIRST =
+                Comparator.comparingLong(HistoryEntry::timestamp).thenComparingLong(HistoryEntry::id).reversed();
+    }
 
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
+    /**
+     * Pagina dello storico e presenza di voci più vecchie
+     */
+    public record HistoryPage(List<HistoryEntry> entries, boolean hasMore) {
+    }
+
+    /**
+     * Riceve le voci del log scritte nel database, sul thread dello scrittore
+     */
+    public interface HistoryListener {
+        void logged(List<HistoryEntry> entries);
+
+        /**
+         * Alcune voci scritte non sono state passate a {@link #logged} (id generati non disponibili)
+         */
+        void missed();
+    }
+
+    /**
+     * Esporta account e log transazioni in target sul DB executor (vedi {@link EconomyDump}).
+     * Il future fallisce se un'altra esportazione o importazione è in corso o in caso di errore.
+     */
+    public CompletableFuture<EconomyDump.Result> exportEconomy(File target, EconomyDump.Progress progress) {
+        return dump(DatabaseOperation.EXPORT, () -> new EconomyDump(this).export(target, progress),
+                "Errore durante l'esportazione in " + target.getName());
+    }
+
+    /**
+     * Importa un file creato da {@link #exportEconomy} sul DB executor.
+     * listener riceve ogni account importato dopo il commit del suo blocco.
+     */
+    public CompletableFuture<EconomyDump.Result> importEconomy(File source, EconomyDump.Progress progress,
+                                                               EconomyDump.ImportedAccount listener) {
+        return dump(DatabaseOperation.IMPORT, () -> {
+            try {
+                return new EconomyDump(this).importFrom(source, progress, listener);
+            } finally {
+                // Le righe importate non incrementano version
+                publishAll(true);
+            }
+        }, "Errore durante l'importazione di " + source.getName());
+    }
+
+    private CompletableFuture<EconomyDump.Result> dump(DatabaseOperation operation, DumpAction action, String error) {
+        if (!dumpRunning.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("un'esportazione o importazione è già in corso"));
+        }
+
+        return timed(operation, () -> {
+            try {
+                return action.run();
+            } catch (IOException | SQLException | RuntimeException e) {
+                logger.severe(error + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }).whenComplete((result, throwable) -> dumpRunning.set(false));
+    }
+
+    @FunctionalInterface
+    private interface DumpAction {
+        EconomyDump.Result run() throws IOException, SQLException;
+    }
+
+    /**
+     * Applica un'operazione di massa agli account salvati, un blocco di chunkSize account per transazione
+     * (vedi {@link BalanceStorage#applyBulk}).
+     * Gli account in skip (quelli in cache, aggiornati in memoria) non vengono toccati.
+     * listener riceve il nuovo bilancio (in centesimi) di ogni account modificato, dopo il commit del suo blocco.
+     */
+    public CompletableFuture<BulkOperation.Result> applyBulk(BulkOperation operation, Collection<UUID> skip,
+                                                            int chunkSize, BalanceListener listener) {
+        return timed(DatabaseOperation.BULK_UPDATE, () -> {
+            try {
+                return storage.applyBulk(operation, skip, chunkSize, listener);
+            } catch (SQLException e) {
+                // I blocchi già confermati restano applicati e vengono riportati nel messaggio
+                logger.severe("Errore durante l'operazione di massa " + operation.type() + " " + e.getMessage());
+                throw new CompletionException(e);
+            } finally {
+                publishAll(false);
+            }
+        });
+    }
+
+    /**
+     * Nuovo bilancio (in centesimi) di un account modificato da un'operazione di massa
+     */
+    @FunctionalInterface
+    public interface BalanceListener {
+        void accept(UUID playerUUID, long balance);
+    }
 
-                stmt.setString(1, playerName);
-                ResultSet rs = stmt.executeQuery();
+    /**
+     * Data dell'ultima esecuzione di un'operazione di massa programmata
+     * @return Millisecondi, 0 se non è mai stata eseguita o -1 in caso di errore
+     */
+    public CompletableFuture<Long> loadLastBulkRun(String name) {
+        return executor.supply(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT last_run FROM bulk_runs WHERE name = ?")) {
 
-                if (rs.next()) {
-                    return UUID.fromString(rs.getString("player_uuid"));
+                stmt.setString(1, name);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getTimestamp(1).getTime() : 0L;
                 }
-                return null;
             } catch (SQLException e) {
-                logger.severe("Errore durante la ricerca del giocatore " + playerName + ": " + e.getMessage());
-                return null;
+                logger.severe("Errore durante la lettura dell'ultima esecuzione di " + name + ": " + e.getMessage());
+                return -1L;
+            }
+        });
+    }
+
+    /**
+     * Registra l'esecuzione di un'operazione di massa programmata
+     */
+    public CompletableFuture<Boolean> saveLastBulkRun(String name, long time) {
+        return executor.supply(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("MERGE INTO bulk_runs (name, last_run) KEY(name) VALUES (?, ?)")) {
+
+                stmt.setString(1, name);
+                stmt.setTimestamp(2, new Timestamp(time));
+                stmt.executeUpdate();
+                return true;
+            } catch (SQLException e) {
+                logger.severe("Errore durante il salvataggio dell'esecuzione di " + name + ": " + e.getMessage());
+                return false;
             }
         });
     }
 
     /**
-     * Chiude il pool di connessioni
+     * Registra l'esecuzione di un'operazione di massa programmata solo se l'ultima registrata è ancora expected:
+     * con più server sullo stesso database un solo nodo la esegue.
+     * @return false se un altro nodo l'ha già registrata o in caso di errore
+     */
+    public CompletableFuture<Boolean> claimBulkRun(String name, long expected, long time) {
+        return executor.supply(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("UPDATE bulk_runs SET last_run = ? WHERE name = ? AND last_run = ?")) {
+
+                stmt.setTimestamp(1, new Timestamp(time));
+                stmt.setString(2, name);
+                stmt.setTimestamp(3, new Timestamp(expected));
+                return stmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                logger.severe("Errore durante la registrazione dell'esecuzione di " + name + ": " + e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Chiude il pool di connessioni.
+     * Ordine: ferma archiviazione e journal (ultimo fsync), svuota il log transazioni, attende le operazioni accodate sull'executor,
+     * chiude l'archivio degli account, infine chiude il pool (le ultime scritture hanno ancora una connessione disponibile).
      */
     public void close() {
+        if (archiver != null) {
+            archiver.close();
+        }
+
+        if (journal != null) {
+            journal.close();
+        }
+
+        if (logWriter != null) {
+            logWriter.close();
+        }
+
+        if (executor != null) {
+            executor.shutdown(30, TimeUnit.SECONDS);
+        }
+
+        if (storage != null) {
+            storage.close();
+        }
+
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Database chiuso correttamente!");
@@ -0,0 +1,461 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.database.BalanceStorage.StoredAccount;
+
+import com.marskernel.trialEconomy.manager.Money;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Esportazione e importazione dell'economy (player_balances e transaction_logs) in un formato binario
+ * versionato, per backup e migrazioni senza fermare il server.
+ *
+ * Formato (big-endian):
+ * - intestazione: magic "TECO", versione, data di creazione
+ * - blocchi: sezione, righe, lunghezza, dati (al massimo {@link #BLOCK_SIZE} byte), CRC32C di tutto il blocco
+ * - blocco finale (sezione 0) con il numero di account e di transazioni, per riconoscere un file troncato
+ *
+ * Lettura e scrittura passano per un solo buffer di dimensione fissa: la memoria usata non dipende
+ * dal numero di righe. L'importazione verifica prima tutti i checksum e solo dopo scrive nel database,
+ * un blocco per transazione; le righe con la stessa chiave (UUID, id della transazione) vengono sostituite.
+ */
+public class EconomyDump {
+
+    private static final int MAGIC = 0x5445434F; // "TECO"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 16;
+
+    private static final int SECTION_END = 0;
+    private static final int SECTION_ACCOUNTS = 1;
+    private static final int SECTION_TRANSACTIONS = 2;
+
+    private static final int BLOCK_HEADER = 12; // Sezione, righe, lunghezza
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_ROW = 2048; // Riga più lunga possibile con lo schema attuale
+
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final long PROGRESS_INTERVAL = 2000; // In millisecondi
+
+    private static final String UPSERT_TRANSACTION = """
+            MERGE INTO transaction_logs (id, sender_uuid, receiver_uuid, amount, transaction_type, timestamp, description)
+            KEY(id)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final DatabaseManager database;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_HEADER + BLOCK_SIZE + 4);
+    private final CRC32C crc = new CRC32C();
+
+    private Progress progress;
+    private long lastProgress;
+
+    EconomyDump(DatabaseManager database) {
+        this.database = database;
+    }
+
+    /**
+     * Avanzamento di un'esportazione o importazione, notificato al massimo ogni due secondi e alla fine di ogni fase
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(String stage, long done, long total);
+    }
+
+    /**
+     * Account importato, con il bilancio in centesimi, notificato dopo il commit del suo blocco
+     */
+    @FunctionalInterface
+    public interface ImportedAccount {
+        void accept(UUID playerUUID, String playerName, long balance);
+    }
+
+    /**
+     * Esito di un'esportazione o importazione
+     */
+    public record Result(long accounts, long transactions, long bytes, long millis) {
+    }
+
+    /**
+     * Scrive l'intera economy in target, passando da un file temporaneo rinominato solo a scrittura completata.
+     * Le due tabelle vengono lette nella stessa transazione, quindi sono coerenti tra loro
+     * (con database.balance-storage MVSTORE gli account vengono letti a parte, senza last_updated).
+     */
+    Result export(File target, Progress progress) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        this.progress = progress;
+        this.lastProgress = 0;
+
+        File temporary = new File(target.getParentFile(), target.getName() + ".tmp");
+        long accounts;
+        long transactions;
+
+        try (Connection conn = database.getConnection();
+             FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            // HikariCP ripristina isolamento e autocommit quando la connessione torna nel pool
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            long totalAccounts = database.storage().count(conn);
+            long totalTransactions = count(conn, "SELECT COUNT(*) FROM transaction_logs");
+
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(start).flip();
+            write(channel);
+
+            accounts = exportAccounts(conn, channel, totalAccounts);
+            transactions = exportTransactions(conn, channel, totalTransactions);
+            conn.commit();
+
+            beginBlock();
+            buffer.putLong(accounts).putLong(transactions);
+            finishBlock(channel, SECTION_END, 0);
+
+            channel.force(true);
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(temporary.toPath());
+            throw e;
+        }
+
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return new Result(accounts, transactions, target.length(), System.currentTimeMillis() - start);
+    }
+
+    private long exportAccounts(Connection conn, FileChannel channel, long total) throws IOException, SQLException {
+        long[] done = {0};
+        int[] rows = {0};
+
+        beginBlock();
+        database.storage().forEachAccount(conn, account -> {
+            if (buffer.position() > BLOCK_HEADER + BLOCK_SIZE - MAX_ROW) {
+                finishBlock(channel, SECTION_ACCOUNTS, rows[0]);
+                beginBlock();
+                rows[0] = 0;
+                report("Esportazione account", done[0], total);
+            }
+
+            putUUID(account.playerUUID());
+            putString(account.playerName());
+            buffer.putLong(account.balance());
+            putTimestamp(account.lastUpdated());
+            rows[0]++;
+            done[0]++;
+        });
+        finishBlock(channel, SECTION_ACCOUNTS, rows[0]);
+
+        progress.update("Esportazione account", done[0], done[0]);
+        return done[0];
+    }
+
+    private long exportTransactions(Connection conn, FileChannel channel, long total) throws IOException, SQLException {
+        String query = """
+                SELECT id, sender_uuid, receiver_uuid, amount, transaction_type, timestamp, description
+                FROM transaction_logs
+                ORDER BY id
+                """;
+        long done = 0;
+        int rows = 0;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                beginBlock();
+                while (rs.next()) {
+                    if (buffer.position() > BLOCK_HEADER + BLOCK_SIZE - MAX_ROW) {
+                        finishBlock(channel, SECTION_TRANSACTIONS, rows);
+                        beginBlock();
+                        rows = 0;
+                        report("Esportazione transazioni", done, total);
+                    }
+
+                    buffer.putLong(rs.getLong(1));
+                    putNullableUUID(rs.getString(2));
+                    putNullableUUID(rs.getString(3));
+                    buffer.putLong(Money.toMinor(rs.getBigDecimal(4)));
+                    putString(rs.getString(5));
+                    putTimestamp(rs.getTimestamp(6));
+                    putString(rs.getString(7));
+                    rows++;
+                    done++;
+                }
+                finishBlock(channel, SECTION_TRANSACTIONS, rows);
+            }
+        }
+
+        progress.update("Esportazione transazioni", done, done);
+        return done;
+    }
+
+    /**
+     * Importa un file creato da {@link #export}: prima verifica intestazione, checksum e blocco finale
+     * senza toccare il database, poi scrive account e transazioni con batch JDBC, un blocco per transazione.
+     */
+    Result importFrom(File source, Progress progress, ImportedAccount listener) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        this.progress = progress;
+        this.lastProgress = 0;
+
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long[] totals = verify(channel);
+            long totalAccounts = totals[0];
+            long totalTransactions = totals[1];
+
+            channel.position(FILE_HEADER);
+            long accounts = 0;
+            long transactions = 0;
+            long maxId = 0;
+
+            try (Connection conn = database.getConnection();
+                 PreparedStatement transactionStmt = conn.prepareStatement(UPSERT_TRANSACTION)) {
+
+                // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+                conn.setAutoCommit(false);
+
+                int section;
+                while ((section = readBlock(channel)) != SECTION_END) {
+                    int rows = buffer.getInt(4);
+                    buffer.position(BLOCK_HEADER);
+
+                    if (section == SECTION_ACCOUNTS) {
+                        List<StoredAccount> block = new ArrayList<>(rows);
+                        for (int i = 0; i < rows; i++) {
+                            block.add(new StoredAccount(getUUID(), getString(), buffer.getLong(), getTimestamp()));
+                        }
+                        database.storage().putAccounts(conn, block);
+
+                        for (StoredAccount account : block) {
+                            listener.accept(account.playerUUID(), account.playerName(), account.balance());
+                        }
+                        accounts += rows;
+                        report("Importazione account", accounts, totalAccounts);
+                    } else {
+                        for (int i = 0; i < rows; i++) {
+                            long id = buffer.getLong();
+                            maxId = Math.max(maxId, id);
+
+                            transactionStmt.setLong(1, id);
+                            transactionStmt.setString(2, getNullableUUID());
+                            transactionStmt.setString(3, getNullableUUID());
+                            transactionStmt.setBigDecimal(4, BigDecimal.valueOf(buffer.getLong(), 2));
+                            transactionStmt.setString(5, getString());
+                            transactionStmt.setTimestamp(6, getTimestamp());
+                            transactionStmt.setString(7, getString());
+                            transactionStmt.addBatch();
+                        }
+                        commit(conn, transactionStmt);
+
+                        transactions += rows;
+                        report("Importazione transazioni", transactions, totalTransactions);
+                    }
+                }
+
+                // Gli id importati sono espliciti: le nuove voci del log devono partire dopo il più alto
+                if (maxId > 0) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE transaction_logs ALTER COLUMN id RESTART WITH " +
+                                (Math.max(maxId, maxTransactionId(conn)) + 1));
+                    }
+                    conn.commit();
+                }
+            }
+
+            progress.update("Importazione account", accounts, totalAccounts);
+            progress.update("Importazione transazioni", transactions, totalTransactions);
+            return new Result(accounts, transactions, source.length(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Legge tutto il file verificando ogni checksum
+     * @return Numero di account e di transazioni dichiarati nel blocco finale
+     */
+    private long[] verify(FileChannel channel) throws IOException {
+        buffer.clear().limit(FILE_HEADER);
+        readFully(channel);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("non è un'esportazione di Trial Economy");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("versione del formato non supportata: " + buffer.getInt(4));
+        }
+
+        long accounts = 0;
+        long transactions = 0;
+        int section;
+        while ((section = readBlock(channel)) != SECTION_END) {
+            if (section == SECTION_ACCOUNTS) {
+                accounts += buffer.getInt(4);
+            } else {
+                transactions += buffer.getInt(4);
+            }
+        }
+
+        long expectedAccounts = buffer.getLong(BLOCK_HEADER);
+        long expectedTransactions = buffer.getLong(BLOCK_HEADER + 8);
+        if (accounts != expectedAccounts || transactions != expectedTransactions) {
+            throw new IOException("il file contiene " + accounts + " account e " + transactions +
+                    " transazioni, attesi " + expectedAccounts + " e " + expectedTransactions);
+        }
+        return new long[]{accounts, transactions};
+    }
+
+    /**
+     * Legge il blocco successivo nel buffer e ne verifica il checksum
+     * @return Sezione del blocco
+     */
+    private int readBlock(FileChannel channel) throws IOException {
+        buffer.clear().limit(BLOCK_HEADER);
+        readFully(channel);
+
+        int section = buffer.getInt(0);
+        int rows = buffer.getInt(4);
+        int length = buffer.getInt(8);
+        if (section < SECTION_END || section > SECTION_TRANSACTIONS || rows < 0 || length < 0 || length > BLOCK_SIZE) {
+            throw new IOException("blocco non valido alla posizione " + (channel.position() - BLOCK_HEADER));
+        }
+
+        buffer.limit(BLOCK_HEADER + length + 4);
+        readFully(channel);
+
+        crc.reset();
+        crc.update(buffer.duplicate().position(0).limit(BLOCK_HEADER + length));
+        if ((int) crc.getValue() != buffer.getInt(BLOCK_HEADER + length)) {
+            throw new IOException("checksum non valido nel blocco alla posizione " +
+                    (channel.position() - BLOCK_HEADER - length - 4));
+        }
+
+        buffer.limit(BLOCK_HEADER + length);
+        return section;
+    }
+
+    private void readFully(FileChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("file troncato");
+            }
+        }
+    }
+
+    private void beginBlock() {
+        buffer.clear().position(BLOCK_HEADER);
+    }
+
+    /**
+     * Completa il blocco nel buffer (intestazione e checksum) e lo scrive
+     */
+    private void finishBlock(FileChannel channel, int section, int rows) throws IOException {
+        int length = buffer.position() - BLOCK_HEADER;
+        buffer.putInt(0, section).putInt(4, rows).putInt(8, length);
+
+        crc.reset();
+        crc.update(buffer.duplicate().flip());
+        buffer.putInt((int) crc.getValue()).flip();
+        write(channel);
+    }
+
+    private void write(FileChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void commit(Connection conn, PreparedStatement stmt) throws SQLException {
+        try {
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            stmt.clearBatch();
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private void report(String stage, long done, long total) {
+        long now = System.currentTimeMillis();
+        if (now - lastProgress >= PROGRESS_INTERVAL) {
+            lastProgress = now;
+            progress.update(stage, done, total);
+        }
+    }
+
+    private static long count(Connection conn, String query) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static long maxTransactionId(Connection conn) throws SQLException {
+        return count(conn, "SELECT COALESCE(MAX(id), 0) FROM transaction_logs");
+    }
+
+    private void putUUID(UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private UUID getUUID() {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private void putNullableUUID(String uuid) {
+        if (uuid == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            putUUID(UUID.fromString(uuid));
+        }
+    }
+
+    private String getNullableUUID() {
+        return buffer.get() == 0 ? null : getUUID().toString();
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private String getString() {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void putTimestamp(Timestamp timestamp) {
+        buffer.putLong(timestamp != null ? timestamp.getTime() : NULL_TIMESTAMP);
+    }
+
+    private Timestamp getTimestamp() {
+        long millis = buffer.getLong();
+        return millis != NULL_TIMESTAMP ? new Timestamp(millis) : null;
+    }
+}
@@ -0,0 +1,545 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.database.DatabaseManager.AccountRowConsumer;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceListener;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceRecord;
+import com.marskernel.trialEconomy.database.DatabaseManager.BatchSaveResult;
+import com.marskernel.trialEconomy.database.DatabaseManager.TopBalances;
+
+import com.marskernel.trialEconomy.manager.Money;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Account nella tabella player_balances del database H2, tramite SQL e il pool HikariCP
+ */
+class JdbcBalanceStorage implements BalanceStorage {
+
+    private static final String UPSERT_BALANCE = """
+            MERGE INTO player_balances (player_uuid, player_name, balance, last_updated)
+            KEY(player_uuid)
+            VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+            """;
+
+    private static final String UPSERT_ACCOUNT = """
+            MERGE INTO player_balances (player_uuid, player_name, balance, last_updated)
+            KEY(player_uuid)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_ACCOUNT = "INSERT INTO player_balances (player_uuid, player_name, balance) VALUES (?, ?, ?)";
+
+    private static final String UPDATE_BALANCE =
+            "UPDATE player_balances SET balance = ?, last_updated = CURRENT_TIMESTAMP WHERE player_uuid = ?";
+
+    // H2 scrive i commit su disco in background: prima di liberare il journal i dati devono esserci davvero
+    private static final String SYNC_DATABASE = "CHECKPOINT SYNC";
+
+    private final DatabaseManager database;
+    private final Logger logger;
+
+    JdbcBalanceStorage(DatabaseManager database, Logger logger) {
+        this.database = database;
+        this.logger = logger;
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.JDBC;
+    }
+
+    @Override
+    public long loadBalance(UUID playerUUID, String playerName, long defaultBalance) throws SQLException {
+        String query = "SELECT balance FROM player_balances WHERE player_uuid = ?";
+
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, playerUUID.toString());
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return Money.toMinor(rs.getBigDecimal("balance"));
+            } else {
+                // Crea nuovo account con bilancio predefinito
+                createAccount(conn, playerUUID, playerName, defaultBalance);
+                return defaultBalance;
+            }
+        }
+    }
+
+    /**
+     * Query IN (...) da chunkSize UUID ciascuna su un'unica connessione;
+     * gli account mancanti vengono creati con un solo INSERT batch in una transazione
+     */
+    @Override
+    public Map<UUID, Long> loadBalances(Map<UUID, String> players, long defaultBalance, int chunkSize) {
+        Map<UUID, Long> balances = new HashMap<>();
+        List<UUID> uuids = new ArrayList<>(players.keySet());
+        int size = Math.max(1, chunkSize);
+
+        try (Connection conn = database.getConnection()) {
+            for (int from = 0; from < uuids.size(); from += size) {
+                List<UUID> chunk = uuids.subList(from, Math.min(from + size, uuids.size()));
+                String query = "SELECT player_uuid, balance FROM player_balances WHERE player_uuid IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i).toString());
+                    }
+
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        balances.put(UUID.fromString(rs.getString("player_uuid")), Money.toMinor(rs.getBigDecimal("balance")));
+                    }
+                }
+            }
+
+            List<UUID> missing = new ArrayList<>();
+            for (UUID uuid : uuids) {
+                if (!balances.containsKey(uuid)) {
+                    missing.add(uuid);
+                }
+            }
+
+            if (!missing.isEmpty() && createAccounts(conn, missing, players, defaultBalance)) {
+                for (UUID uuid : missing) {
+                    balances.put(uuid, defaultBalance);
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Errore durante il caricamento di " + players.size() + " bilanciamenti: " + e.getMessage());
+        }
+
+        return balances;
+    }
+
+    @Override
+    public boolean saveBalance(BalanceRecord record) {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_BALANCE)) {
+
+            stmt.setString(1, record.playerUUID().toString());
+            stmt.setString(2, record.playerName());
+            stmt.setBigDecimal(3, BigDecimal.valueOf(record.balance(), 2));
+
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            logger.severe("Errore durante il salvataggio del bilancio per " + record.playerName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Batch JDBC su un'unica connessione: se un blocco fallisce viene annullato
+     * e restituito tra i record falliti, i blocchi già confermati restano salvati
+     */
+    @Override
+    public BatchSaveResult saveBalances(List<BalanceRecord> records, int batchSize) {
+        int written = 0;
+        int processed = 0;
+        List<BalanceRecord> failed = new ArrayList<>();
+
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_BALANCE)) {
+
+            // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+            conn.setAutoCommit(false);
+
+            while (processed < records.size()) {
+                int end = Math.min(processed + batchSize, records.size());
+                List<BalanceRecord> chunk = records.subList(processed, end);
+
+                try {
+                    for (BalanceRecord record : chunk) {
+                        stmt.setString(1, record.playerUUID().toString());
+                        stmt.setString(2, record.playerName());
+                        stmt.setBigDecimal(3, BigDecimal.valueOf(record.balance(), 2));
+                        stmt.addBatch();
+                    }
+
+                    stmt.executeBatch();
+                    conn.commit();
+                    written += chunk.size();
+                    processed = end;
+                } catch (SQLException e) {
+                    logger.severe("Errore durante il salvataggio batch di " + chunk.size() + " bilanciamenti: " + e.getMessage());
+                    failed.addAll(chunk);
+                    processed = end;
+                    stmt.clearBatch();
+                    conn.rollback();
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Errore di connessione durante il salvataggio batch: " + e.getMessage());
+            failed.addAll(records.subList(processed, records.size()));
+        }
+
+        return new BatchSaveResult(written, failed);
+    }
+
+    /**
+     * Crea un nuovo account giocatore
+     */
+    private void createAccount(Connection conn, UUID playerUUID, String playerName, long startingBalance) {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_ACCOUNT)) {
+            stmt.setString(1, playerUUID.toString());
+            stmt.setString(2, playerName);
+            stmt.setBigDecimal(3, BigDecimal.valueOf(startingBalance, 2));
+
+            stmt.executeUpdate();
+            logger.info("Nuovo account economy creato per " + playerName + " con bilancio iniziale: " +
+                    BigDecimal.valueOf(startingBalance, 2));
+        } catch (SQLException e) {
+            logger.severe("Errore durante la creazione dell'account per " + playerName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Crea più account in un'unica transazione con batch JDBC
+     * @return true se tutti gli account sono stati creati
+     */
+    private boolean createAccounts(Connection conn, List<UUID> uuids, Map<UUID, String> names, long startingBalance) {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_ACCOUNT)) {
+            // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+            conn.setAutoCommit(false);
+
+            for (UUID uuid : uuids) {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, names.get(uuid));
+                stmt.setBigDecimal(3, BigDecimal.valueOf(startingBalance, 2));
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+            conn.commit();
+            logger.info(uuids.size() + " nuovi account economy creati con bilancio iniziale: " +
+                    BigDecimal.valueOf(startingBalance, 2));
+            return true;
+        } catch (SQLException e) {
+            logger.severe("Errore durante la creazione di " + uuids.size() + " account: " + e.getMessage());
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                logger.severe("Errore durante il rollback: " + rollbackError.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Usa la colonna generata player_name_lower, indicizzata, invece di LOWER(player_name)
+     */
+    @Override
+    public UUID findByName(String playerName) {
+        String query = "SELECT player_uuid FROM player_balances WHERE player_name_lower = ?";
+
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, playerName.toLowerCase(Locale.ROOT));
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return UUID.fromString(rs.getString("player_uuid"));
+            }
+            return null;
+        } catch (SQLException e) {
+            logger.severe("Errore durante la ricerca del giocatore " + playerName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int streamAccounts(AccountRowConsumer consumer) {
+        String query = "SELECT player_uuid, player_name, balance FROM player_balances";
+        int count = 0;
+
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(UUID.fromString(rs.getString(1)), rs.getString(2), rs.getBigDecimal(3));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Errore durante la lettura degli account: " + e.getMessage());
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Pagina della classifica dall'indice idx_balance_desc
+     */
+    @Override
+    public TopBalances loadTopBalances(int offset, int limit) {
+        String query = """
+                SELECT player_uuid, player_name, balance FROM player_balances
+                ORDER BY balance DESC, player_uuid
+                LIMIT ? OFFSET ?
+                """;
+        List<BalanceRecord> records = new ArrayList<>(limit);
+
+        try (Connection conn = database.getConnection()) {
+            int total;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM player_balances");
+                 ResultSet rs = stmt.executeQuery()) {
+                total = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, limit);
+                stmt.setInt(2, offset);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        records.add(new BalanceRecord(UUID.fromString(rs.getString(1)), rs.getString(2),
+                                Money.toMinor(rs.getBigDecimal(3))));
+                    }
+                }
+            }
+            return new TopBalances(total, records);
+        } catch (SQLException e) {
+            logger.severe("Errore durante il caricamento della classifica: " + e.getMessage());
+            return new TopBalances(0, List.of());
+        }
+    }
+
+    /**
+     * UPDATE set-based, un blocco di chunkSize UUID consecutivi (per intervallo di chiave) per transazione.
+     * Gli account in skip vengono esclusi con una tabella temporanea.
+     */
+    @Override
+    public BulkOperation.Result applyBulk(BulkOperation operation, Collection<UUID> skip, int chunkSize,
+                                          BalanceListener listener) throws SQLException {
+        String newBalance = operation.newBalanceSql();
+        String nextBound = "SELECT player_uuid FROM player_balances WHERE player_uuid > ? ORDER BY player_uuid LIMIT 1 OFFSET ?";
+
+        long accounts = 0;
+        long total = 0;
+        List<UUID> updatedUUIDs = new ArrayList<>();
+        List<Long> updatedBalances = new ArrayList<>();
+
+        try (Connection conn = database.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS bulk_skip (player_uuid VARCHAR(36) PRIMARY KEY)");
+                stmt.execute("TRUNCATE TABLE bulk_skip");
+            }
+
+            // Ultimo blocco senza limite superiore: una variante a parte mantiene la ricerca per intervallo sull'indice
+            try (PreparedStatement nextStmt = conn.prepareStatement(nextBound);
+                 PreparedStatement sumStmt = conn.prepareStatement(bulkSum(newBalance, true));
+                 PreparedStatement updateStmt = conn.prepareStatement(bulkUpdate(newBalance, true));
+                 PreparedStatement lastSumStmt = conn.prepareStatement(bulkSum(newBalance, false));
+                 PreparedStatement lastUpdateStmt = conn.prepareStatement(bulkUpdate(newBalance, false));
+                 PreparedStatement skipStmt = conn.prepareStatement("INSERT INTO bulk_skip VALUES (?)")) {
+
+                // HikariCP ripristina l'autocommit quando la connessione torna nel pool
+                conn.setAutoCommit(false);
+
+                int batched = 0;
+                for (UUID uuid : skip) {
+                    skipStmt.setString(1, uuid.toString());
+                    skipStmt.addBatch();
+                    if (++batched % 1000 == 0) {
+                        skipStmt.executeBatch();
+                    }
+                }
+                skipStmt.executeBatch();
+                conn.commit();
+
+                String lower = "";
+                while (lower != null) {
+                    nextStmt.setString(1, lower);
+                    nextStmt.setInt(2, Math.max(1, chunkSize) - 1);
+                    String upper;
+                    try (ResultSet rs = nextStmt.executeQuery()) {
+                        upper = rs.next() ? rs.getString(1) : null;
+                    }
+
+                    PreparedStatement chunkSum = upper != null ? sumStmt : lastSumStmt;
+                    PreparedStatement chunkUpdate = upper != null ? updateStmt : lastUpdateStmt;
+                    bindRange(chunkSum, lower, upper);
+                    bindRange(chunkUpdate, lower, upper);
+
+                    try {
+                        BigDecimal before;
+                        try (ResultSet rs = chunkSum.executeQuery()) {
+                            before = rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO;
+                        }
+
+                        BigDecimal after = BigDecimal.ZERO;
+                        try (ResultSet rs = chunkUpdate.executeQuery()) {
+                            while (rs.next()) {
+                                BigDecimal balance = rs.getBigDecimal(2);
+                                after = after.add(balance);
+                                updatedUUIDs.add(UUID.fromString(rs.getString(1)));
+                                updatedBalances.add(Money.toMinor(balance));
+                            }
+                        }
+                        conn.commit();
+
+                        accounts += updatedUUIDs.size();
+                        total += Money.toMinor(after.subtract(before));
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+
+                    for (int i = 0; i < updatedUUIDs.size(); i++) {
+                        listener.accept(updatedUUIDs.get(i), updatedBalances.get(i));
+                    }
+                    updatedUUIDs.clear();
+                    updatedBalances.clear();
+                    lower = upper;
+                }
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP TABLE IF EXISTS bulk_skip");
+                }
+            }
+        } catch (SQLException e) {
+            throw BulkOperation.PartialFailure.of(new BulkOperation.Result(accounts, total), e);
+        }
+        return new BulkOperation.Result(accounts, total);
+    }
+
+    private static String bulkCondition(String newBalance, boolean bounded) {
+        return "player_uuid > ?" + (bounded ? " AND player_uuid <= ?" : "") + " AND " + newBalance + " <> balance " +
+                "AND NOT EXISTS (SELECT 1 FROM bulk_skip s WHERE s.player_uuid = player_balances.player_uuid)";
+    }
+
+    private static String bulkSum(String newBalance, boolean bounded) {
+        return "SELECT COALESCE(SUM(balance), 0) FROM player_balances WHERE " + bulkCondition(newBalance, bounded);
+    }
+
+    private static String bulkUpdate(String newBalance, boolean bounded) {
+        // version: i nodi in modalità cluster riconoscono gli account cambiati
+        return "SELECT player_uuid, balance FROM FINAL TABLE (UPDATE player_balances SET balance = " + newBalance +
+                ", version = version + 1, last_updated = CURRENT_TIMESTAMP WHERE " + bulkCondition(newBalance, bounded) + ")";
+    }
+
+    private static void bindRange(PreparedStatement stmt, String lower, String upper) throws SQLException {
+        stmt.setString(1, lower);
+        if (upper != null) {
+            stmt.setString(2, upper);
+        }
+    }
+
+    @Override
+    public int replay(Map<UUID, Long> balances) throws SQLException {
+        int missing = 0;
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_BALANCE)) {
+
+            conn.setAutoCommit(false);
+            for (Map.Entry<UUID, Long> entry : balances.entrySet()) {
+                stmt.setBigDecimal(1, BigDecimal.valueOf(entry.getValue(), 2));
+                stmt.setString(2, entry.getKey().toString());
+                stmt.addBatch();
+            }
+
+            try {
+                for (int updated : stmt.executeBatch()) {
+                    if (updated == 0) {
+                        missing++;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            try (PreparedStatement sync = conn.prepareStatement(SYNC_DATABASE)) {
+                sync.execute();
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public void sync() throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SYNC_DATABASE)) {
+            stmt.execute();
+        }
+    }
+
+    @Override
+    public long count(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM player_balances");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public void forEachAccount(Connection conn, AccountVisitor visitor) throws SQLException, IOException {
+        String query = "SELECT player_uuid, player_name, balance, last_updated FROM player_balances";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(new StoredAccount(UUID.fromString(rs.getString(1)), rs.getString(2),
+                            Money.toMinor(rs.getBigDecimal(3)), rs.getTimestamp(4)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void putAccounts(Connection conn, List<StoredAccount> accounts) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_ACCOUNT)) {
+            for (StoredAccount account : accounts) {
+                stmt.setString(1, account.playerUUID().toString());
+                stmt.setString(2, account.playerName());
+                stmt.setBigDecimal(3, BigDecimal.valueOf(account.balance(), 2));
+                stmt.setTimestamp(4, account.lastUpdated());
+                stmt.addBatch();
+            }
+
+            try {
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM player_balances")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+        // Le connessioni appartengono al pool di DatabaseManager
+    }
+}
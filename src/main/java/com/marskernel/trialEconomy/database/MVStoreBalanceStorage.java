@@ -0,0 +1,433 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.database.DatabaseManager.AccountRowConsumer;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceListener;
+import com.marskernel.trialEconomy.database.DatabaseManager.BalanceRecord;
+import com.marskernel.trialEconomy.database.DatabaseManager.BatchSaveResult;
+import com.marskernel.trialEconomy.database.DatabaseManager.TopBalances;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+import org.h2.mvstore.type.LongDataType;
+import org.h2.mvstore.type.StringDataType;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Account in un file MVStore separato (balances.mv.db), senza SQL, pool né conversioni DECIMAL:
+ * la mappa balances ha come chiave l'UUID in 16 byte e come valore il bilancio in centesimi.
+ *
+ * Nomi e ricerca per nome stanno in due mappe a parte (names e name_index), aggiornate solo quando
+ * il nome cambia. Le scritture singole restano in memoria e MVStore le salva in background;
+ * i blocchi di saveBalances, le operazioni di massa e {@link #sync} le confermano su disco.
+ */
+class MVStoreBalanceStorage implements BalanceStorage {
+
+    static final String FILE_NAME = "balances.mv.db";
+
+    private final Logger logger;
+    private final MVStore store;
+    private final MVMap<UUID, Long> balances;
+    private final MVMap<UUID, String> names;
+    private final MVMap<String, UUID> nameIndex;
+
+    MVStoreBalanceStorage(File dataFolder, Logger logger) {
+        this.logger = logger;
+        this.store = new MVStore.Builder()
+                .fileName(new File(dataFolder, FILE_NAME).getAbsolutePath())
+                .open();
+
+        this.balances = store.openMap("balances", new MVMap.Builder<UUID, Long>()
+                .keyType(UuidDataType.INSTANCE)
+                .valueType(LongDataType.INSTANCE));
+        this.names = store.openMap("names", new MVMap.Builder<UUID, String>()
+                .keyType(UuidDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE));
+        this.nameIndex = store.openMap("name_index", new MVMap.Builder<String, UUID>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(UuidDataType.INSTANCE));
+    }
+
+    static boolean exists(File dataFolder) {
+        return new File(dataFolder, FILE_NAME).isFile();
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.MVSTORE;
+    }
+
+    @Override
+    public long loadBalance(UUID playerUUID, String playerName, long defaultBalance) throws SQLException {
+        try {
+            Long balance = balances.putIfAbsent(playerUUID, defaultBalance);
+            if (balance != null) {
+                return balance;
+            }
+
+            putName(playerUUID, playerName);
+            logger.info("Nuovo account economy creato per " + playerName + " con bilancio iniziale: " +
+                    BigDecimal.valueOf(defaultBalance, 2));
+            return defaultBalance;
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Letture puntuali sulla mappa: chunkSize non serve, non ci sono query da limitare
+     */
+    @Override
+    public Map<UUID, Long> loadBalances(Map<UUID, String> players, long defaultBalance, int chunkSize) {
+        Map<UUID, Long> result = new HashMap<>();
+        int created = 0;
+
+        try {
+            for (Map.Entry<UUID, String> player : players.entrySet()) {
+                Long balance = balances.putIfAbsent(player.getKey(), defaultBalance);
+                if (balance == null) {
+                    putName(player.getKey(), player.getValue());
+                    balance = defaultBalance;
+                    created++;
+                }
+                result.put(player.getKey(), balance);
+            }
+        } catch (MVStoreException e) {
+            logger.severe("Errore durante il caricamento di " + players.size() + " bilanciamenti: " + e.getMessage());
+        }
+
+        if (created > 0) {
+            logger.info(created + " nuovi account economy creati con bilancio iniziale: " +
+                    BigDecimal.valueOf(defaultBalance, 2));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean saveBalance(BalanceRecord record) {
+        try {
+            balances.put(record.playerUUID(), record.balance());
+            putName(record.playerUUID(), record.playerName());
+            return true;
+        } catch (MVStoreException e) {
+            logger.severe("Errore durante il salvataggio del bilancio per " + record.playerName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ogni blocco viene confermato con un commit di MVStore; le scritture di un blocco fallito
+     * potrebbero essere già nella mappa, ma vengono comunque ritentate
+     */
+    @Override
+    public BatchSaveResult saveBalances(List<BalanceRecord> records, int batchSize) {
+        int written = 0;
+        List<BalanceRecord> failed = new ArrayList<>();
+
+        for (int from = 0; from < records.size(); from += batchSize) {
+            List<BalanceRecord> chunk = records.subList(from, Math.min(from + batchSize, records.size()));
+
+            try {
+                for (BalanceRecord record : chunk) {
+                    balances.put(record.playerUUID(), record.balance());
+                    putName(record.playerUUID(), record.playerName());
+                }
+                store.commit();
+                written += chunk.size();
+            } catch (MVStoreException e) {
+                logger.severe("Errore durante il salvataggio batch di " + chunk.size() + " bilanciamenti: " + e.getMessage());
+                failed.addAll(chunk);
+            }
+        }
+
+        return new BatchSaveResult(written, failed);
+    }
+
+    /**
+     * Aggiorna nome e indice per nome solo se il nome è cambiato (quasi mai: nessuna scrittura)
+     */
+    private void putName(UUID playerUUID, String playerName) {
+        if (playerName == null || playerName.equals(names.get(playerUUID))) {
+            return;
+        }
+
+        synchronized (names) {
+            String previous = names.put(playerUUID, playerName);
+            if (previous != null) {
+                nameIndex.remove(previous.toLowerCase(Locale.ROOT), playerUUID);
+            }
+            nameIndex.put(playerName.toLowerCase(Locale.ROOT), playerUUID);
+        }
+    }
+
+    @Override
+    public UUID findByName(String playerName) {
+        try {
+            return nameIndex.get(playerName.toLowerCase(Locale.ROOT));
+        } catch (MVStoreException e) {
+            logger.severe("Errore durante la ricerca del giocatore " + playerName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int streamAccounts(AccountRowConsumer consumer) {
+        int count = 0;
+
+        try {
+            Cursor<UUID, Long> cursor = balances.cursor(null);
+            while (cursor.hasNext()) {
+                UUID uuid = cursor.next();
+                consumer.accept(uuid, names.get(uuid), BigDecimal.valueOf(cursor.getValue(), 2));
+                count++;
+            }
+        } catch (MVStoreException e) {
+            logger.severe("Errore durante la lettura degli account: " + e.getMessage());
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Nessun indice per bilancio: scansione completa tenendo solo le prime offset + limit righe.
+     * Usato solo finché la classifica in memoria non è stata caricata.
+     */
+    @Override
+    public TopBalances loadTopBalances(int offset, int limit) {
+        // Stesso ordine di ORDER BY balance DESC, player_uuid
+        Comparator<long[]> order = Comparator.<long[]>comparingLong(row -> -row[0])
+                .thenComparing((a, b) -> UuidDataType.INSTANCE.compare(a[1], a[2], b[1], b[2]));
+        int keep = offset + limit;
+        PriorityQueue<long[]> top = new PriorityQueue<>(Math.max(1, Math.min(keep, 1024)), order.reversed());
+
+        try {
+            Cursor<UUID, Long> cursor = balances.cursor(null);
+            while (cursor.hasNext() && keep > 0) {
+                UUID uuid = cursor.next();
+                long[] row = {cursor.getValue(), uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+                if (top.size() < keep) {
+                    top.add(row);
+                } else if (order.compare(row, top.peek()) < 0) {
+                    top.poll();
+                    top.add(row);
+                }
+            }
+
+            List<long[]> sorted = new ArrayList<>(top);
+            sorted.sort(order);
+
+            List<BalanceRecord> records = new ArrayList<>(limit);
+            for (int i = offset; i < sorted.size(); i++) {
+                long[] row = sorted.get(i);
+                UUID uuid = new UUID(row[1], row[2]);
+                records.add(new BalanceRecord(uuid, names.get(uuid), row[0]));
+            }
+            return new TopBalances((int) balances.sizeAsLong(), records);
+        } catch (MVStoreException e) {
+            logger.severe("Errore durante il caricamento della classifica: " + e.getMessage());
+            return new TopBalances(0, List.of());
+        }
+    }
+
+    /**
+     * Calcolo con {@link BulkOperation#apply(long)} su ogni account, un commit ogni chunkSize account.
+     * Ogni modifica è un compare-and-set sul valore letto: un salvataggio concorrente non viene sovrascritto.
+     */
+    @Override
+    public BulkOperation.Result applyBulk(BulkOperation operation, Collection<UUID> skip, int chunkSize,
+                                          BalanceListener listener) throws SQLException {
+        Set<UUID> excluded = skip instanceof Set<UUID> set ? set : new HashSet<>(skip);
+        int size = Math.max(1, chunkSize);
+
+        long accounts = 0;
+        long total = 0;
+        List<UUID> updatedUUIDs = new ArrayList<>();
+        List<Long> updatedBalances = new ArrayList<>();
+
+        try {
+            Cursor<UUID, Long> cursor = balances.cursor(null);
+            while (cursor.hasNext()) {
+                UUID uuid = cursor.next();
+                if (!excluded.contains(uuid)) {
+                    long before = cursor.getValue();
+                    long after = operation.apply(before);
+
+                    while (after != before && !balances.replace(uuid, before, after)) {
+                        Long current = balances.get(uuid);
+                        if (current == null) {
+                            break;
+                        }
+                        before = current;
+                        after = operation.apply(before);
+                    }
+
+                    if (after != before) {
+                        updatedUUIDs.add(uuid);
+                        updatedBalances.add(after);
+                        total += after - before;
+                    }
+                }
+
+                if (updatedUUIDs.size() >= size || !cursor.hasNext()) {
+                    store.commit();
+                    accounts += updatedUUIDs.size();
+
+                    for (int i = 0; i < updatedUUIDs.size(); i++) {
+                        listener.accept(updatedUUIDs.get(i), updatedBalances.get(i));
+                    }
+                    updatedUUIDs.clear();
+                    updatedBalances.clear();
+                }
+            }
+        } catch (MVStoreException e) {
+            throw BulkOperation.PartialFailure.of(new BulkOperation.Result(accounts, total), new SQLException(e.getMessage(), e));
+        }
+        return new BulkOperation.Result(accounts, total);
+    }
+
+    @Override
+    public int replay(Map<UUID, Long> balances) throws SQLException {
+        int missing = 0;
+        try {
+            for (Map.Entry<UUID, Long> entry : balances.entrySet()) {
+                if (this.balances.replace(entry.getKey(), entry.getValue()) == null) {
+                    missing++;
+                }
+            }
+            store.commit();
+            store.sync();
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        return missing;
+    }
+
+    @Override
+    public void sync() throws SQLException {
+        try {
+            store.commit();
+            store.sync();
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long count(Connection conn) {
+        return balances.sizeAsLong();
+    }
+
+    /**
+     * Gli account non hanno last_updated: lastUpdated è sempre null
+     */
+    @Override
+    public void forEachAccount(Connection conn, AccountVisitor visitor) throws SQLException, IOException {
+        try {
+            Cursor<UUID, Long> cursor = balances.cursor(null);
+            while (cursor.hasNext()) {
+                UUID uuid = cursor.next();
+                visitor.visit(new StoredAccount(uuid, names.get(uuid), cursor.getValue(), null));
+            }
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void putAccounts(Connection conn, List<StoredAccount> accounts) throws SQLException {
+        try {
+            for (StoredAccount account : accounts) {
+                balances.put(account.playerUUID(), account.balance());
+                putName(account.playerUUID(), account.playerName());
+            }
+            store.commit();
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() throws SQLException {
+        try {
+            balances.clear();
+            names.clear();
+            nameIndex.clear();
+            store.commit();
+        } catch (MVStoreException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chiude il file dopo un ultimo commit, quando l'executor non ha più operazioni in corso
+     */
+    @Override
+    public void close() {
+        if (!store.isClosed()) {
+            store.close();
+        }
+    }
+
+    /**
+     * UUID come chiave da 16 byte, ordinato come la sua forma testuale (player_uuid nel database)
+     */
+    static final class UuidDataType extends BasicDataType<UUID> {
+
+        static final UuidDataType INSTANCE = new UuidDataType();
+
+        private UuidDataType() {
+        }
+
+        @Override
+        public int getMemory(UUID uuid) {
+            return 40;
+        }
+
+        @Override
+        public void write(WriteBuffer buffer, UUID uuid) {
+            buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+
+        @Override
+        public UUID read(ByteBuffer buffer) {
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        @Override
+        public int compare(UUID a, UUID b) {
+            return compare(a.getMostSignificantBits(), a.getLeastSignificantBits(),
+                    b.getMostSignificantBits(), b.getLeastSignificantBits());
+        }
+
+        // Le cifre esadecimali minuscole hanno lo stesso ordine dei bit senza segno
+        int compare(long aMost, long aLeast, long bMost, long bLeast) {
+            int result = Long.compareUnsigned(aMost, bMost);
+            return result != 0 ? result : Long.compareUnsigned(aLeast, bLeast);
+        }
+
+        @Override
+        public UUID[] createStorage(int size) {
+            return new UUID[size];
+        }
+    }
+}
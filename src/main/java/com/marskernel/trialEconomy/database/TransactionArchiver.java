@@ -0,0 +1,299 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ciclo di vita del log transazioni: la tabella transaction_logs contiene solo gli ultimi
+ * transaction-log.retention-days giorni, le voci più vecchie finiscono in archivi compressi.
+ *
+ * Un thread dedicato legge le voci scadute a blocchi di archive-batch-size righe (dalla più vecchia,
+ * tramite idx_transaction_timestamp), le aggiunge al file del loro mese
+ * plugins/trial-economy/archive/transactions-AAAA-MM.ndjson.gz, forza il file su disco e solo dopo
+ * cancella le stesse righe in un'unica transazione. La memoria usata è limitata ad un blocco.
+ *
+ * Ogni blocco è un membro gzip a sé accodato al file (zcat e GZIPInputStream li leggono di seguito).
+ * Un arresto tra la scrittura e la cancellazione può solo duplicare un blocco nell'archivio,
+ * mai perdere voci; ogni riga contiene l'id per riconoscere i duplicati.
+ */
+public class TransactionArchiver {
+
+    private static final String SELECT_EXPIRED = """
+            SELECT id, sender_uuid, receiver_uuid, amount, transaction_type, timestamp, description
+            FROM transaction_logs
+            WHERE timestamp < ?
+            ORDER BY timestamp, id
+            LIMIT ?
+            """;
+
+    private static final String DELETE_BY_ID = "DELETE FROM transaction_logs WHERE id = ?";
+
+    private final DatabaseManager database;
+    private final Logger logger;
+    private final File directory;
+
+    private final int retentionDays; // 0 = conserva tutto
+    private final boolean archive; // false = le voci scadute vengono solo cancellate
+    private final long interval; // In ore
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    public TransactionArchiver(DatabaseManager database, File dataFolder, Logger logger,
+                               int retentionDays, boolean archive, long intervalHours, int batchSize) {
+        this.database = database;
+        this.logger = logger;
+        this.directory = new File(dataFolder, "archive");
+
+        this.retentionDays = Math.max(0, retentionDays);
+        this.archive = archive;
+        this.interval = Math.max(1, intervalHours);
+        this.batchSize = Math.max(1, batchSize);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TrialEconomy-Archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Avvia l'archiviazione periodica (la prima un minuto dopo l'avvio, per non rallentarlo)
+     */
+    public void start() {
+        if (retentionDays == 0) {
+            return;
+        }
+
+        scheduler.scheduleWithFixedDelay(this::run, 60, TimeUnit.HOURS.toSeconds(interval), TimeUnit.SECONDS);
+    }
+
+    private void run() {
+        try {
+            long start = System.currentTimeMillis();
+            int archived = archiveExpired();
+            if (archived > 0) {
+                logger.info("Log transazioni: " + archived + " voci più vecchie di " + retentionDays + " giorni " +
+                        (archive ? "archiviate" : "eliminate") + " in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (RuntimeException e) {
+            logger.severe("Errore durante l'archiviazione del log transazioni: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Archivia e cancella tutte le voci più vecchie del periodo di conservazione
+     * @return Numero di voci rimosse dalla tabella
+     */
+    public int archiveExpired() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        int total = 0;
+
+        while (!scheduler.isShutdown()) {
+            long start = System.nanoTime();
+            List<ArchivedEntry> chunk;
+            try {
+                chunk = readExpired(cutoff);
+            } catch (SQLException e) {
+                logger.severe("Errore durante la lettura delle transazioni da archiviare: " + e.getMessage());
+                break;
+            }
+
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            if (archive) {
+                try {
+                    writeArchive(chunk);
+                } catch (IOException e) {
+                    // Le righe restano nel database: nessuna cancellazione senza archivio
+                    logger.severe("Impossibile scrivere l'archivio delle transazioni: " + e.getMessage());
+                    break;
+                }
+            }
+
+            try {
+                deleteArchived(chunk);
+            } catch (SQLException e) {
+                logger.severe("Errore durante la cancellazione delle transazioni archiviate: " + e.getMessage());
+                break;
+            }
+
+            total += chunk.size();
+            database.getMetrics().recordDatabase(DatabaseOperation.ARCHIVE_BATCH, System.nanoTime() - start);
+
+            if (chunk.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private List<ArchivedEntry> readExpired(Timestamp cutoff) throws SQLException {
+        List<ArchivedEntry> chunk = new ArrayList<>(batchSize);
+
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_EXPIRED)) {
+
+            stmt.setTimestamp(1, cutoff);
+            stmt.setInt(2, batchSize);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    chunk.add(new ArchivedEntry(
+                            rs.getLong(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getBigDecimal(4).toPlainString(),
+                            rs.getString(5),
+                            rs.getTimestamp(6).getTime(),
+                            rs.getString(7)));
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Accoda il blocco ai file dei rispettivi mesi (il blocco è ordinato per timestamp)
+     */
+    private void writeArchive(List<ArchivedEntry> chunk) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("impossibile creare " + directory.getPath());
+        }
+
+        int from = 0;
+        while (from < chunk.size()) {
+            YearMonth month = monthOf(chunk.get(from));
+            int to = from + 1;
+            while (to < chunk.size() && monthOf(chunk.get(to)).equals(month)) {
+                to++;
+            }
+
+            appendSegment(new File(directory, "transactions-" + month + ".ndjson.gz"), chunk.subList(from, to));
+            from = to;
+        }
+    }
+
+    private void appendSegment(File file, List<ArchivedEntry> entries) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(output, 64 * 1024);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+
+            for (ArchivedEntry entry : entries) {
+                writer.write(entry.toJson());
+                writer.newLine();
+            }
+            writer.flush();
+            gzip.finish();
+
+            // Il blocco deve essere su disco prima di cancellarlo dal database
+            output.getChannel().force(true);
+        }
+    }
+
+    private void deleteArchived(List<ArchivedEntry> chunk) throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DELETE_BY_ID)) {
+
+            conn.setAutoCommit(false);
+            for (ArchivedEntry entry : chunk) {
+                stmt.setLong(1, entry.id());
+                stmt.addBatch();
+            }
+
+            try {
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static YearMonth monthOf(ArchivedEntry entry) {
+        return YearMonth.from(Instant.ofEpochMilli(entry.timestamp()).atZone(ZoneId.systemDefault()));
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * Ferma l'archiviazione; un blocco in corso viene completato
+     */
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Voce del log letta dal database, scritta nell'archivio come una riga JSON
+     */
+    private record ArchivedEntry(long id, String sender, String receiver, String amount, String type,
+                                 long timestamp, String description) {
+
+        String toJson() {
+            return "{\"id\":" + id +
+                    ",\"timestamp\":\"" + Instant.ofEpochMilli(timestamp) + "\"" +
+                    ",\"sender\":" + quote(sender) +
+                    ",\"receiver\":" + quote(receiver) +
+                    ",\"amount\":\"" + amount + "\"" +
+                    ",\"type\":" + quote(type) +
+                    ",\"description\":" + quote(description) + "}";
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "null";
+            }
+
+            StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    case '\n' -> json.append("\\n");
+                    case '\r' -> json.append("\\r");
+                    case '\t' -> json.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            return json.append('"').toString();
+        }
+    }
+}
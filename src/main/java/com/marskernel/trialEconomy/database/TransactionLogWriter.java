@@ -0,0 +1,507 @@
+package com.marskernel.trialEconomy.database;
+
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Scrittore asincrono del log transazioni.
+ *
+ * I produttori accodano le voci in una coda lock-free limitata; un unico thread dedicato
+ * la svuota in batch JDBC (una transazione per batch) quando raggiunge flush-size voci
+ * oppure dopo flush-latency millisecondi. Così il log non compete con i salvataggi dei
+ * bilanci per le connessioni del pool.
+ *
+ * Con la coda piena si applica la policy configurata: BLOCK attende spazio, DROP scarta
+ * la voce (contata), SPILL la scrive su file e la reinserisce nel database al prossimo avvio.
+ */
+public class TransactionLogWriter {
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, SPILL
+    }
+
+    private static final String INSERT_LOG =
+            "INSERT INTO transaction_logs (sender_uuid, receiver_uuid, amount, transaction_type, timestamp, description) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final DatabaseManager database;
+    private final Logger logger;
+    private final File spillFile;
+
+    private final int capacity;
+    private final int flushSize;
+    private final long flushLatencyNanos;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ConcurrentLinkedQueue<LogEntry> queue;
+    private final AtomicInteger depth;
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    // Metriche
+    private final LongAdder written;
+    private final LongAdder batches;
+    private final LongAdder dropped;
+    private final LongAdder spilled;
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    // Riceve le voci scritte con il loro id (null = chiavi generate non richieste)
+    private volatile DatabaseManager.HistoryListener listener;
+
+    private final Object spillLock = new Object();
+    private BufferedWriter spillWriter;
+
+    public TransactionLogWriter(DatabaseManager database, File dataFolder, Logger logger,
+                                int capacity, int flushSize, long flushLatencyMillis, OverflowPolicy overflowPolicy) {
+        this.database = database;
+        this.logger = logger;
+        this.spillFile = new File(dataFolder, "transaction-spill.log");
+
+        this.capacity = Math.max(1, capacity);
+        this.flushSize = Math.max(1, Math.min(flushSize, this.capacity));
+        this.flushLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushLatencyMillis));
+        this.overflowPolicy = overflowPolicy;
+
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+
+        this.written = new LongAdder();
+        this.batches = new LongAdder();
+        this.dropped = new LongAdder();
+        this.spilled = new LongAdder();
+
+        this.writerThread = new Thread(this::runWriter, "TrialEconomy-LogWriter");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Reinserisce le voci rimaste su file da un'esecuzione precedente e avvia il thread di scrittura
+     */
+    public void start() {
+        recoverSpill();
+        running = true;
+        writerThread.start();
+    }
+
+    void setListener(DatabaseManager.HistoryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Accoda una voce del log. Non esegue I/O sul thread chiamante, salvo con policy SPILL a coda piena.
+     */
+    public void submit(UUID sender, UUID receiver, BigDecimal amount, String type, String description) {
+        LogEntry entry = new LogEntry(sender, receiver, amount, type, System.currentTimeMillis(), description);
+
+        while (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            LockSupport.unpark(writerThread);
+
+            switch (overflowPolicy) {
+                case DROP -> {
+                    dropped.increment();
+                    return;
+                }
+                case SPILL -> {
+                    spill(List.of(entry));
+                    return;
+                }
+                case BLOCK -> {
+                    if (!running) {
+                        spill(List.of(entry));
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        }
+
+        queue.offer(entry);
+        if (depth.get() >= flushSize) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Ciclo del thread dedicato: attende un batch pieno o la latenza massima, poi scrive
+     */
+    private void runWriter() {
+        List<LogEntry> batch = new ArrayList<>(flushSize);
+
+        while (running || !queue.isEmpty()) {
+            if (running && depth.get() < flushSize) {
+                LockSupport.parkNanos(this, flushLatencyNanos);
+            }
+
+            LogEntry entry;
+            while ((entry = queue.poll()) != null) {
+                depth.decrementAndGet();
+                batch.add(entry);
+
+                if (batch.size() >= flushSize) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Scrive un batch in un'unica transazione; se il database non è disponibile il batch va su file.
+     * Anche gli errori imprevisti (pool, driver) finiscono qui: il thread di scrittura non deve mai terminare
+     */
+    private void writeBatch(List<LogEntry> batch) {
+        long start = System.nanoTime();
+        DatabaseManager.HistoryListener listener = this.listener;
+        boolean committed = false;
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = listener != null
+                     ? conn.prepareStatement(INSERT_LOG, new String[]{"ID"})
+                     : conn.prepareStatement(INSERT_LOG)) {
+
+            conn.setAutoCommit(false);
+            for (LogEntry entry : batch) {
+                bind(stmt, entry);
+                stmt.addBatch();
+            }
+
+            try {
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+            committed = true;
+
+            written.add(batch.size());
+            batches.increment();
+            lastBatchSize = batch.size();
+            if (batch.size() > maxBatchSize) {
+                maxBatchSize = batch.size();
+            }
+            database.getMetrics().recordDatabase(DatabaseOperation.LOG_BATCH, System.nanoTime() - start);
+
+            if (listener != null) {
+                notifyListener(listener, stmt, batch);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (committed) {
+                // Le voci sono già nel database: su file verrebbero reinserite due volte
+                logger.warning("Errore dopo la scrittura di " + batch.size() + " transazioni nel log: " + e);
+                return;
+            }
+            logger.severe("Errore durante la scrittura di " + batch.size() + " transazioni nel log: " + e);
+            spill(batch);
+        }
+    }
+
+    /**
+     * Passa al listener le voci del batch appena confermato, con gli id generati nell'ordine di inserimento
+     */
+    private void notifyListener(DatabaseManager.HistoryListener listener, PreparedStatement stmt, List<LogEntry> batch) {
+        List<DatabaseManager.HistoryEntry> entries = new ArrayList<>(batch.size());
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            for (int i = 0; i < batch.size() && keys.next(); i++) {
+                LogEntry entry = batch.get(i);
+                entries.add(new DatabaseManager.HistoryEntry(keys.getLong(1), entry.sender(), entry.receiver(),
+                        Money.toMinor(entry.amount()),
+                        entry.type(), entry.timestamp(), entry.description()));
+            }
+        } catch (SQLException | ArithmeticException e) {
+            logger.warning("Impossibile leggere gli id delle transazioni scritte: " + e.getMessage());
+        }
+
+        try {
+            listener.logged(entries);
+            if (entries.size() < batch.size()) {
+                listener.missed();
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Errore nel listener del log transazioni: " + e.getMessage());
+        }
+    }
+
+    private void bind(PreparedStatement stmt, LogEntry entry) throws SQLException {
+        stmt.setString(1, entry.sender() != null ? entry.sender().toString() : null);
+        stmt.setString(2, entry.receiver() != null ? entry.receiver().toString() : null);
+        stmt.setBigDecimal(3, entry.amount());
+        stmt.setString(4, entry.type());
+        stmt.setTimestamp(5, new Timestamp(entry.timestamp()));
+        stmt.setString(6, entry.description());
+    }
+
+    /**
+     * Accoda le voci sul file di spill (una per riga, campi separati da tab)
+     */
+    private void spill(List<LogEntry> entries) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    spillWriter = Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+
+                for (LogEntry entry : entries) {
+                    spillWriter.write(entry.toLine());
+                    spillWriter.newLine();
+                }
+                spillWriter.flush();
+                spilled.add(entries.size());
+            } catch (IOException e) {
+                logger.severe("Impossibile scrivere " + entries.size() + " transazioni su " + spillFile.getName() + ": " + e.getMessage());
+                dropped.add(entries.size());
+            }
+        }
+    }
+
+    /**
+     * Reinserisce nel database le voci salvate su file in un'unica transazione e rimuove il file.
+     * Se l'inserimento fallisce non viene confermata nessuna voce e il file resta per il prossimo avvio;
+     * le righe illeggibili (ad es. l'ultima riga troncata da un crash) vengono spostate in un file .bad
+     */
+    private void recoverSpill() {
+        if (!spillFile.exists()) {
+            return;
+        }
+
+        int recovered = 0;
+        List<String> badLines = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(spillFile.toPath(), StandardCharsets.UTF_8);
+             Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_LOG)) {
+
+            conn.setAutoCommit(false);
+            try {
+                int pending = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+
+                    LogEntry entry = LogEntry.parse(line);
+                    if (entry == null) {
+                        badLines.add(line);
+                        continue;
+                    }
+
+                    bind(stmt, entry);
+                    stmt.addBatch();
+                    recovered++;
+                    if (++pending >= flushSize) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            logger.severe("Errore durante il recupero di " + spillFile.getName() + ", il file viene conservato: " + e.getMessage());
+            return;
+        }
+
+        if (!badLines.isEmpty()) {
+            moveBadLines(badLines);
+        }
+        if (!spillFile.delete()) {
+            logger.warning("Impossibile eliminare " + spillFile.getName() + " dopo il recupero!");
+        }
+        logger.info("Recuperate " + recovered + " transazioni da " + spillFile.getName());
+    }
+
+    /**
+     * Accoda le righe illeggibili del file di spill nel file .bad, da controllare a mano
+     */
+    private void moveBadLines(List<String> lines) {
+        File badFile = new File(spillFile.getParentFile(), spillFile.getName() + ".bad");
+        try {
+            Files.write(badFile.toPath(), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            logger.warning(lines.size() + " righe illeggibili di " + spillFile.getName() + " spostate in " + badFile.getName());
+        } catch (IOException e) {
+            logger.severe("Impossibile scrivere " + badFile.getName() + ", righe illeggibili scartate: " + lines);
+        }
+    }
+
+    /**
+     * Svuota la coda e ferma il thread di scrittura. Quanto non scritto entro il timeout va su file.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive() || !queue.isEmpty()) {
+            List<LogEntry> remaining = new ArrayList<>();
+            LogEntry entry;
+            while ((entry = queue.poll()) != null) {
+                depth.decrementAndGet();
+                remaining.add(entry);
+            }
+            if (!remaining.isEmpty()) {
+                logger.warning("Timeout durante lo svuotamento del log transazioni, " + remaining.size() + " voci salvate su file");
+                spill(remaining);
+            }
+        }
+
+        synchronized (spillLock) {
+            if (spillWriter != null) {
+                try {
+                    spillWriter.close();
+                } catch (IOException ignored) {
+                }
+                spillWriter = null;
+            }
+        }
+
+        logger.info("Log transazioni chiuso: " + written.sum() + " voci scritte in " + batches.sum() +
+                " batch (max " + maxBatchSize + "), " + spilled.sum() + " su file, " + dropped.sum() + " scartate");
+    }
+
+    /**
+     * Voci attualmente in coda
+     */
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Dimensione media dei batch scritti
+     */
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) written.sum() / count;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    /**
+     * Voce del log in attesa di scrittura (timestamp catturato all'accodamento)
+     */
+    private record LogEntry(UUID sender, UUID receiver, BigDecimal amount, String type, long timestamp, String description) {
+
+        String toLine() {
+            return timestamp + "\t" + (sender != null ? sender : "") + "\t" + (receiver != null ? receiver : "") + "\t" +
+                    amount.toPlainString() + "\t" + type + "\t" + escape(description);
+        }
+
+        /**
+         * @return null se la riga è incompleta o non valida
+         */
+        static LogEntry parse(String line) {
+            String[] parts = line.split("\t", 6);
+            if (parts.length < 6) {
+                return null;
+            }
+
+            try {
+                return new LogEntry(
+                        parts[1].isEmpty() ? null : UUID.fromString(parts[1]),
+                        parts[2].isEmpty() ? null : UUID.fromString(parts[2]),
+                        new BigDecimal(parts[3]),
+                        parts[4],
+                        Long.parseLong(parts[0]),
+                        unescape(parts[5])
+                );
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "\\0";
+            }
+            return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+        }
+
+        private static String unescape(String value) {
+            if (value.equals("\\0")) {
+                return null;
+            }
+
+            StringBuilder builder = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length()) {
+                    char next = value.charAt(++i);
+                    builder.append(switch (next) {
+                        case 't' -> '\t';
+                        case 'n' -> '\n';
+                        case 'r' -> '\r';
+                        default -> next;
+                    });
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -4,21 +4,42 @@ import com.marskernel.trialEconomy.manager.EconomyManager;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Listener per eventi dei giocatori
  * Gestisce il caricamento e salvataggio automatico dei bilanciamenti
  */
 public class PlayerListener implements Listener {
 
+    private static final long PRELOGIN_WAIT = 2; // In secondi
+
     private final EconomyManager economyManager;
 
     public PlayerListener(EconomyManager economyManager) {
         this.economyManager = economyManager;
     }
 
+    /**
+     * Carica l'account durante il login, sul thread asincrono del login: al join il bilancio è già in cache
+     * e le letture sincrone (Vault) non ricadono sulla classifica. Con il database lento il login attende
+     * al massimo PRELOGIN_WAIT secondi, poi il caricamento prosegue in background.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        economyManager.prefetch(event.getUniqueId(), event.getName())
+                .completeOnTimeout(null, PRELOGIN_WAIT, TimeUnit.SECONDS)
+                .join();
+    }
+
     /**
      * Carica il bilancio del giocatore quando si connette
      */
@@ -0,0 +1,82 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock striped per account: ogni UUID è associato ad uno di N lock,
+ * così le operazioni su account diversi procedono in parallelo senza un lock globale.
+ *
+ * Per le operazioni su due account i lock vengono sempre acquisiti in ordine crescente
+ * di stripe (derivato dall'UUID): due trasferimenti incrociati A→B e B→A non possono
+ * andare in deadlock, e due UUID sulla stessa stripe prendono un solo lock.
+ */
+public class AccountLocks {
+
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public AccountLocks(int stripeCount) {
+        // Arrotonda alla potenza di due successiva per usare una maschera al posto del modulo
+        int size = Integer.highestOneBit(Math.max(2, stripeCount) - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Esegue un'operazione con il lock dell'account acquisito
+     */
+    public <T> T withLock(UUID uuid, Supplier<T> action) {
+        ReentrantLock lock = stripes[indexOf(uuid)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Esegue un'operazione con i lock di entrambi gli account acquisiti in ordine stabile
+     */
+    public <T> T withLocks(UUID first, UUID second, Supplier<T> action) {
+        int firstIndex = indexOf(first);
+        int secondIndex = indexOf(second);
+
+        if (firstIndex == secondIndex) {
+            return withLock(first, action);
+        }
+
+        ReentrantLock lower = stripes[Math.min(firstIndex, secondIndex)];
+        ReentrantLock upper = stripes[Math.max(firstIndex, secondIndex)];
+
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    private int indexOf(UUID uuid) {
+        // Mescola i bit alti, gli UUID v4 hanno entropia distribuita su tutto il valore
+        int hash = uuid.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
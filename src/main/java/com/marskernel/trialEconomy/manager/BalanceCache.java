@@ -0,0 +1,203 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache limitata dei bilanci.
+ *
+ * - Limite massimo di voci (cache.max-entries)
+ * - Eviction LFU con aging: si rimuovono prima le voci usate meno spesso (e da più tempo)
+ * - Le voci con modifiche non ancora salvate e quelle dei giocatori online non vengono mai rimosse
+ * - Le voci offline inattive da più di cache-duration scadono
+ * - Statistiche di hit, miss, eviction e scadenze
+ *
+ * La manutenzione gira periodicamente fuori dal main thread; ogni rimozione avviene con il
+ * lock dell'account, quindi non può interferire con una modifica in corso.
+ */
+public class BalanceCache {
+
+    private static final Comparator<Candidate> EVICTION_ORDER =
+            Comparator.comparingInt(Candidate::frequency).thenComparingLong(Candidate::lastAccess);
+
+    private final ConcurrentHashMap<UUID, CachedAccount> accounts;
+    private final AccountLocks accountLocks;
+
+    private volatile int maxEntries;
+    private volatile long expireAfter; // In millisecondi
+
+    // Statistiche
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder expirations;
+    private final LongAdder refreshes;
+
+    public BalanceCache(AccountLocks accountLocks, int maxEntries, long expireAfter) {
+        this.accounts = new ConcurrentHashMap<>();
+        this.accountLocks = accountLocks;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.expireAfter = expireAfter;
+
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.expirations = new LongAdder();
+        this.refreshes = new LongAdder();
+    }
+
+    /**
+     * Legge una voce registrando hit o miss e aggiornando la frequenza d'uso
+     */
+    CachedAccount get(UUID uuid) {
+        CachedAccount account = accounts.get(uuid);
+        if (account == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        account.touch(System.currentTimeMillis());
+        return account;
+    }
+
+    /**
+     * Legge una voce senza effetti sulle statistiche (uso interno, ad es. sotto lock)
+     */
+    CachedAccount peek(UUID uuid) {
+        return accounts.get(uuid);
+    }
+
+    /**
+     * Inserisce una voce se assente
+     * @return Voce già presente, o null se è stata inserita quella nuova
+     */
+    CachedAccount putIfAbsent(UUID uuid, CachedAccount account) {
+        return accounts.putIfAbsent(uuid, account);
+    }
+
+    CachedAccount computeIfAbsent(UUID uuid, Function<UUID, CachedAccount> factory) {
+        return accounts.computeIfAbsent(uuid, factory);
+    }
+
+    /**
+     * Indica se la cache ha superato il limite di voci
+     */
+    boolean isOverCapacity() {
+        return accounts.size() > maxEntries;
+    }
+
+    /**
+     * Copia degli UUID in cache (ad es. per le operazioni di massa)
+     */
+    List<UUID> keys() {
+        return new ArrayList<>(accounts.keySet());
+    }
+
+    /**
+     * Voci dei giocatori online, per il refresh-ahead
+     */
+    List<Map.Entry<UUID, CachedAccount>> onlineEntries() {
+        List<Map.Entry<UUID, CachedAccount>> online = new ArrayList<>();
+        for (Map.Entry<UUID, CachedAccount> entry : accounts.entrySet()) {
+            if (entry.getValue().online) {
+                online.add(entry);
+            }
+        }
+        return online;
+    }
+
+    /**
+     * Fa scadere le voci inattive e, oltre il limite, rimuove quelle meno usate.
+     * Le frequenze vengono poi dimezzate, così gli accessi vecchi pesano sempre meno.
+     */
+    void runMaintenance(long now) {
+        long expireBefore = now - expireAfter;
+        List<Candidate> candidates = new ArrayList<>();
+
+        for (Map.Entry<UUID, CachedAccount> entry : accounts.entrySet()) {
+            CachedAccount account = entry.getValue();
+            if (account.online || !account.isClean()) {
+                continue;
+            }
+
+            if (account.lastAccess < expireBefore) {
+                if (removeIfEvictable(entry.getKey(), account)) {
+                    expirations.increment();
+                }
+            } else {
+                candidates.add(new Candidate(entry.getKey(), account, account.frequency, account.lastAccess));
+            }
+        }
+
+        int excess = accounts.size() - maxEntries;
+        if (excess > 0) {
+            candidates.sort(EVICTION_ORDER);
+            for (int i = 0; i < candidates.size() && excess > 0; i++) {
+                Candidate candidate = candidates.get(i);
+                if (removeIfEvictable(candidate.uuid(), candidate.account())) {
+                    evictions.increment();
+                    excess--;
+                }
+            }
+        }
+
+        for (CachedAccount account : accounts.values()) {
+            account.frequency >>>= 1;
+        }
+    }
+
+    /**
+     * Voce candidata alla rimozione, con frequenza e ultimo accesso letti una volta sola:
+     * gli accessi concorrenti li modificano e l'ordinamento richiede chiavi stabili
+     */
+    private record Candidate(UUID uuid, CachedAccount account, int frequency, long lastAccess) {
+    }
+
+    /**
+     * Rimuove una voce solo se, con il lock acquisito, è ancora la stessa, offline e senza modifiche da salvare
+     */
+    private boolean removeIfEvictable(UUID uuid, CachedAccount account) {
+        return accountLocks.withLock(uuid, () ->
+                !account.online && account.isClean() && accounts.remove(uuid, account));
+    }
+
+    void recordRefresh() {
+        refreshes.increment();
+    }
+
+    void updateLimits(int maxEntries, long expireAfter) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.expireAfter = expireAfter;
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Istantanea delle statistiche della cache
+     */
+    public Stats getStats() {
+        return new Stats(accounts.size(), maxEntries, hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(), refreshes.sum());
+    }
+
+    /**
+     * Statistiche della cache
+     */
+    public record Stats(int size, int maxEntries, long hits, long misses,
+                        long evictions, long expirations, long refreshes) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
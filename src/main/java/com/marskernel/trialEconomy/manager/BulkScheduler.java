@@ -0,0 +1,162 @@
+package com.marskernel.trialEconomy.manager;
+
+import com.marskernel.trialEconomy.database.BulkOperation;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Operazioni di massa programmate (bulk-operations.schedule), ad esempio un interesse giornaliero.
+ *
+ * Ogni cinque minuti controlla quali operazioni sono scadute e le esegue una alla volta.
+ * La data dell'ultima esecuzione è salvata nella tabella bulk_runs, quindi l'intervallo
+ * sopravvive ai riavvii; dopo un lungo fermo l'operazione viene eseguita una sola volta.
+ * Un'operazione appena aggiunta alla configurazione parte dopo il suo primo intervallo.
+ */
+public class BulkScheduler {
+
+    private static final long CHECK_INTERVAL = 5; // In minuti
+    private static final BigDecimal MAX_PERCENT = BigDecimal.valueOf(100);
+
+    private final EconomyManager economyManager;
+    private final DatabaseManager database;
+    private final Logger logger;
+    private final List<ScheduledBulk> operations = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public BulkScheduler(Logger logger, ConfigurationSection settings, EconomyManager economyManager, DatabaseManager database) {
+        this.economyManager = economyManager;
+        this.database = database;
+        this.logger = logger;
+
+        ConfigurationSection schedule = settings.getConfigurationSection("bulk-operations.schedule");
+        if (schedule != null) {
+            for (String name : schedule.getKeys(false)) {
+                ScheduledBulk operation = parse(name, schedule.getConfigurationSection(name));
+                if (operation != null) {
+                    operations.add(operation);
+                }
+            }
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TrialEconomy-Bulk");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ScheduledBulk parse(String name, ConfigurationSection section) {
+        if (section == null) {
+            return null;
+        }
+
+        ScheduledBulk.Kind kind;
+        try {
+            kind = ScheduledBulk.Kind.valueOf(section.getString("type", "").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("bulk-operations.schedule." + name + ": tipo non valido (GIVEALL, INTEREST o TAX)");
+            return null;
+        }
+
+        BigDecimal value = BigDecimal.valueOf(section.getDouble(kind == ScheduledBulk.Kind.GIVEALL ? "amount" : "percent"));
+        long interval = section.getLong("interval-hours", 24);
+        if (value.signum() <= 0 || interval <= 0 || (kind != ScheduledBulk.Kind.GIVEALL && value.compareTo(MAX_PERCENT) > 0)) {
+            logger.warning("bulk-operations.schedule." + name + ": importo, percentuale o intervallo non validi");
+            return null;
+        }
+
+        return new ScheduledBulk(name, kind, value, BigDecimal.valueOf(section.getDouble("threshold", 0)),
+                TimeUnit.HOURS.toMillis(interval));
+    }
+
+    public void start() {
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        scheduler.scheduleWithFixedDelay(this::runDue, 1, CHECK_INTERVAL, TimeUnit.MINUTES);
+        logger.info("Operazioni di massa programmate: " + operations.size());
+    }
+
+    private void runDue() {
+        for (ScheduledBulk operation : operations) {
+            if (scheduler.isShutdown()) {
+                return;
+            }
+
+            try {
+                long lastRun = database.loadLastBulkRun(operation.name()).join();
+                long now = System.currentTimeMillis();
+                if (lastRun == 0) {
+                    // Mai eseguita: il primo intervallo parte da adesso
+                    database.saveLastBulkRun(operation.name(), now).join();
+                } else if (lastRun > 0 && now - lastRun >= operation.interval()
+                        && database.claimBulkRun(operation.name(), lastRun, now).join()) {
+                    // Registrata prima di eseguirla: con più server sullo stesso database la esegue solo chi la registra
+                    try {
+                        run(operation).join();
+                    } catch (CompletionException e) {
+                        BulkOperation.PartialFailure partial = BulkOperation.PartialFailure.find(e);
+                        if (partial != null) {
+                            // Ripeterla applicherebbe l'operazione due volte agli account già modificati:
+                            // l'esecuzione resta registrata e la successiva arriva al prossimo intervallo
+                            logger.severe("Operazione programmata " + operation.name() + " applicata solo a " +
+                                    partial.getApplied().accounts() + " account, non verrà ripetuta fino al prossimo intervallo");
+                            continue;
+                        }
+                        // Nessun account modificato: l'esecuzione viene ritentata
+                        database.claimBulkRun(operation.name(), now, lastRun).join();
+                        throw e;
+                    }
+                }
+            } catch (CompletionException e) {
+                logger.warning("Operazione programmata " + operation.name() + " non eseguita, nuovo tentativo tra " +
+                        CHECK_INTERVAL + " minuti: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    private CompletableFuture<BulkOperation.Result> run(ScheduledBulk operation) {
+        String source = "programmata: " + operation.name();
+        return switch (operation.kind()) {
+            case GIVEALL -> economyManager.giveAll(operation.value(), source);
+            case INTEREST -> economyManager.applyInterest(operation.value(), source);
+            case TAX -> economyManager.applyTax(operation.value(), operation.threshold(), source);
+        };
+    }
+
+    /**
+     * Ferma i controlli; un'operazione in corso viene completata
+     */
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Operazione programmata letta dalla configurazione
+     * @param value Importo (GIVEALL) o percentuale (INTEREST, TAX)
+     * @param interval In millisecondi
+     */
+    private record ScheduledBulk(String name, Kind kind, BigDecimal value, BigDecimal threshold, long interval) {
+
+        enum Kind {
+            GIVEALL, INTEREST, TAX
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.marskernel.trialEconomy.manager;
+
+/**
+ * Voce della cache per un singolo account: bilancio in centesimi e timestamp come primitivi.
+ * Le letture sono lock-free (campi volatile), le scritture avvengono sempre con il lock
+ * dell'account acquisito in {@link AccountLocks}.
+ */
+final class CachedAccount {
+
+    private static final int MAX_FREQUENCY = 1 << 16;
+
+    volatile String name;
+    volatile long balance; // In centesimi
+    volatile long lastAccess; // In millisecondi
+    volatile long loadedAt; // Ultima lettura dal database, in millisecondi
+
+    // Contatore approssimato degli accessi, dimezzato periodicamente (eviction LFU con aging)
+    volatile int frequency;
+
+    // Modifiche applicate e modifiche già salvate nel database: la voce è "pulita" se coincidono
+    volatile long modCount;
+    volatile long persistedModCount;
+
+    // I giocatori online non vengono mai rimossi dalla cache
+    volatile boolean online;
+
+    // Modalità cluster: bilancio del database alla versione letta (balance - base è la differenza non salvata)
+    // e absolute se l'ultima modifica è un /eco set, che sostituisce il valore del database invece di sommarsi
+    volatile long base;
+    volatile long version = -1;
+    volatile boolean absolute;
+
+    CachedAccount(String name, long balance, long now) {
+        this.name = name;
+        this.balance = balance;
+        this.lastAccess = now;
+        this.loadedAt = now;
+        this.frequency = 1;
+    }
+
+    /**
+     * Registra un accesso (incremento non atomico: basta un valore approssimato)
+     */
+    void touch(long now) {
+        lastAccess = now;
+        int current = frequency;
+        if (current < MAX_FREQUENCY) {
+            frequency = current + 1;
+        }
+    }
+
+    /**
+     * Indica se tutte le modifiche sono già state salvate nel database
+     */
+    boolean isClean() {
+        return modCount == persistedModCount;
+    }
+
+    /**
+     * Segna come salvate le modifiche fino a savedModCount (i salvataggi possono completarsi fuori ordine).
+     * Va chiamato con il lock dell'account acquisito.
+     */
+    void markPersisted(long savedModCount) {
+        if (savedModCount > persistedModCount) {
+            persistedModCount = savedModCount;
+        }
+    }
+}
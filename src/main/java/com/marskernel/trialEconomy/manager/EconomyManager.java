@@ -1,15 +1,33 @@
 package com.marskernel.trialEconomy.manager;
 
+import com.marskernel.trialEconomy.database.BalanceJournal;
+import com.marskernel.trialEconomy.database.BulkOperation;
+import com.marskernel.trialEconomy.database.ClusterStore;
 import com.marskernel.trialEconomy.database.DatabaseManager;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
+import com.marskernel.trialEconomy.database.EconomyDump;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.TransferFailure;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -18,120 +36,521 @@ import java.util.logging.Logger;
  */
 public class EconomyManager {
 
+    private static final long CACHE_MAINTENANCE_INTERVAL = 30; // In secondi
+    private static final int REFRESH_BATCH = 200; // Refresh-ahead massimi per ciclo di manutenzione
+    private static final int PRELOAD_CHUNK_SIZE = 500; // UUID per query IN (...) nel precaricamento
+
     private final JavaPlugin plugin;
     private final DatabaseManager database;
+    private final BalanceJournal journal;
+    private final EconomyMetrics metrics;
     private final Logger logger;
 
-    // Cache in memoria per giocatori attivi (performance ottimizzata)
-    private final ConcurrentHashMap<UUID, BigDecimal> balanceCache;
-    private final ConcurrentHashMap<UUID, Long> cacheTimestamps;
+    // Più server sullo stesso database: salvataggi per differenza e feed delle modifiche (vedi ClusterStore)
+    private final boolean clustered;
+
+    // Cache in memoria limitata: una voce per account, bilanci in centesimi
+    private final BalanceCache cache;
+
+    // Caricamenti in corso: i miss concorrenti sullo stesso account condividono una sola query
+    private final ConcurrentHashMap<UUID, CompletableFuture<CachedAccount>> pendingLoads;
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    // Account modificati dall'ultimo flush.
+    // Più modifiche allo stesso account prima del flush si fondono in una sola riga da scrivere.
+    private final Set<UUID> dirtyAccounts;
+
+    // Salvataggi al quit in corso e falliti: un checkpoint del journal non può liberare
+    // modifiche il cui unico salvataggio è ancora in volo o è fallito nel frattempo
+    private final AtomicInteger pendingQuitSaves = new AtomicInteger();
+    private final LongAdder failedQuitSaves = new LongAdder();
+
+    // Ultima scrittura di massa avviata (flush o operazione di massa): le successive partono dopo di lei, mai in parallelo
+    private CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+    // Operazione di massa in corso. I caricamenti dal database la attendono e, se letti prima del suo inizio,
+    // vengono ripetuti: un valore precedente all'operazione non entra mai in cache dopo l'aggiornamento in memoria.
+    // Il lock in scrittura è tenuto solo per cambiare generazione, quello in lettura solo per inserire in cache.
+    private final ReentrantReadWriteLock bulkBarrier = new ReentrantReadWriteLock();
+    private volatile CompletableFuture<BulkOperation.Result> bulkInProgress;
+    private volatile long bulkGeneration;
 
-    // Configurazione
-    private BigDecimal startingBalance;
-    private BigDecimal maxBalance;
-    private BigDecimal minTransaction;
-    private long cacheDuration; // In millisecondi
+    // Lock per account: rendono atomiche le read-modify-write sulla cache
+    private final AccountLocks accountLocks;
 
-    // Scheduler per salvataggio automatico
+    // Indice nome -> UUID di tutti gli account, per /pay verso giocatori offline
+    private final PlayerNameIndex nameIndex;
+    private final RecentPartners recentPartners;
+    private final RecentHistory recentHistory;
+
+    // Classifica di tutti gli account per /baltop
+    private final Leaderboard leaderboard;
+
+    // Configurazione corrente, sostituita per intero da /eco reload
+    private volatile EconomySettings settings;
+    private final long pollInterval; // In millisecondi, solo modalità cluster
+
+    // Scheduler per salvataggio automatico e manutenzione della cache
     private final ScheduledExecutorService saveScheduler;
+    private final AtomicBoolean maintenanceRequested = new AtomicBoolean();
+    private ScheduledFuture<?> flushTask;
 
     public EconomyManager(JavaPlugin plugin, DatabaseManager database) {
         this.plugin = plugin;
         this.database = database;
+        this.journal = database.getJournal();
+        this.metrics = database.getMetrics();
         this.logger = plugin.getLogger();
+        this.clustered = database.isClustered();
 
-        this.balanceCache = new ConcurrentHashMap<>();
-        this.cacheTimestamps = new ConcurrentHashMap<>();
+        this.pendingLoads = new ConcurrentHashMap<>();
+        this.dirtyAccounts = ConcurrentHashMap.newKeySet();
+        this.accountLocks = new AccountLocks();
+        this.nameIndex = new PlayerNameIndex();
+        this.recentPartners = new RecentPartners();
+        this.leaderboard = new Leaderboard(nameIndex::getName);
 
-        loadConfiguration();
+        this.settings = EconomySettings.load(plugin.getConfig());
+        this.pollInterval = Math.max(100, plugin.getConfig().getLong("cluster.poll-interval-ms", 1000));
+        this.recentHistory = new RecentHistory(Math.min(1000, plugin.getConfig().getInt("paylog.recent-buffer", 20)));
+        logger.info("Configurazione economy caricata: Start=" + settings.startingBalance() + ", Max=" + settings.maxBalance());
 
-        this.saveScheduler = Executors.newScheduledThreadPool(1);
-        this.saveScheduler.scheduleAtFixedRate(this::saveAllCachedBalances, 5, 5, TimeUnit.MINUTES);
+        this.cache = new BalanceCache(accountLocks, settings.cacheMaxEntries(), settings.cacheDuration());
+        if (recentHistory.isEnabled()) {
+            database.setHistoryListener(recentHistory);
+        }
+        loadAccountIndex();
+
+        // Il flush attende il completamento del batch prima del ciclo successivo.
+        // Due thread: la manutenzione della cache non aspetta un flush lento (tre con la lettura del feed).
+        this.saveScheduler = Executors.newScheduledThreadPool(clustered ? 3 : 2, runnable -> {
+            Thread thread = new Thread(runnable, "TrialEconomy-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushTask = scheduleFlush(settings.flushInterval());
+        this.saveScheduler.scheduleWithFixedDelay(this::runCacheMaintenance,
+                CACHE_MAINTENANCE_INTERVAL, CACHE_MAINTENANCE_INTERVAL, TimeUnit.SECONDS);
+        if (clustered) {
+            this.saveScheduler.scheduleWithFixedDelay(this::pollChanges, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        }
 
         logger.info("EconomyManager inizializzato con sistema di caching!");
     }
 
+    private ScheduledFuture<?> scheduleFlush(long interval) {
+        return saveScheduler.scheduleAtFixedRate(this::runScheduledFlush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Salvataggio automatico. Un'eccezione cancellerebbe il task periodico e fermerebbe il write-behind:
+     * il fallimento viene solo registrato e gli account non salvati restano per il flush successivo
+     */
+    private void runScheduledFlush() {
+        try {
+            flushDirtyBalances().join();
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            logger.severe("Errore durante il salvataggio automatico: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Applica una nuova configurazione (/eco reload) senza interrompere le operazioni in corso:
+     * le modifiche già accettate restano nella cache e nel journal e vengono salvate dal flush successivo.
+     * Limiti della cache e intervallo del salvataggio automatico valgono da subito.
+     */
+    public synchronized void applySettings(EconomySettings updated) {
+        EconomySettings previous = settings;
+        settings = updated;
+        cache.updateLimits(updated.cacheMaxEntries(), updated.cacheDuration());
+
+        // Il flush eventualmente in corso termina normalmente: cancel(false) non interrompe il thread
+        if (updated.flushInterval() != previous.flushInterval()) {
+            flushTask.cancel(false);
+            flushTask = scheduleFlush(updated.flushInterval());
+        }
+
+        logger.info("Configurazione economy ricaricata: Start=" + updated.startingBalance() + ", Max=" +
+                updated.maxBalance() + ", salvataggio ogni " + updated.flushInterval() + "s, cache " +
+                updated.cacheMaxEntries() + " account");
+    }
+
+    /**
+     * Configurazione corrente
+     */
+    public EconomySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Popola l'indice dei nomi e la classifica leggendo tutti gli account in streaming.
+     * Fino al termine le ricerche per nome non trovate e /baltop ricadono sul database.
+     */
+    private void loadAccountIndex() {
+        long start = System.currentTimeMillis();
+        database.streamAccounts((uuid, name, balance) -> {
+            nameIndex.putIfAbsent(uuid, name);
+            leaderboard.seed(uuid, Money.toMinorClamped(balance, settings.maxBalanceMinor()));
+        }).thenAccept(count -> {
+            if (count >= 0) {
+                nameIndex.markLoaded();
+                leaderboard.markLoaded();
+                logger.info("Indice account caricato: " + count + " account in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        });
+    }
+
+    /**
+     * Cerca l'UUID di un giocatore (anche offline) per nome, case-insensitive.
+     * Risponde dall'indice in memoria; interroga il database solo se l'indice non è ancora caricato
+     * o, in modalità cluster, per i nomi non trovati (account creati da poco su un altro nodo).
+     * @return UUID, o null se nessun account ha quel nome
+     */
+    public CompletableFuture<UUID> findPlayerUUID(String playerName) {
+        UUID uuid = nameIndex.find(playerName);
+        if (uuid != null || (nameIndex.isLoaded() && !clustered)) {
+            return CompletableFuture.completedFuture(uuid);
+        }
+        return database.getPlayerUUIDByName(playerName);
+    }
+
+    /**
+     * Suggerisce i nomi di tutti gli account conosciuti (anche offline) che iniziano con prefix.
+     * Se abilitato, gli ultimi destinatari del richiedente compaiono per primi.
+     * Pensato per il main thread: al massimo tab-complete.max-results ricerche O(log n).
+     */
+    public List<String> completePlayerNames(UUID requesterUUID, String requesterName, String prefix) {
+        EconomySettings current = settings;
+        int limit = current.tabCompleteLimit();
+        List<String> results = new ArrayList<>(Math.min(limit, 32));
+
+        if (current.rankRecentPartners() && requesterUUID != null) {
+            for (UUID partner : recentPartners.get(requesterUUID)) {
+                String name = nameIndex.getName(partner);
+                if (name != null && results.size() < limit
+                        && name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    results.add(name);
+                }
+            }
+        }
+
+        nameIndex.complete(prefix, limit, requesterName, results);
+        return results;
+    }
+
+    /**
+     * Ottiene il nome attuale di un account conosciuto
+     * @return Nome, o null se l'account non è indicizzato
+     */
+    public String getPlayerName(UUID playerUUID) {
+        return nameIndex.getName(playerUUID);
+    }
+
     /**
-     * Carica la configurazione dal config.yml
+     * Legge una pagina della classifica (pagine numerate da 1, baltop.page-size righe ciascuna).
+     * Risponde dalla classifica in memoria; finché non è caricata legge la pagina dal database.
      */
-    private void loadConfiguration() {
-        this.startingBalance = BigDecimal.valueOf(plugin.getConfig().getDouble("starting-balance", 1000.0));
-        this.maxBalance = BigDecimal.valueOf(plugin.getConfig().getDouble("max-balance", 1000000000.0));
-        this.minTransaction = BigDecimal.valueOf(plugin.getConfig().getDouble("min-transaction", 0.01));
-        this.cacheDuration = plugin.getConfig().getLong("cache-duration", 1800) * 1000; // Converti in ms
+    public CompletableFuture<Leaderboard.Page> getTopBalances(int page) {
+        int pageSize = settings.baltopPageSize();
+        if (leaderboard.isLoaded()) {
+            return CompletableFuture.completedFuture(leaderboard.page(page, pageSize));
+        }
+
+        int offset = (page - 1) * pageSize;
+        return database.loadTopBalances(offset, pageSize).thenApply(top -> {
+            List<Leaderboard.Entry> entries = new ArrayList<>(top.records().size());
+            int rank = offset + 1;
+            for (DatabaseManager.BalanceRecord record : top.records()) {
+                entries.add(new Leaderboard.Entry(rank++, record.playerUUID(), record.playerName(), record.balance()));
+            }
+            int totalPages = Math.max(1, (top.total() + pageSize - 1) / pageSize);
+            return new Leaderboard.Page(page, totalPages, entries);
+        });
+    }
+
+    /**
+     * Legge una pagina dello storico transazioni di un giocatore (paylog.page-size voci), dalla più recente.
+     * Senza cursore le voci dei giocatori online vengono dal buffer in memoria, completato dal database
+     * alla prima lettura; le pagine successive sono lette dal database a partire dal cursore.
+     * @param after Ultima voce della pagina precedente, o null per partire dalla più recente
+     * @param skip Pagine da saltare dopo after
+     */
+    public CompletableFuture<DatabaseManager.HistoryPage> getHistory(UUID playerUUID, DatabaseManager.HistoryEntry after,
+                                                                     int skip) {
+        int pageSize = settings.paylogPageSize();
+        int offset = skip * pageSize;
+        RecentHistory.Buffer buffer = after == null ? recentHistory.get(playerUUID) : null;
+        if (buffer == null) {
+            return database.loadHistory(playerUUID, after, offset, pageSize);
+        }
+
+        DatabaseManager.HistoryPage page = buffer.read(offset, pageSize);
+        if (page != null) {
+            return CompletableFuture.completedFuture(page);
+        }
+        if (buffer.isSeeded()) {
+            return database.loadHistory(playerUUID, null, offset, pageSize);
+        }
 
-        logger.info("Configurazione economy caricata: Start=" + startingBalance + ", Max=" + maxBalance);
+        // Prima lettura: carica almeno quanto serve a riempire il buffer e ne ritaglia la pagina richiesta
+        int generation = buffer.generation();
+        return database.loadHistory(playerUUID, null, 0, Math.max(recentHistory.getCapacity(), offset + pageSize))
+                .thenApply(recent -> {
+                    buffer.seed(recent, generation);
+                    List<DatabaseManager.HistoryEntry> entries = recent.entries();
+                    int end = Math.min(entries.size(), offset + pageSize);
+                    return new DatabaseManager.HistoryPage(
+                            offset < end ? List.copyOf(entries.subList(offset, end)) : List.of(),
+                            entries.size() > offset + pageSize || recent.hasMore());
+                });
+    }
+
+    public int getPaylogPageSize() {
+        return settings.paylogPageSize();
+    }
+
+    /**
+     * Posizione in classifica di un account (da 1)
+     * @return Posizione, o 0 se la classifica non è ancora caricata o l'account non esiste
+     */
+    public int getLeaderboardRank(UUID playerUUID) {
+        return leaderboard.isLoaded() ? leaderboard.rankOf(playerUUID) : 0;
     }
 
     /**
-     * Ottiene il bilancio di un giocatore (con caching)
+     * Ottiene il bilancio di un giocatore (con caching).
+     * La cache è la fonte autorevole finché l'account vi rimane: un valore letto dal
+     * database non sovrascrive mai un bilancio già presente in memoria.
      */
     public CompletableFuture<BigDecimal> getBalance(UUID playerUUID, String playerName) {
         // Controlla cache
-        if (balanceCache.containsKey(playerUUID)) {
-            // Verifica se la cache è ancora valida
-            long cacheAge = System.currentTimeMillis() - cacheTimestamps.getOrDefault(playerUUID, 0L);
-            if (cacheAge < cacheDuration) {
-                return CompletableFuture.completedFuture(balanceCache.get(playerUUID));
-            }
+        CachedAccount account = cache.get(playerUUID);
+        if (account != null) {
+            return CompletableFuture.completedFuture(Money.toDecimal(account.balance));
         }
 
-        // Carica da database e aggiorna cache
-        return database.loadBalance(playerUUID, playerName, startingBalance)
-                .thenApply(balance -> {
-                    balanceCache.put(playerUUID, balance);
-                    cacheTimestamps.put(playerUUID, System.currentTimeMillis());
-                    return balance;
+        return loadAccount(playerUUID, playerName)
+                .thenApply(loaded -> Money.toDecimal(loaded.balance));
+    }
+
+    /**
+     * Carica un account da database e lo inserisce in cache.
+     * Se una modifica concorrente ha già popolato la cache, vince il valore in memoria.
+     *
+     * Single-flight: se lo stesso account è già in caricamento, il chiamante riceve il future
+     * del caricamento in corso invece di avviare un'altra SELECT (ed eventualmente un altro INSERT).
+     */
+    private CompletableFuture<CachedAccount> loadAccount(UUID playerUUID, String playerName) {
+        CompletableFuture<CachedAccount> pending = pendingLoads.get(playerUUID);
+        if (pending == null) {
+            CompletableFuture<CachedAccount> created = new CompletableFuture<>();
+            pending = pendingLoads.putIfAbsent(playerUUID, created);
+            if (pending == null) {
+                // Rimosso prima del completamento: da qui in poi la voce è già in cache
+                fetchAccount(playerUUID, playerName).whenComplete((account, error) -> {
+                    pendingLoads.remove(playerUUID, created);
+                    if (error != null) {
+                        created.completeExceptionally(error);
+                    } else {
+                        created.complete(account);
+                    }
                 });
+                return created;
+            }
+        }
+
+        coalescedLoads.increment();
+        return pending;
+    }
+
+    private CompletableFuture<CachedAccount> fetchAccount(UUID playerUUID, String playerName) {
+        CompletableFuture<BulkOperation.Result> bulk = bulkInProgress;
+        if (bulk != null) {
+            return bulk.handle((result, error) -> null)
+                    .thenCompose(ignored -> fetchAccount(playerUUID, playerName));
+        }
+
+        long generation = bulkGeneration;
+        if (clustered) {
+            return database.loadVersionedBalance(playerUUID, playerName, settings.startingBalance()).thenCompose(stored -> {
+                CachedAccount account = cacheLoadedIfCurrent(playerUUID, playerName, stored.balance(), stored.version(),
+                        generation);
+                return account != null ? CompletableFuture.completedFuture(account) : fetchAccount(playerUUID, playerName);
+            });
+        }
+
+        return database.loadBalance(playerUUID, playerName, settings.startingBalance()).thenCompose(balance -> {
+            CachedAccount account = cacheLoadedIfCurrent(playerUUID, playerName, Money.toMinorClamped(balance, Long.MAX_VALUE),
+                    -1, generation);
+            return account != null ? CompletableFuture.completedFuture(account) : fetchAccount(playerUUID, playerName);
+        });
     }
 
     /**
-     * Imposta il bilancio di un giocatore
+     * Inserisce in cache un valore letto dal database solo se nessuna operazione di massa è iniziata dopo la lettura
+     * @return Voce in cache, o null se il valore letto va scartato
      */
-    public CompletableFuture<Boolean> setBalance(UUID playerUUID, String playerName, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
-            return CompletableFuture.completedFuture(false);
+    private CachedAccount cacheLoadedIfCurrent(UUID playerUUID, String playerName, long balance, long version,
+                                               long generation) {
+        bulkBarrier.readLock().lock();
+        try {
+            return bulkGeneration == generation ? cacheLoaded(playerUUID, playerName, balance, version) : null;
+        } finally {
+            bulkBarrier.readLock().unlock();
         }
+    }
+
+    /**
+     * @param balance Bilancio letto dal database in centesimi, limitato a max-balance solo in cache
+     * @param version Versione letta (modalità cluster), -1 altrimenti
+     */
+    private CachedAccount cacheLoaded(UUID playerUUID, String playerName, long balance, long version) {
+        CachedAccount loaded = new CachedAccount(playerName, Math.min(balance, settings.maxBalanceMinor()), System.currentTimeMillis());
+        loaded.base = balance;
+        loaded.version = version;
+        CachedAccount current = cache.putIfAbsent(playerUUID, loaded);
+        // Copre anche gli account appena creati
+        nameIndex.putIfAbsent(playerUUID, playerName);
+        leaderboard.seed(playerUUID, loaded.balance);
 
-        if (amount.compareTo(maxBalance) > 0) {
-            amount = maxBalance;
+        if (cache.isOverCapacity()) {
+            requestCacheMaintenance();
         }
+        return current != null ? current : loaded;
+    }
+
+    /**
+     * Precarica gli account di più giocatori online (avvio o reload del plugin) con poche query IN (...)
+     * invece di una query per giocatore. I caricamenti sono registrati come in corso, quindi un
+     * comando eseguito nel frattempo attende il precaricamento invece di interrogare il database.
+     * Gli account non caricati dal batch (errore del database, operazione di massa) ripiegano sul caricamento singolo.
+     * @return Numero di account caricati dal batch
+     */
+    public CompletableFuture<Integer> preloadPlayers(Collection<? extends Player> onlinePlayers) {
+        List<Player> players = List.copyOf(onlinePlayers);
+        Map<UUID, String> toLoad = new HashMap<>();
+        Map<UUID, CompletableFuture<CachedAccount>> loads = new HashMap<>();
+        Map<UUID, String> previousNames = new HashMap<>();
+
+        for (Player player : players) {
+            UUID uuid = player.getUniqueId();
+            previousNames.put(uuid, nameIndex.put(uuid, player.getName()));
+            recentHistory.track(uuid);
+
+            if (cache.peek(uuid) == null) {
+                CompletableFuture<CachedAccount> created = new CompletableFuture<>();
+                if (pendingLoads.putIfAbsent(uuid, created) == null) {
+                    toLoad.put(uuid, player.getName());
+                    loads.put(uuid, created);
+                }
+            }
+        }
+
+        // In modalità cluster ogni account viene caricato singolarmente insieme alla sua versione
+        long generation = bulkGeneration;
+        CompletableFuture<Map<UUID, BigDecimal>> batch = toLoad.isEmpty() || bulkInProgress != null || clustered
+                ? CompletableFuture.completedFuture(Map.of())
+                : database.loadBalances(toLoad, settings.startingBalance(), PRELOAD_CHUNK_SIZE);
 
-        // Aggiorna cache
-        balanceCache.put(playerUUID, amount);
-        cacheTimestamps.put(playerUUID, System.currentTimeMillis());
+        return batch.exceptionally(e -> Map.of()).thenCompose(balances -> {
+            List<CompletableFuture<?>> ready = new ArrayList<>();
 
-        // Salva in database asincrono
-        final BigDecimal finalAmount = amount;
-        return database.saveBalance(playerUUID, playerName, finalAmount);
+            for (Player player : players) {
+                UUID uuid = player.getUniqueId();
+                String name = player.getName();
+                CompletableFuture<CachedAccount> created = loads.get(uuid);
+
+                if (created != null) {
+                    pendingLoads.remove(uuid, created);
+                    BigDecimal balance = balances.get(uuid);
+                    CachedAccount cached = balance != null
+                            ? cacheLoadedIfCurrent(uuid, name, Money.toMinorClamped(balance, Long.MAX_VALUE), -1, generation)
+                            : null;
+                    if (cached != null) {
+                        created.complete(cached);
+                    } else {
+                        loadAccount(uuid, name).whenComplete((account, error) -> {
+                            if (error != null) {
+                                created.completeExceptionally(error);
+                            } else {
+                                created.complete(account);
+                            }
+                        });
+                    }
+                }
+
+                // Account già in cache o in caricamento altrove: basta attenderlo.
+                // Se il database non risponde l'account non entra in cache e verrà caricato al primo utilizzo
+                ready.add(loadAccountIfAbsent(uuid, name)
+                        .thenRun(() -> markOnline(player, previousNames.get(uuid)))
+                        .exceptionally(error -> {
+                            logger.warning("Bilancio di " + name + " non precaricato, verrà caricato al primo utilizzo");
+                            return null;
+                        }));
+            }
+
+            return CompletableFuture.allOf(ready.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(ignored -> balances.size());
+        });
+    }
+
+    private CompletableFuture<CachedAccount> loadAccountIfAbsent(UUID playerUUID, String playerName) {
+        CachedAccount account = cache.peek(playerUUID);
+        return account != null ? CompletableFuture.completedFuture(account) : loadAccount(playerUUID, playerName);
+    }
+
+    /**
+     * Imposta il bilancio di un giocatore.
+     * Il valore è aggiornato subito in cache e reso persistente dal prossimo flush write-behind.
+     * L'account viene prima caricato (o creato) nel database: il journal può riapplicare solo bilanci di righe esistenti.
+     */
+    public CompletableFuture<Boolean> setBalance(UUID playerUUID, String playerName, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        long newBalance = Money.toMinorClamped(amount, settings.maxBalanceMinor());
+        return durable(withAccount(playerUUID, playerName, account -> {
+            writeBalance(playerUUID, account, playerName, newBalance);
+            // In cluster il salvataggio sostituisce il valore del database invece di sommare la differenza
+            account.absolute = clustered;
+            return true;
+        }));
     }
 
     /**
      * Aggiunge denaro al bilancio di un giocatore
      */
     public CompletableFuture<Boolean> addBalance(UUID playerUUID, String playerName, BigDecimal amount) {
-        return getBalance(playerUUID, playerName)
-                .thenCompose(currentBalance -> {
-                    BigDecimal newBalance = currentBalance.add(amount);
-                    if (newBalance.compareTo(maxBalance) > 0) {
-                        newBalance = maxBalance;
-                    }
-                    return setBalance(playerUUID, playerName, newBalance);
-                });
+        if (amount.signum() < 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        long max = settings.maxBalanceMinor();
+        long delta = Money.toMinorClamped(amount, max);
+        return durable(withAccount(playerUUID, playerName, account -> {
+            writeBalance(playerUUID, account, playerName, Money.addClamped(account.balance, delta, max));
+            return true;
+        }));
     }
 
     /**
      * Sottrae denaro dal bilancio di un giocatore
      */
     public CompletableFuture<Boolean> removeBalance(UUID playerUUID, String playerName, BigDecimal amount) {
-        return getBalance(playerUUID, playerName)
-                .thenCompose(currentBalance -> {
-                    BigDecimal newBalance = currentBalance.subtract(amount);
-                    if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                    return setBalance(playerUUID, playerName, newBalance);
-                });
+        if (amount.signum() < 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        long delta = Money.toMinorClamped(amount, Long.MAX_VALUE);
+        return durable(withAccount(playerUUID, playerName, account -> {
+            if (account.balance < delta) {
+                return false;
+            }
+            writeBalance(playerUUID, account, playerName, account.balance - delta);
+            return true;
+        }));
     }
 
     /**
@@ -143,121 +562,957 @@ public class EconomyManager {
     }
 
     /**
-     * Trasferisce denaro tra due giocatori (transazione atomica)
+     * Bilancio in centesimi senza mai attendere il database, per le chiamate sincrone dal main thread (Vault).
+     * Risponde dalla cache; per un account non in cache avvia il caricamento (warm-on-lookup) e risponde
+     * con l'ultimo bilancio noto alla classifica, che tiene in memoria tutti gli account.
+     * @param playerName Nome del giocatore, o null se non noto al chiamante
+     * @return Centesimi, o -1 se l'account non esiste o la classifica non lo conosce ancora
+     */
+    public long peekBalance(UUID playerUUID, String playerName) {
+        CachedAccount account = cache.get(playerUUID);
+        if (account != null) {
+            return account.balance;
+        }
+
+        metrics.recordUncachedRead();
+        long known = leaderboard.balanceOf(playerUUID);
+        // Con la classifica caricata un account sconosciuto non esiste: una lettura non lo crea
+        if (known >= 0 || !leaderboard.isLoaded()) {
+            prefetch(playerUUID, playerName);
+        }
+        return known;
+    }
+
+    /**
+     * Indica se l'account esiste, senza attendere il database.
+     * Finché la classifica non è caricata conosce solo gli account in cache.
+     */
+    public boolean isKnownAccount(UUID playerUUID) {
+        return cache.peek(playerUUID) != null || leaderboard.balanceOf(playerUUID) >= 0;
+    }
+
+    /**
+     * Avvia il caricamento in cache di un account non ancora presente (warm-on-join, warm-on-lookup)
+     * @param playerName Nome del giocatore, o null per usare quello già indicizzato
+     * @return Completato quando l'account è in cache, o null se manca il nome per creare un account nuovo
+     */
+    public CompletableFuture<Void> prefetch(UUID playerUUID, String playerName) {
+        if (cache.peek(playerUUID) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String name = playerName != null ? playerName : nameIndex.getName(playerUUID);
+        if (name == null) {
+            return null;
+        }
+        return loadAccount(playerUUID, name).handle((account, error) -> null);
+    }
+
+    /**
+     * Modifica immediata del bilancio di un account in cache, senza attendere database né journal (Vault).
+     * La modifica è registrata nel journal (fsync entro journal.sync-interval-ms) e salvata dal prossimo flush.
+     * Un account non in cache non viene modificato: ne viene avviato il caricamento e l'esito è NOT_LOADED.
+     * @param delta Centesimi da aggiungere, negativi per sottrarre
+     */
+    public CachedChange changeCachedBalance(UUID playerUUID, String playerName, long delta) {
+        CachedChange change = accountLocks.withLock(playerUUID, () -> {
+            CachedAccount account = cache.get(playerUUID);
+            if (account == null) {
+                return null;
+            }
+
+            if (delta < 0 && account.balance < -delta) {
+                return new CachedChange(CachedChange.Status.INSUFFICIENT_FUNDS, account.balance);
+            }
+            if (delta > settings.maxBalanceMinor() - account.balance) {
+                return new CachedChange(CachedChange.Status.BALANCE_LIMIT, account.balance);
+            }
+
+            writeBalance(playerUUID, account, playerName != null ? playerName : account.name, account.balance + delta);
+            return new CachedChange(CachedChange.Status.APPLIED, account.balance);
+        });
+
+        if (change != null) {
+            return change;
+        }
+
+        metrics.recordUncachedRead();
+        prefetch(playerUUID, playerName);
+        return new CachedChange(CachedChange.Status.NOT_LOADED, -1);
+    }
+
+    /**
+     * Esito di {@link #changeCachedBalance}
+     * @param balance Bilancio dell'account dopo l'operazione in centesimi (-1 se NOT_LOADED)
+     */
+    public record CachedChange(Status status, long balance) {
+
+        public enum Status {
+            APPLIED, INSUFFICIENT_FUNDS, BALANCE_LIMIT, NOT_LOADED
+        }
+    }
+
+    /**
+     * Trasferisce denaro tra due giocatori (transazione atomica).
+     * Controllo fondi, addebito e accredito avvengono in un'unica sezione critica
+     * con i lock di entrambi gli account: nessun doppio addebito e nessun rollback necessario.
      */
     public CompletableFuture<TransactionResult> transfer(UUID senderUUID, String senderName,
                                                          UUID receiverUUID, String receiverName,
                                                          BigDecimal amount) {
         // Validazione importo
-        if (amount.compareTo(minTransaction) < 0) {
+        EconomySettings current = settings;
+        if (!Money.isExact(amount)) {
+            metrics.recordTransferFailure(TransferFailure.INVALID_AMOUNT);
             return CompletableFuture.completedFuture(
-                    new TransactionResult(false, "L'importo è inferiore al minimo trasferibile!")
+                    TransactionResult.failed(TransferFailure.INVALID_AMOUNT, "L'importo può avere al massimo due decimali!")
             );
         }
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount.compareTo(current.minTransaction()) < 0) {
+            metrics.recordTransferFailure(TransferFailure.BELOW_MINIMUM);
             return CompletableFuture.completedFuture(
-                    new TransactionResult(false, "L'importo deve essere positivo!")
+                    TransactionResult.failed(TransferFailure.BELOW_MINIMUM, "L'importo è inferiore al minimo trasferibile!")
             );
         }
 
-        // Controlla se il sender ha fondi sufficienti
-        return hasBalance(senderUUID, senderName, amount)
-                .thenCompose(hasFunds -> {
-                    if (!hasFunds) {
-                        return CompletableFuture.completedFuture(
-                                new TransactionResult(false, "Fondi insufficienti!")
-                        );
-                    }
+        if (amount.compareTo(current.maxBalance()) > 0) {
+            metrics.recordTransferFailure(TransferFailure.ABOVE_MAXIMUM);
+            return CompletableFuture.completedFuture(
+                    TransactionResult.failed(TransferFailure.ABOVE_MAXIMUM, "L'importo supera il bilancio massimo consentito!")
+            );
+        }
+
+        if (senderUUID.equals(receiverUUID)) {
+            metrics.recordTransferFailure(TransferFailure.SELF_TRANSFER);
+            return CompletableFuture.completedFuture(
+                    TransactionResult.failed(TransferFailure.SELF_TRANSFER, "Non puoi inviare denaro a te stesso!")
+            );
+        }
+
+        long amountMinor = Money.toMinor(amount);
+        CompletableFuture<TransactionResult> applied = clustered
+                ? transferShared(senderUUID, senderName, receiverUUID, receiverName, amountMinor, true)
+                : transferCached(senderUUID, senderName, receiverUUID, receiverName, amountMinor);
+
+        return applied.thenApply(result -> {
+            if (result.isSuccess()) {
+                metrics.recordTransfer();
+                recentPartners.record(senderUUID, receiverUUID);
+
+                // Log transazione (fuori dalla sezione critica)
+                database.logTransaction(senderUUID, receiverUUID, Money.toDecimal(amountMinor), "TRANSFER",
+                        senderName + " -> " + receiverName);
+            }
+            return result;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                metrics.recordTransferFailure(TransferFailure.ERROR);
+            }
+        });
+    }
+
+    private CompletableFuture<TransactionResult> transferCached(UUID senderUUID, String senderName,
+                                                                UUID receiverUUID, String receiverName, long amountMinor) {
+        return withAccounts(senderUUID, senderName, receiverUUID, receiverName, (sender, receiver) -> {
+            if (sender.balance < amountMinor) {
+                metrics.recordTransferFailure(TransferFailure.INSUFFICIENT_FUNDS);
+                return TransactionResult.failed(TransferFailure.INSUFFICIENT_FUNDS, "Fondi insufficienti!");
+            }
+
+            if (amountMinor > settings.maxBalanceMinor() - receiver.balance) {
+                metrics.recordTransferFailure(TransferFailure.RECEIVER_LIMIT);
+                return TransactionResult.failed(TransferFailure.RECEIVER_LIMIT, "Il destinatario supererebbe il bilancio massimo!");
+            }
+
+            writeBalance(senderUUID, sender, senderName, sender.balance - amountMinor);
+            writeBalance(receiverUUID, receiver, receiverName, receiver.balance + amountMinor);
+            return TransactionResult.SUCCESS;
+        }).thenCompose(result -> result.isSuccess()
+                ? journal.sync().thenApply(ignored -> result)
+                : CompletableFuture.completedFuture(result));
+    }
+
+    /**
+     * Trasferimento in modalità cluster: scritto subito nel database con UPDATE relativi, che controllano
+     * i fondi sul valore attuale di tutti i nodi (vedi {@link ClusterStore#transfer}), poi applicato alla cache.
+     * Se a bloccarlo sono modifiche di questo nodo non ancora salvate (un accredito al mittente, un /eco set)
+     * i due account vengono salvati e il trasferimento ripetuto una volta.
+     */
+    private CompletableFuture<TransactionResult> transferShared(UUID senderUUID, String senderName,
+                                                                UUID receiverUUID, String receiverName,
+                                                                long amountMinor, boolean retry) {
+        CompletableFuture<long[]> pending = withAccounts(senderUUID, senderName, receiverUUID, receiverName,
+                (sender, receiver) -> new long[]{sender.balance - sender.base, receiver.balance - receiver.base,
+                        sender.absolute || receiver.absolute ? 1 : 0});
+
+        return pending.thenCompose(differences -> {
+            CompletableFuture<ClusterStore.TransferOutcome> outcome = differences[2] != 0
+                    ? CompletableFuture.completedFuture(null)
+                    : database.transferBalance(senderUUID, differences[0], receiverUUID, differences[1],
+                            amountMinor, settings.maxBalanceMinor());
+
+            return outcome.thenCompose(written -> {
+                boolean blockedLocally = written == null
+                        || (written.status() == ClusterStore.TransferOutcome.Status.INSUFFICIENT_FUNDS && differences[0] > 0)
+                        || (written.status() == ClusterStore.TransferOutcome.Status.RECEIVER_LIMIT && differences[1] < 0);
+                if (written != null && (!blockedLocally || !retry)) {
+                    return CompletableFuture.completedFuture(applyTransfer(senderUUID, receiverUUID, written));
+                }
+                if (!retry) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("bilancio impostato non ancora salvato"));
+                }
+                return enqueueWrite(() -> flushShared(List.of(senderUUID, receiverUUID))).thenCompose(saved ->
+                        transferShared(senderUUID, senderName, receiverUUID, receiverName, amountMinor, false));
+            });
+        });
+    }
 
-                    return removeBalance(senderUUID, senderName, amount)
-                            .thenCompose(removed -> {
-                                if (!removed) {
-                                    return CompletableFuture.completedFuture(
-                                            new TransactionResult(false, "Errore durante il trasferimento!")
-                                    );
-                                }
-
-                                return addBalance(receiverUUID, receiverName, amount)
-                                        .thenApply(added -> {
-                                            if (!added) {
-                                                // Rollback
-                                                addBalance(senderUUID, senderName, amount);
-                                                return new TransactionResult(false, "Errore durante il trasferimento!");
-                                            }
-
-                                            // Log transazione
-                                            database.logTransaction(senderUUID, receiverUUID, amount, "TRANSFER",
-                                                    senderName + " -> " + receiverName);
-
-                                            return new TransactionResult(true,
-                                                    "Trasferimento di " + formatAmount(amount) + " completato con successo!");
-                                        });
-                            });
+    /**
+     * Applica alla cache l'esito di un trasferimento scritto nel database; se rifiutato riallinea l'account
+     * che l'ha fatto fallire
+     */
+    private TransactionResult applyTransfer(UUID senderUUID, UUID receiverUUID, ClusterStore.TransferOutcome outcome) {
+        return switch (outcome.status()) {
+            case APPLIED -> {
+                accountLocks.withLocks(senderUUID, receiverUUID, () -> {
+                    applyWritten(senderUUID, outcome.sender().balance(), outcome.sender().version(), 0);
+                    applyWritten(receiverUUID, outcome.receiver().balance(), outcome.receiver().version(), 0);
+                    return null;
                 });
+                yield TransactionResult.SUCCESS;
+            }
+            case INSUFFICIENT_FUNDS -> {
+                metrics.recordTransferFailure(TransferFailure.INSUFFICIENT_FUNDS);
+                rebase(List.of(senderUUID));
+                yield TransactionResult.failed(TransferFailure.INSUFFICIENT_FUNDS, "Fondi insufficienti!");
+            }
+            case RECEIVER_LIMIT -> {
+                metrics.recordTransferFailure(TransferFailure.RECEIVER_LIMIT);
+                rebase(List.of(receiverUUID));
+                yield TransactionResult.failed(TransferFailure.RECEIVER_LIMIT, "Il destinatario supererebbe il bilancio massimo!");
+            }
+        };
     }
 
     /**
-     * Formatta un importo con il simbolo della valuta
+     * Aggiorna il bilancio in cache, lo registra nel journal e segna l'account per il prossimo flush.
+     * Va chiamato con il lock dell'account acquisito.
+     */
+    private void writeBalance(UUID playerUUID, CachedAccount account, String playerName, long balance) {
+        account.balance = balance;
+        account.name = playerName;
+        account.modCount++;
+        account.touch(System.currentTimeMillis());
+        dirtyAccounts.add(playerUUID);
+        leaderboard.update(playerUUID, balance);
+        journal.append(playerUUID, balance);
+    }
+
+    /**
+     * Modalità cluster: applica alla voce in cache un bilancio scritto da questo nodo nel database.
+     * flushed è la parte della differenza in cache inclusa nella scrittura: resta da salvare solo quella successiva.
+     * Se la voce è già stata riallineata ad una versione più recente, il bilancio scritto è già nella sua base.
+     * Va chiamato con il lock dell'account acquisito.
+     */
+    private void applyWritten(UUID playerUUID, long stored, long version, long flushed) {
+        CachedAccount account = cache.peek(playerUUID);
+        if (account == null) {
+            leaderboard.update(playerUUID, clamp(stored));
+            return;
+        }
+
+        if (version > account.version) {
+            account.balance = clamp(stored + account.balance - account.base - flushed);
+            account.base = stored;
+            account.version = version;
+        } else {
+            account.balance = clamp(account.balance - flushed);
+        }
+        leaderboard.update(playerUUID, account.balance);
+    }
+
+    private long clamp(long balance) {
+        return Math.max(0, Math.min(balance, settings.maxBalanceMinor()));
+    }
+
+    /**
+     * Completa l'operazione solo quando le sue modifiche sono su disco nel journal (group commit)
+     */
+    private CompletableFuture<Boolean> durable(CompletableFuture<Boolean> operation) {
+        return operation.thenCompose(changed -> changed
+                ? journal.sync().thenApply(ignored -> true)
+                : CompletableFuture.completedFuture(false));
+    }
+
+    /**
+     * Esegue un'operazione sull'account in cache con il suo lock acquisito.
+     * Se l'account non è in cache (o viene rimosso prima del lock) viene caricato e l'operazione ripetuta.
+     * L'operazione non deve restituire null: null indica un account non in cache.
+     */
+    private <T> CompletableFuture<T> withAccount(UUID playerUUID, String playerName, Function<CachedAccount, T> action) {
+        T result = accountLocks.withLock(playerUUID, () -> {
+            CachedAccount account = cache.get(playerUUID);
+            return account != null ? action.apply(account) : null;
+        });
+
+        if (result != null) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return loadAccount(playerUUID, playerName)
+                .thenCompose(loaded -> withAccount(playerUUID, playerName, action));
+    }
+
+    /**
+     * Come {@link #withAccount}, ma con entrambi gli account bloccati in ordine stabile
+     */
+    private <T> CompletableFuture<T> withAccounts(UUID firstUUID, String firstName,
+                                                  UUID secondUUID, String secondName,
+                                                  AccountPairAction<T> action) {
+        T result = accountLocks.withLocks(firstUUID, secondUUID, () -> {
+            CachedAccount first = cache.get(firstUUID);
+            CachedAccount second = cache.get(secondUUID);
+            return first != null && second != null ? action.apply(first, second) : null;
+        });
+
+        if (result != null) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return loadAccount(firstUUID, firstName)
+                .thenCombine(loadAccount(secondUUID, secondName), (first, second) -> true)
+                .thenCompose(loaded -> withAccounts(firstUUID, firstName, secondUUID, secondName, action));
+    }
+
+    /**
+     * Operazione su due account con entrambi i lock acquisiti
+     */
+    @FunctionalInterface
+    private interface AccountPairAction<T> {
+        T apply(CachedAccount first, CachedAccount second);
+    }
+
+    /**
+     * Formatta un importo con il simbolo della valuta (due decimali, punto decimale indipendente dal locale).
+     * I messaggi ai giocatori usano invece il formato della loro lingua (vedi Messages)
      */
     public String formatAmount(BigDecimal amount) {
-        String symbol = plugin.getConfig().getString("currency-symbol", "$");
-        String formatted = String.format("%.2f", amount);
-        return symbol + formatted;
+        return settings.currencySymbol() + amount.setScale(Money.SCALE, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    /**
+     * Ottiene il simbolo della valuta
+     */
+    public String getCurrencySymbol() {
+        return settings.currencySymbol();
     }
 
     /**
      * Ottiene il nome della valuta
      */
     public String getCurrencyName() {
-        return plugin.getConfig().getString("currency-name", "dollari");
+        return settings.currencyName();
     }
 
     /**
      * Carica il bilancio quando un giocatore si connette
      */
     public void onPlayerJoin(Player player) {
-        getBalance(player.getUniqueId(), player.getName()).thenAccept(balance ->
-                logger.info("Bilancio caricato per " + player.getName() + ": " + formatAmount(balance))
-        );
+        UUID uuid = player.getUniqueId();
+        String name = player.getName();
+        String previousName = nameIndex.put(uuid, name);
+        recentHistory.track(uuid);
+
+        getBalance(uuid, name).thenAccept(balance -> {
+            logger.info("Bilancio caricato per " + name + ": " + formatAmount(balance));
+            markOnline(player, previousName);
+        });
+    }
+
+    /**
+     * Segna come online l'account caricato di un giocatore e registra l'eventuale cambio nome
+     */
+    private void markOnline(Player player, String previousName) {
+        UUID uuid = player.getUniqueId();
+        String name = player.getName();
+
+        accountLocks.withLock(uuid, () -> {
+            CachedAccount account = cache.peek(uuid);
+            if (account == null) {
+                return null;
+            }
+
+            // I giocatori online restano in cache (se nel frattempo non si sono già disconnessi)
+            account.online = player.isOnline();
+
+            // Cambio nome: il nuovo nome viene scritto nel database dal prossimo flush
+            if (previousName != null && !previousName.equals(name)) {
+                writeBalance(uuid, account, name, account.balance);
+                logger.info("Nome aggiornato: " + previousName + " -> " + name);
+            }
+            return null;
+        });
     }
 
     /**
-     * Salva il bilancio quando un giocatore si disconnette
+     * Salva il bilancio quando un giocatore si disconnette.
+     * La voce resta in cache finché la manutenzione non la fa scadere (cache-duration) o la rimuove per spazio.
      */
     public void onPlayerQuit(Player player) {
         UUID uuid = player.getUniqueId();
-        if (balanceCache.containsKey(uuid)) {
-            database.saveBalance(uuid, player.getName(), balanceCache.get(uuid))
-                    .thenAccept(success -> {
-                        if (success) {
-                            logger.info("Bilancio salvato per " + player.getName());
-                        }
-                        // Rimuovi dalla cache dopo un delay
-                        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                            balanceCache.remove(uuid);
-                            cacheTimestamps.remove(uuid);
-                        }, 20L * 300); // 5 minuti dopo il logout
-                    });
+        recentPartners.remove(uuid);
+        recentHistory.remove(uuid);
+
+        if (clustered) {
+            // Salvato come in un flush, dopo quelli in corso: i conflitti con gli altri nodi si risolvono con la versione
+            accountLocks.withLock(uuid, () -> {
+                CachedAccount account = cache.peek(uuid);
+                if (account != null) {
+                    account.online = false;
+                }
+                return null;
+            });
+            if (dirtyAccounts.contains(uuid)) {
+                enqueueWrite(() -> flushShared(List.of(uuid))).thenAccept(written -> {
+                    if (written > 0) {
+                        logger.info("Bilancio salvato per " + player.getName());
+                    }
+                });
+            }
+            return;
+        }
+
+        BalanceSnapshot snapshot = accountLocks.withLock(uuid, () -> {
+            CachedAccount account = cache.peek(uuid);
+            if (account == null) {
+                return null;
+            }
+
+            account.online = false;
+            return dirtyAccounts.remove(uuid) ? new BalanceSnapshot(account, account.balance, account.modCount) : null;
+        });
+
+        if (snapshot == null) {
+            return;
+        }
+
+        pendingQuitSaves.incrementAndGet();
+        database.saveBalance(uuid, player.getName(), Money.toDecimal(snapshot.balance()))
+                .whenComplete((success, error) -> {
+                    if (error == null && success) {
+                        markPersisted(uuid, snapshot);
+                        logger.info("Bilancio salvato per " + player.getName());
+                    } else {
+                        // Riprova al prossimo flush
+                        failedQuitSaves.increment();
+                        dirtyAccounts.add(uuid);
+                    }
+                    pendingQuitSaves.decrementAndGet();
+                });
+    }
+
+    /**
+     * Bilancio letto sotto lock insieme al numero di modifiche che include
+     */
+    private record BalanceSnapshot(CachedAccount account, long balance, long modCount) {
+    }
+
+    private void markPersisted(UUID uuid, BalanceSnapshot snapshot) {
+        accountLocks.withLock(uuid, () -> {
+            snapshot.account().markPersisted(snapshot.modCount());
+            return null;
+        });
+    }
+
+    /**
+     * Manutenzione periodica della cache: scadenze, eviction e refresh-ahead dei giocatori online.
+     * Applica anche alla classifica le modifiche accumulate dall'ultimo ciclo.
+     */
+    private void runCacheMaintenance() {
+        try {
+            long now = System.currentTimeMillis();
+            cache.runMaintenance(now);
+            refreshOnlineAccounts(now);
+            leaderboard.drain();
+        } catch (RuntimeException e) {
+            logger.severe("Errore durante la manutenzione della cache: " + e.getMessage());
+        } finally {
+            maintenanceRequested.set(false);
         }
     }
 
     /**
-     * Salva tutti i bilanciamenti in cache
+     * Anticipa la manutenzione quando la cache supera il limite tra un ciclo e l'altro
      */
-    public void saveAllCachedBalances() {
-        logger.info("Salvataggio automatico di " + balanceCache.size() + " bilanciamenti in cache...");
+    private void requestCacheMaintenance() {
+        if (maintenanceRequested.compareAndSet(false, true)) {
+            try {
+                saveScheduler.execute(this::runCacheMaintenance);
+            } catch (RejectedExecutionException e) {
+                maintenanceRequested.set(false);
+            }
+        }
+    }
 
-        for (Map.Entry<UUID, BigDecimal> entry : balanceCache.entrySet()) {
+    /**
+     * Refresh-ahead: ricarica in background le voci dei giocatori online lette dal database
+     * da più di cache.refresh-ahead secondi. Il valore letto viene applicato solo se nel frattempo
+     * la voce non ha ricevuto modifiche e non ha nulla da salvare, quindi non può sovrascriverle.
+     * Una lettura fallita lascia la voce com'è: viene ritentata al ciclo di manutenzione successivo.
+     * In modalità cluster le voci vengono invece riallineate dal feed delle modifiche ({@link #pollChanges}).
+     */
+    private void refreshOnlineAccounts(long now) {
+        EconomySettings current = settings;
+        if (current.refreshAfter() <= 0 || clustered) {
+            return;
+        }
+
+        int scheduled = 0;
+        for (Map.Entry<UUID, CachedAccount> entry : cache.onlineEntries()) {
             UUID uuid = entry.getKey();
-            BigDecimal balance = entry.getValue();
-            Player player = Bukkit.getPlayer(uuid);
-            String name = player != null ? player.getName() : "Unknown";
+            CachedAccount account = entry.getValue();
+            if (now - account.loadedAt < current.refreshAfter() || !account.isClean()) {
+                continue;
+            }
+            if (scheduled++ >= REFRESH_BATCH) {
+                break;
+            }
 
-            database.saveBalance(uuid, name, balance);
+            long expectedModCount = account.modCount;
+            database.loadBalance(uuid, account.name, current.startingBalance()).thenAccept(balance ->
+                    accountLocks.withLock(uuid, () -> {
+                        if (cache.peek(uuid) == account && account.modCount == expectedModCount && account.isClean()) {
+                            account.balance = Money.toMinorClamped(balance, settings.maxBalanceMinor());
+                            account.loadedAt = System.currentTimeMillis();
+                            leaderboard.update(uuid, account.balance);
+                            cache.recordRefresh();
+                        }
+                        return null;
+                    }));
         }
+    }
 
-        logger.info("Salvataggio automatico completato!");
+    /**
+     * Statistiche della cache (dimensione, hit ratio, eviction)
+     */
+    public BalanceCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Caricamenti evitati perché uniti ad uno già in corso per lo stesso account
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    /**
+     * Salva nel database solo gli account modificati dall'ultimo flush,
+     * a blocchi di auto-save.batch-size righe su un'unica connessione.
+     *
+     * Ogni flush è anche un checkpoint del journal: se tutti gli account modificati prima del
+     * flush risultano salvati, i segmenti del journal che li contengono vengono liberati.
+     * Un flush richiesto mentre un altro è in corso parte al termine di quello (stesso checkpoint
+     * del journal mai condiviso tra due batch in volo).
+     * @return Numero di righe scritte
+     */
+    public CompletableFuture<Integer> flushDirtyBalances() {
+        return enqueueWrite(this::flushNow);
+    }
+
+    /**
+     * Accoda una scrittura dopo l'ultima avviata (anche se fallita)
+     */
+    private synchronized <T> CompletableFuture<T> enqueueWrite(Supplier<CompletableFuture<T>> write) {
+        CompletableFuture<T> next = lastWrite
+                .handle((result, error) -> null)
+                .thenCompose(ignored -> write.get());
+        lastWrite = next;
+        return next;
+    }
+
+    private CompletableFuture<Integer> flushNow() {
+        if (clustered) {
+            return flushShared(new ArrayList<>(dirtyAccounts));
+        }
+
+        Object checkpoint = journal.checkpoint();
+        long failedQuitSavesBefore = failedQuitSaves.sum();
+
+        if (dirtyAccounts.isEmpty()) {
+            releaseCheckpoint(checkpoint, failedQuitSavesBefore);
+            return CompletableFuture.completedFuture(0);
+        }
+
+        // L'account viene tolto dai dirty e letto sotto lock insieme al suo numero di modifiche:
+        // una modifica concorrente lo rimette in coda per il flush successivo
+        List<DatabaseManager.BalanceRecord> records = new ArrayList<>(dirtyAccounts.size());
+        Map<UUID, BalanceSnapshot> snapshots = new HashMap<>();
+        for (UUID uuid : dirtyAccounts) {
+            accountLocks.withLock(uuid, () -> {
+                CachedAccount account = cache.peek(uuid);
+                if (dirtyAccounts.remove(uuid) && account != null) {
+                    records.add(new DatabaseManager.BalanceRecord(uuid, account.name, account.balance));
+                    snapshots.put(uuid, new BalanceSnapshot(account, account.balance, account.modCount));
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        return database.saveBalances(records, settings.flushBatchSize())
+                .thenApply(result -> {
+                    for (DatabaseManager.BalanceRecord failed : result.failed()) {
+                        snapshots.remove(failed.playerUUID());
+                        dirtyAccounts.add(failed.playerUUID());
+                    }
+
+                    // Le voci salvate tornano "pulite" e diventano di nuovo rimovibili dalla cache
+                    snapshots.forEach(this::markPersisted);
+
+                    // Durata e righe finiscono nelle metriche (/eco stats): nessun log ad ogni flush
+                    long elapsed = System.nanoTime() - start;
+                    metrics.recordFlush(elapsed, result.written());
+                    logger.fine("Flush write-behind: " + result.written() + "/" + records.size() +
+                            " bilanciamenti salvati in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+                    if (!result.failed().isEmpty()) {
+                        logger.warning(result.failed().size() + " bilanciamenti verranno ritentati al prossimo flush");
+                    } else {
+                        releaseCheckpoint(checkpoint, failedQuitSavesBefore);
+                    }
+                    return result.written();
+                })
+                .whenComplete((written, error) -> {
+                    if (error != null) {
+                        // Batch mai eseguito (es. coda del DB executor piena): tutti gli account tornano da salvare
+                        // e il checkpoint del journal resta fino al prossimo flush riuscito
+                        for (DatabaseManager.BalanceRecord record : records) {
+                            dirtyAccounts.add(record.playerUUID());
+                        }
+                        logger.warning("Flush write-behind fallito, " + records.size() +
+                                " bilanciamenti verranno ritentati al prossimo flush");
+                    }
+                });
+    }
+
+    /**
+     * Flush in modalità cluster: salva la differenza di ogni account dal bilancio letto con un UPDATE
+     * condizionato sulla versione (vedi {@link ClusterStore#save}), poi riallinea la cache al bilancio scritto,
+     * che include le modifiche degli altri nodi. Gli account in conflitto oltre cluster.max-retries tentativi
+     * restano da salvare al flush successivo.
+     * @return Numero di account salvati
+     */
+    private CompletableFuture<Integer> flushShared(Collection<UUID> uuids) {
+        Map<UUID, ClusterStore.VersionedRecord> records = new HashMap<>();
+        Map<UUID, BalanceSnapshot> snapshots = new HashMap<>();
+        for (UUID uuid : uuids) {
+            accountLocks.withLock(uuid, () -> {
+                CachedAccount account = cache.peek(uuid);
+                if (dirtyAccounts.remove(uuid) && account != null) {
+                    records.put(uuid, new ClusterStore.VersionedRecord(uuid, account.name, account.balance, account.base,
+                            account.version, account.absolute));
+                    snapshots.put(uuid, new BalanceSnapshot(account, account.balance, account.modCount));
+                }
+                return null;
+            });
+        }
+
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        long start = System.nanoTime();
+        return database.saveVersionedBalances(new ArrayList<>(records.values()), settings.flushBatchSize(), settings.maxBalanceMinor())
+                .thenApply(result -> {
+                    for (ClusterStore.VersionedRecord failed : result.failed()) {
+                        dirtyAccounts.add(failed.playerUUID());
+                    }
+
+                    for (ClusterStore.SavedBalance saved : result.saved()) {
+                        UUID uuid = saved.playerUUID();
+                        ClusterStore.VersionedRecord record = records.get(uuid);
+                        BalanceSnapshot snapshot = snapshots.get(uuid);
+
+                        accountLocks.withLock(uuid, () -> {
+                            CachedAccount account = snapshot.account();
+                            applyWritten(uuid, saved.balance(), saved.version(), record.balance() - record.base());
+                            // Un /eco set successivo resta da salvare come valore assoluto
+                            if (account.modCount == snapshot.modCount()) {
+                                account.absolute = false;
+                            }
+                            account.markPersisted(snapshot.modCount());
+                            return null;
+                        });
+                    }
+
+                    long elapsed = System.nanoTime() - start;
+                    metrics.recordFlush(elapsed, result.saved().size());
+                    logger.fine("Flush write-behind: " + result.saved().size() + "/" + records.size() +
+                            " bilanciamenti salvati in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms (" +
+                            result.conflicts() + " conflitti)");
+                    return result.saved().size();
+                })
+                .whenComplete((saved, error) -> {
+                    if (error != null) {
+                        // Batch mai eseguito: le differenze restano da salvare al prossimo flush
+                        dirtyAccounts.addAll(records.keySet());
+                        logger.warning("Flush write-behind fallito, " + records.size() +
+                                " bilanciamenti verranno ritentati al prossimo flush");
+                    }
+                });
+    }
+
+    /**
+     * Modalità cluster: riallinea le voci in cache degli account cambiati sugli altri nodi (feed balance_changes).
+     * Una modifica di tutti gli account (operazione di massa, importazione) rilegge anche indice e classifica.
+     */
+    private void pollChanges() {
+        try {
+            List<ClusterStore.BalanceChange> changes = database.pollChanges().join();
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            Set<UUID> changed = new HashSet<>();
+            boolean all = false;
+            for (ClusterStore.BalanceChange change : changes) {
+                if (change.playerUUID() == null) {
+                    all = true;
+                } else {
+                    changed.add(change.playerUUID());
+                }
+            }
+
+            if (all) {
+                database.streamAccounts((uuid, name, balance) -> {
+                    nameIndex.putIfAbsent(uuid, name);
+                    if (cache.peek(uuid) == null) {
+                        leaderboard.update(uuid, Money.toMinorClamped(balance, settings.maxBalanceMinor()));
+                    }
+                }).join();
+                changed.addAll(cache.keys());
+            }
+            rebase(changed).join();
+        } catch (CompletionException e) {
+            logger.warning("Modifiche degli altri nodi non lette, nuovo tentativo tra " + pollInterval + "ms: " +
+                    e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Rilegge bilancio e versione degli account e riallinea le voci in cache più vecchie, conservando
+     * la differenza non ancora salvata. Le voci con un /eco set da salvare non vengono toccate.
+     * Un account ancora in caricamento viene riletto quando il caricamento termina.
+     */
+    private CompletableFuture<Void> rebase(Collection<UUID> uuids) {
+        if (uuids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return database.readVersionedBalances(uuids).thenAccept(fresh -> fresh.forEach((uuid, stored) -> {
+            nameIndex.putIfAbsent(uuid, stored.playerName());
+
+            accountLocks.withLock(uuid, () -> {
+                CachedAccount account = cache.peek(uuid);
+                if (account == null) {
+                    leaderboard.update(uuid, clamp(stored.balance()));
+                    CompletableFuture<CachedAccount> pending = pendingLoads.get(uuid);
+                    if (pending != null) {
+                        pending.thenRun(() -> rebase(List.of(uuid)));
+                    }
+                } else if (!account.absolute && stored.version() > account.version) {
+                    account.balance = clamp(stored.balance() + account.balance - account.base);
+                    account.base = stored.balance();
+                    account.version = stored.version();
+                    account.loadedAt = System.currentTimeMillis();
+                    leaderboard.update(uuid, account.balance);
+                    cache.recordRefresh();
+                }
+                return null;
+            });
+        }));
+    }
+
+    /**
+     * Libera i segmenti del journal coperti dal checkpoint, se nessun salvataggio al quit
+     * è ancora in corso o è fallito dall'inizio del checkpoint
+     */
+    private void releaseCheckpoint(Object checkpoint, long failedQuitSavesBefore) {
+        if (pendingQuitSaves.get() == 0 && failedQuitSaves.sum() == failedQuitSavesBefore) {
+            journal.release(checkpoint);
+        }
+    }
+
+    /**
+     * Aggiunge amount a tutti gli account (limitato a max-balance)
+     */
+    public CompletableFuture<BulkOperation.Result> giveAll(BigDecimal amount, String source) {
+        long max = settings.maxBalanceMinor();
+        BulkOperation operation = BulkOperation.give(Money.toMinorClamped(amount, max), max);
+        return runBulk(operation, "Accredito di " + formatAmount(amount) + " a tutti (" + source + ")");
+    }
+
+    /**
+     * Accredita a tutti gli account percent% del loro bilancio (limitato a max-balance)
+     */
+    public CompletableFuture<BulkOperation.Result> applyInterest(BigDecimal percent, String source) {
+        return runBulk(BulkOperation.interest(percent, settings.maxBalanceMinor()),
+                "Interesse del " + percent.stripTrailingZeros().toPlainString() + "% (" + source + ")");
+    }
+
+    /**
+     * Preleva percent% della parte di ogni bilancio che supera threshold
+     */
+    public CompletableFuture<BulkOperation.Result> applyTax(BigDecimal percent, BigDecimal threshold, String source) {
+        long max = settings.maxBalanceMinor();
+        return runBulk(BulkOperation.tax(percent, Money.toMinorClamped(threshold, max), max),
+                "Tassa del " + percent.stripTrailingZeros().toPlainString() + "% oltre " + formatAmount(threshold) +
+                        " (" + source + ")");
+    }
+
+    /**
+     * Applica un'operazione a tutti gli account senza una query per account.
+     *
+     * Accodata come un flush (nessun flush in parallelo): salva prima le modifiche in memoria, poi
+     * applica l'operazione agli account in cache sotto il loro lock (passando dal journal come ogni modifica)
+     * e a tutti gli altri nel database con UPDATE a blocchi che escludono quelli in cache.
+     * Ogni account riceve l'operazione una sola volta; nel log transazioni finisce una sola riga di riepilogo.
+     * Un errore dopo l'inizio fa fallire il future con una {@link BulkOperation.PartialFailure}: gli account
+     * già modificati restano tali e ripetere l'operazione li modificherebbe una seconda volta.
+     */
+    private CompletableFuture<BulkOperation.Result> runBulk(BulkOperation operation, String description) {
+        return enqueueWrite(() -> flushNow().thenCompose(written -> {
+            // Le righe del database non devono avere modifiche più vecchie nel journal: al riavvio dopo
+            // un crash le riporterebbero a prima dell'operazione
+            if (journal.getSealedSegments() > 0) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "ci sono modifiche non ancora salvate nel database, riprova tra qualche secondo"));
+            }
+            return bulkNow(operation, description);
+        }));
+    }
+
+    private CompletableFuture<BulkOperation.Result> bulkNow(BulkOperation operation, String description) {
+        CompletableFuture<BulkOperation.Result> done = new CompletableFuture<>();
+        bulkBarrier.writeLock().lock();
+        try {
+            bulkGeneration++;
+            bulkInProgress = done;
+        } finally {
+            bulkBarrier.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        List<UUID> cached = new ArrayList<>();
+        long[] memory = new long[2]; // Account modificati, variazione totale
+
+        for (UUID uuid : cache.keys()) {
+            accountLocks.withLock(uuid, () -> {
+                CachedAccount account = cache.peek(uuid);
+                if (account == null) {
+                    return null;
+                }
+
+                // Anche se non cambia, il bilancio in memoria è quello autorevole: la riga nel database va esclusa
+                cached.add(uuid);
+                long updated = operation.apply(account.balance);
+                if (updated != account.balance) {
+                    memory[0]++;
+                    memory[1] += updated - account.balance;
+                    writeBalance(uuid, account, account.name, updated);
+                }
+                return null;
+            });
+        }
+
+        BulkOperation.Result[] storedResult = new BulkOperation.Result[1];
+        database.applyBulk(operation, cached, settings.bulkChunkSize(), leaderboard::update)
+                .thenCompose(stored -> {
+                    storedResult[0] = stored;
+                    return journal.sync().thenApply(ignored -> stored.plus(new BulkOperation.Result(memory[0], memory[1])));
+                })
+                .whenComplete((result, error) -> {
+                    bulkInProgress = null;
+                    if (error != null) {
+                        // Account in cache e blocchi confermati del database già modificati: l'operazione
+                        // risulta parziale e non va ripetuta per intero
+                        BulkOperation.PartialFailure partial = BulkOperation.PartialFailure.find(error);
+                        BulkOperation.Result stored = storedResult[0] != null ? storedResult[0]
+                                : partial != null ? partial.getApplied() : new BulkOperation.Result(0, 0);
+                        BulkOperation.Result applied = new BulkOperation.Result(memory[0], memory[1]).plus(stored);
+                        Throwable cause = partial != null ? partial.getCause() : error;
+                        if (cause instanceof CompletionException && cause.getCause() != null) {
+                            cause = cause.getCause();
+                        }
+
+                        if (applied.accounts() == 0) {
+                            // Nessun account modificato: l'operazione può essere ripetuta
+                            logger.severe(description + ": operazione non eseguita, nessun account modificato: " + cause.getMessage());
+                            done.completeExceptionally(cause);
+                            return;
+                        }
+
+                        database.logTransaction(null, null, Money.toDecimal(Math.abs(applied.total())),
+                                operation.type().getLogType(), description + ": " + applied.accounts() + " account (interrotta)");
+                        logger.severe(description + " interrotta: " + applied.accounts() + " account già modificati, " +
+                                "variazione totale " + formatAmount(Money.toDecimal(applied.total())) + ": " + cause.getMessage());
+                        done.completeExceptionally(new BulkOperation.PartialFailure(applied, cause));
+                        return;
+                    }
+
+                    database.logTransaction(null, null, Money.toDecimal(Math.abs(result.total())),
+                            operation.type().getLogType(), description + ": " + result.accounts() + " account");
+                    logger.info(description + ": " + result.accounts() + " account, variazione totale " +
+                            formatAmount(Money.toDecimal(result.total())) + " in " + (System.currentTimeMillis() - start) + "ms");
+                    done.complete(result);
+                });
+        return done;
+    }
+
+    /**
+     * Esporta l'economy in target dopo aver salvato le modifiche in memoria (vedi {@link EconomyDump})
+     */
+    public CompletableFuture<EconomyDump.Result> exportEconomy(File target, EconomyDump.Progress progress) {
+        return flushDirtyBalances().thenCompose(written -> database.exportEconomy(target, progress));
+    }
+
+    /**
+     * Importa un'esportazione: i bilanciamenti importati sostituiscono anche quelli in cache,
+     * nell'indice dei nomi e nella classifica. Le modifiche in memoria vengono salvate prima
+     * dell'importazione e quelle degli account in cache subito dopo.
+     */
+    public CompletableFuture<EconomyDump.Result> importEconomy(File source, EconomyDump.Progress progress) {
+        return flushDirtyBalances()
+                .thenCompose(written -> database.importEconomy(source, progress, this::applyImported))
+                .whenComplete((result, throwable) -> recentHistory.invalidate())
+                // Modalità cluster: le versioni sono cambiate con l'importazione
+                .thenCompose(result -> (clustered ? rebase(cache.keys()) : CompletableFuture.<Void>completedFuture(null))
+                        .thenApply(ignored -> result))
+                .thenCompose(result -> flushDirtyBalances().thenApply(written -> result));
+    }
+
+    private void applyImported(UUID playerUUID, String playerName, long balance) {
+        long clamped = Math.max(0, Math.min(balance, settings.maxBalanceMinor()));
+        nameIndex.put(playerUUID, playerName);
+
+        accountLocks.withLock(playerUUID, () -> {
+            CachedAccount account = cache.peek(playerUUID);
+            if (account != null && clustered) {
+                // Già nel database: nessuna differenza da salvare, la versione viene riletta a fine importazione
+                account.balance = clamped;
+                account.name = playerName;
+                account.base = balance;
+                account.version = -1;
+                account.absolute = false;
+                leaderboard.update(playerUUID, clamped);
+            } else if (account != null) {
+                writeBalance(playerUUID, account, playerName, clamped);
+            } else {
+                leaderboard.update(playerUUID, clamped);
+            }
+            return null;
+        });
     }
 
     /**
@@ -266,8 +1521,6 @@ public class EconomyManager {
     public void shutdown() {
         logger.info("Shutdown EconomyManager in corso...");
 
-        saveAllCachedBalances();
-
         saveScheduler.shutdown();
         try {
             if (!saveScheduler.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -277,6 +1530,9 @@ public class EconomyManager {
             saveScheduler.shutdownNow();
         }
 
+        // Flush finale: attende la scrittura prima che il pool di connessioni venga chiuso
+        flushDirtyBalances().join();
+
         logger.info("EconomyManager chiuso correttamente!");
     }
 
@@ -284,12 +1540,28 @@ public class EconomyManager {
      * Classe risultato transazione
      */
     public static class TransactionResult {
+        // Esito positivo condiviso, usato dentro la sezione critica per non allocare
+        private static final TransactionResult SUCCESS = new TransactionResult(true, null);
+
         private final boolean success;
         private final String message;
+        private final TransferFailure failure;
 
         public TransactionResult(boolean success, String message) {
+            this(success, message, null);
+        }
+
+        private TransactionResult(boolean success, String message, TransferFailure failure) {
             this.success = success;
             this.message = message;
+            this.failure = failure;
+        }
+
+        /**
+         * Esito negativo con il motivo, usato dai comandi per scegliere il messaggio nella lingua del giocatore
+         */
+        public static TransactionResult failed(TransferFailure failure, String message) {
+            return new TransactionResult(false, message, failure);
         }
 
         public boolean isSuccess() {
@@ -299,18 +1571,33 @@ public class EconomyManager {
         public String getMessage() {
             return message;
         }
+
+        /**
+         * Motivo del rifiuto, o null se riuscito o non classificato
+         */
+        public TransferFailure getFailure() {
+            return failure;
+        }
     }
 
     public DatabaseManager getDatabase() {
         return database;
     }
 
+    /**
+     * Ottiene il bilancio iniziale dei nuovi account
+     * @return Bilancio iniziale
+     */
+    public BigDecimal getStartingBalance() {
+        return settings.startingBalance();
+    }
+
     /**
      * Ottiene l'importo minimo per le transazioni
      * @return Importo minimo
      */
     public BigDecimal getMinTransaction() {
-        return minTransaction;
+        return settings.minTransaction();
     }
 
     /**
@@ -318,6 +1605,6 @@ public class EconomyManager {
      * @return Bilancio massimo
      */
     public BigDecimal getMaxBalance() {
-        return maxBalance;
+        return settings.maxBalance();
     }
 }
@@ -0,0 +1,74 @@
+package com.marskernel.trialEconomy.manager;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.math.BigDecimal;
+
+/**
+ * Impostazioni dell'economy lette da config.yml, validate e immutabili.
+ *
+ * EconomyManager pubblica l'istanza corrente in un unico campo volatile: /eco reload ne costruisce
+ * una nuova e la sostituisce in un colpo solo, quindi i percorsi caldi leggono campi finali
+ * senza accedere alla configurazione e non vedono mai valori di due versioni diverse.
+ */
+public record EconomySettings(BigDecimal startingBalance, long startingBalanceMinor,
+                              BigDecimal maxBalance, long maxBalanceMinor,
+                              BigDecimal minTransaction, long minTransactionMinor,
+                              String currencySymbol, String currencyName,
+                              long cacheDuration, // In millisecondi
+                              int cacheMaxEntries,
+                              long refreshAfter, // In millisecondi, 0 = refresh-ahead disabilitato
+                              long flushInterval, // In secondi
+                              int flushBatchSize,
+                              int tabCompleteLimit,
+                              boolean rankRecentPartners,
+                              int baltopPageSize,
+                              int paylogPageSize,
+                              int bulkChunkSize) {
+
+    /**
+     * Legge e valida le impostazioni
+     * @throws IllegalArgumentException se un valore non è valido (messaggio da mostrare all'amministratore)
+     */
+    public static EconomySettings load(ConfigurationSection config) {
+        double starting = config.getDouble("starting-balance", 1000.0);
+        double max = config.getDouble("max-balance", 1000000000.0);
+        double minimum = config.getDouble("min-transaction", 0.01);
+        long cacheDuration = config.getLong("cache-duration", 1800);
+
+        if (!(max > 0)) {
+            throw new IllegalArgumentException("max-balance deve essere maggiore di zero");
+        }
+        if (!(starting >= 0)) {
+            throw new IllegalArgumentException("starting-balance non può essere negativo");
+        }
+        if (!(minimum >= 0) || minimum > max) {
+            throw new IllegalArgumentException("min-transaction deve essere tra 0 e max-balance");
+        }
+        if (cacheDuration < 0) {
+            throw new IllegalArgumentException("cache-duration non può essere negativo");
+        }
+
+        // Il bilancio massimo deve stare in un long di centesimi
+        long maxBalanceMinor = Money.toMinorClamped(BigDecimal.valueOf(max), Long.MAX_VALUE);
+        long startingBalanceMinor = Money.toMinorClamped(BigDecimal.valueOf(starting), maxBalanceMinor);
+        long minTransactionMinor = Math.max(1, Money.toMinorClamped(BigDecimal.valueOf(minimum), maxBalanceMinor));
+
+        return new EconomySettings(
+                Money.toDecimal(startingBalanceMinor), startingBalanceMinor,
+                Money.toDecimal(maxBalanceMinor), maxBalanceMinor,
+                Money.toDecimal(minTransactionMinor), minTransactionMinor,
+                config.getString("currency-symbol", "$"),
+                config.getString("currency-name", "dollari"),
+                cacheDuration * 1000, // Converti in ms
+                Math.max(1, config.getInt("cache.max-entries", 50000)),
+                Math.max(0, config.getLong("cache.refresh-ahead", 600)) * 1000,
+                Math.max(1, config.getLong("auto-save.interval", 300)),
+                Math.max(1, config.getInt("auto-save.batch-size", 500)),
+                Math.max(1, config.getInt("tab-complete.max-results", 20)),
+                config.getBoolean("tab-complete.rank-recent-partners", true),
+                Math.max(1, Math.min(100, config.getInt("baltop.page-size", 10))),
+                Math.max(1, Math.min(100, config.getInt("paylog.page-size", 10))),
+                Math.max(1, config.getInt("bulk-operations.chunk-size", 200)));
+    }
+}
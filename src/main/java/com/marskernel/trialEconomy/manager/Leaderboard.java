@@ -0,0 +1,354 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Classifica in memoria di tutti gli account per /baltop.
+ *
+ * Albero di ricerca bilanciato (treap) ordinato per bilancio decrescente e poi per UUID, con la
+ * dimensione di ogni sottoalbero: la posizione di un account e l'inizio di una pagina si trovano
+ * in O(log n) e la pagina si legge con una visita in ordine da lì, O(log n + pagina), senza ordinare nulla.
+ *
+ * Le modifiche dei bilanciamenti non toccano l'albero: finiscono in una mappa concorrente
+ * (ultimo valore per account) applicata sotto lock alla lettura successiva o dalla manutenzione
+ * periodica, così i trasferimenti non si contendono il lock della classifica.
+ */
+public class Leaderboard {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Function<UUID, String> names;
+
+    // Accessibili solo con il lock acquisito
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private Node root;
+
+    // Ultimo bilancio non ancora applicato all'albero, per account
+    private final ConcurrentHashMap<UUID, Long> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * @param names Nome da mostrare per un account (letto al momento della richiesta di una pagina)
+     */
+    public Leaderboard(Function<UUID, String> names) {
+        this.names = names;
+    }
+
+    /**
+     * Registra il nuovo bilancio di un account (lock-free, applicato alla prossima lettura)
+     */
+    void update(UUID uuid, long balance) {
+        pending.put(uuid, balance);
+    }
+
+    /**
+     * Aggiunge un account letto dal database solo se la classifica non lo conosce già:
+     * un bilancio modificato in memoria è più recente di quello letto.
+     */
+    void seed(UUID uuid, long balance) {
+        lock.lock();
+        try {
+            if (!nodes.containsKey(uuid) && !pending.containsKey(uuid)) {
+                insert(uuid, balance);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica che il caricamento iniziale dal database è completato
+     */
+    void markLoaded() {
+        this.loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Applica all'albero le modifiche in attesa
+     */
+    void drain() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            drainLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Legge una pagina della classifica (pagine numerate da 1)
+     */
+    public Page page(int page, int pageSize) {
+        lock.lock();
+        try {
+            drainLocked();
+
+            int total = size(root);
+            int totalPages = Math.max(1, (total + pageSize - 1) / pageSize);
+            int offset = (page - 1) * pageSize;
+            List<Entry> entries = new ArrayList<>(pageSize);
+            if (offset >= total) {
+                return new Page(page, totalPages, entries);
+            }
+
+            // Discesa fino all'elemento di posizione offset, tenendo gli antenati ancora da visitare
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            int index = offset;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (index < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (index == leftSize) {
+                    stack.push(node);
+                    break;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+
+            // Visita in ordine a partire da lì
+            int rank = offset + 1;
+            while (!stack.isEmpty() && entries.size() < pageSize) {
+                Node current = stack.pop();
+                entries.add(new Entry(rank++, current.uuid, names.apply(current.uuid), current.balance));
+
+                for (Node child = current.right; child != null; child = child.left) {
+                    stack.push(child);
+                }
+            }
+            return new Page(page, totalPages, entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Posizione in classifica di un account (da 1), o 0 se non presente
+     */
+    public int rankOf(UUID uuid) {
+        lock.lock();
+        try {
+            drainLocked();
+
+            Node target = nodes.get(uuid);
+            if (target == null) {
+                return 0;
+            }
+
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                int comparison = compare(target, node);
+                if (comparison == 0) {
+                    return rank + size(node.left) + 1;
+                }
+                if (comparison < 0) {
+                    node = node.left;
+                } else {
+                    rank += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ultimo bilancio noto di un account in centesimi, o -1 se la classifica non lo conosce.
+     * Non applica le modifiche in attesa: il lock è tenuto solo per la lettura di un nodo.
+     */
+    long balanceOf(UUID uuid) {
+        Long pendingBalance = pending.get(uuid);
+        if (pendingBalance != null) {
+            return pendingBalance;
+        }
+
+        lock.lock();
+        try {
+            // Rilettura sotto lock: un drain concorrente potrebbe averla appena spostata nell'albero
+            pendingBalance = pending.get(uuid);
+            if (pendingBalance != null) {
+                return pendingBalance;
+            }
+            Node node = nodes.get(uuid);
+            return node != null ? node.balance : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainLocked() {
+        for (UUID uuid : pending.keySet()) {
+            // Rimuove l'ultimo valore: una modifica successiva resta in attesa per il prossimo drain
+            Long balance = pending.remove(uuid);
+            if (balance != null) {
+                Node previous = nodes.get(uuid);
+                if (previous == null || previous.balance != balance) {
+                    if (previous != null) {
+                        root = remove(root, previous);
+                    }
+                    insert(uuid, balance);
+                }
+            }
+        }
+    }
+
+    private void insert(UUID uuid, long balance) {
+        Node node = new Node(uuid, balance, ThreadLocalRandom.current().nextInt());
+        nodes.put(uuid, node);
+        root = insert(root, node);
+    }
+
+    private Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+
+        if (node.priority > tree.priority) {
+            split(tree, node);
+            node.left = splitLeft;
+            node.right = splitRight;
+            return update(node);
+        }
+
+        if (compare(node, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    private static Node remove(Node tree, Node target) {
+        if (tree == target) {
+            return merge(tree.left, tree.right);
+        }
+
+        if (compare(target, tree) < 0) {
+            tree.left = remove(tree.left, target);
+        } else {
+            tree.right = remove(tree.right, target);
+        }
+        return update(tree);
+    }
+
+    // Risultato di split, usato solo con il lock acquisito
+    private Node splitLeft;
+    private Node splitRight;
+
+    /**
+     * Divide tree in nodi minori di key (splitLeft) e maggiori (splitRight)
+     */
+    private void split(Node tree, Node key) {
+        if (tree == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+
+        if (compare(tree, key) < 0) {
+            split(tree.right, key);
+            tree.right = splitLeft;
+            splitLeft = update(tree);
+        } else {
+            split(tree.left, key);
+            tree.left = splitRight;
+            splitRight = update(tree);
+        }
+    }
+
+    /**
+     * Unisce due alberi in cui tutti i nodi di left precedono quelli di right
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Ordine della classifica: bilancio decrescente, a parità di bilancio UUID crescente
+     */
+    private static int compare(Node a, Node b) {
+        int comparison = Long.compare(b.balance, a.balance);
+        return comparison != 0 ? comparison : a.uuid.compareTo(b.uuid);
+    }
+
+    private static final class Node {
+        final UUID uuid;
+        final long balance; // In centesimi
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(UUID uuid, long balance, int priority) {
+            this.uuid = uuid;
+            this.balance = balance;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Riga della classifica (bilancio in centesimi)
+     */
+    public record Entry(int rank, UUID uuid, String name, long balance) {
+    }
+
+    /**
+     * Pagina della classifica
+     */
+    public record Page(int page, int totalPages, List<Entry> entries) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversioni tra importi BigDecimal e unità minori (centesimi) in virgola fissa.
+ * La scala coincide con lo schema del database (DECIMAL(20, 2)): la cache lavora
+ * solo su long e BigDecimal resta ai confini (API, comandi, JDBC).
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Converte un importo in centesimi, arrotondando al centesimo (HALF_UP come il database)
+     * @throws ArithmeticException se l'importo non è rappresentabile in un long
+     */
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Indica se l'importo è rappresentabile in centesimi senza arrotondamento (al più SCALE decimali)
+     */
+    public static boolean isExact(BigDecimal amount) {
+        return amount.stripTrailingZeros().scale() <= SCALE;
+    }
+
+    /**
+     * Converte un importo in centesimi limitandolo a max (importi troppo grandi valgono max)
+     */
+    public static long toMinorClamped(BigDecimal amount, long max) {
+        if (amount.compareTo(toDecimal(max)) >= 0) {
+            return max;
+        }
+        return toMinor(amount);
+    }
+
+    /**
+     * Converte centesimi in BigDecimal con scala 2
+     */
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /**
+     * Somma limitata a max, senza overflow (richiede 0 <= balance <= max e amount >= 0)
+     */
+    public static long addClamped(long balance, long amount, long max) {
+        return amount > max - balance ? max : balance + amount;
+    }
+}
@@ -0,0 +1,113 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Indice in memoria nome → UUID, case-insensitive, di tutti gli account conosciuti.
+ *
+ * Caricato all'avvio dal database e aggiornato al join (anche in caso di cambio nome)
+ * e alla creazione degli account: la ricerca dei target offline di /pay è O(1)
+ * senza round-trip al database.
+ *
+ * Mantiene anche i nomi ordinati (case-insensitive) in una skip list per il tab completion:
+ * le corrispondenze di un prefisso si leggono con una ricerca binaria seguita da una
+ * scansione limitata a N risultati, senza scorrere né copiare l'intero insieme.
+ */
+public class PlayerNameIndex {
+
+    // Nome in minuscolo -> UUID
+    private final ConcurrentHashMap<String, UUID> byName;
+    // UUID -> nome attuale (maiuscole originali)
+    private final ConcurrentHashMap<UUID, String> byUUID;
+    // Nomi attuali ordinati ignorando le maiuscole
+    private final ConcurrentSkipListSet<String> sortedNames;
+
+    private volatile boolean loaded;
+
+    public PlayerNameIndex() {
+        this.byName = new ConcurrentHashMap<>();
+        this.byUUID = new ConcurrentHashMap<>();
+        this.sortedNames = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    /**
+     * Registra il nome attuale di un account, rimuovendo l'eventuale nome precedente
+     * @return Nome precedente, o null se l'account non era indicizzato
+     */
+    public String put(UUID uuid, String name) {
+        String previous = byUUID.put(uuid, name);
+        if (previous != null && !previous.equals(name)) {
+            // Il vecchio nome resta libero (solo se punta ancora a questo account)
+            if (byName.remove(normalize(previous), uuid)) {
+                sortedNames.remove(previous);
+            }
+        }
+        byName.put(normalize(name), uuid);
+        sortedNames.add(name);
+        return previous;
+    }
+
+    /**
+     * Registra un account solo se non è già indicizzato.
+     * Usato dal caricamento iniziale per non sovrascrivere nomi aggiornati da un join concorrente.
+     */
+    public void putIfAbsent(UUID uuid, String name) {
+        if (byUUID.putIfAbsent(uuid, name) == null && byName.putIfAbsent(normalize(name), uuid) == null) {
+            sortedNames.add(name);
+        }
+    }
+
+    /**
+     * Cerca un account per nome (case-insensitive)
+     * @return UUID, o null se il nome non è indicizzato
+     */
+    public UUID find(String name) {
+        return byName.get(normalize(name));
+    }
+
+    /**
+     * Aggiunge a results fino a limit nomi che iniziano con prefix (case-insensitive), in ordine alfabetico.
+     * Ogni passo è una ricerca O(log n) nella skip list: il costo cresce con il limite, non con il numero di account.
+     */
+    public void complete(String prefix, int limit, String exclude, List<String> results) {
+        String name = sortedNames.ceiling(prefix);
+
+        while (name != null && results.size() < limit && name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            if (!name.equalsIgnoreCase(exclude) && !results.contains(name)) {
+                results.add(name);
+            }
+            name = sortedNames.higher(name);
+        }
+    }
+
+    /**
+     * Ottiene il nome attuale di un account
+     */
+    public String getName(UUID uuid) {
+        return byUUID.get(uuid);
+    }
+
+    /**
+     * Indica che il caricamento iniziale è completato: da qui in poi un nome
+     * non presente nell'indice non esiste nemmeno nel database
+     */
+    public void markLoaded() {
+        this.loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return byUUID.size();
+    }
+
+    static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
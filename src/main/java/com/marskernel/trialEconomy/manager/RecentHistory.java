@@ -0,0 +1,189 @@
+package com.marskernel.trialEconomy.manager;
+
+import com.marskernel.trialEconomy.database.DatabaseManager.HistoryEntry;
+import com.marskernel.trialEconomy.database.DatabaseManager.HistoryListener;
+import com.marskernel.trialEconomy.database.DatabaseManager.HistoryPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ultime voci dello storico transazioni dei giocatori online, per servire le prime pagine di /paylog
+ * senza interrogare il database.
+ *
+ * Il buffer di un giocatore nasce all'ingresso ed è alimentato dallo scrittore del log dopo ogni commit.
+ * Diventa utilizzabile quando la prima lettura dal database (avviata dopo la sua creazione) lo completa
+ * con le voci già scritte: quelle arrivate nel frattempo sono in entrambi e si scartano per id.
+ */
+public class RecentHistory implements HistoryListener {
+
+    private final int capacity;
+    private final ConcurrentHashMap<UUID, Buffer> buffers;
+
+    /**
+     * @param capacity Voci tenute per giocatore, 0 = buffer disabilitato
+     */
+    public RecentHistory(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.buffers = new ConcurrentHashMap<>();
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Crea il buffer di un giocatore appena connesso
+     */
+    void track(UUID player) {
+        if (isEnabled()) {
+            buffers.computeIfAbsent(player, key -> new Buffer(capacity));
+        }
+    }
+
+    /**
+     * Dimentica lo storico di un giocatore disconnesso
+     */
+    void remove(UUID player) {
+        buffers.remove(player);
+    }
+
+    /**
+     * Buffer di un giocatore, o null se non è tracciato
+     */
+    Buffer get(UUID player) {
+        return buffers.get(player);
+    }
+
+    /**
+     * Svuota tutti i buffer: la prossima lettura li ricompleta dal database (dopo un'importazione)
+     */
+    void invalidate() {
+        for (Buffer buffer : buffers.values()) {
+            buffer.reset();
+        }
+    }
+
+    @Override
+    public void logged(List<HistoryEntry> entries) {
+        for (HistoryEntry entry : entries) {
+            add(entry.sender(), entry);
+            if (entry.receiver() != null && !entry.receiver().equals(entry.sender())) {
+                add(entry.receiver(), entry);
+            }
+        }
+    }
+
+    @Override
+    public void missed() {
+        invalidate();
+    }
+
+    private void add(UUID player, HistoryEntry entry) {
+        if (player == null) {
+            return;
+        }
+
+        Buffer buffer = buffers.get(player);
+        if (buffer != null) {
+            buffer.add(entry);
+        }
+    }
+
+    /**
+     * Ultime voci di un giocatore, dalla più recente
+     */
+    static final class Buffer {
+
+        private final HistoryEntry[] entries;
+        private int size;
+
+        private boolean seeded;
+        private boolean truncated; // Esistono voci più vecchie non presenti nel buffer
+        private int generation; // Incrementata da reset: una lettura avviata prima non completa il buffer
+
+        Buffer(int capacity) {
+            this.entries = new HistoryEntry[capacity];
+        }
+
+        synchronized int generation() {
+            return generation;
+        }
+
+        synchronized boolean isSeeded() {
+            return seeded;
+        }
+
+        synchronized void add(HistoryEntry entry) {
+            // Le voci arrivano quasi sempre in ordine: la posizione si cerca dalla più recente
+            int index = 0;
+            while (index < size && HistoryEntry.NEWEST_FIRST.compare(entries[index], entry) < 0) {
+                index++;
+            }
+            if (index < size && entries[index].id() == entry.id()) {
+                return;
+            }
+
+            if (index == entries.length) {
+                truncated = true;
+                return;
+            }
+            if (size == entries.length) {
+                size--;
+                truncated = true;
+            }
+            System.arraycopy(entries, index, entries, index + 1, size - index);
+            entries[index] = entry;
+            size++;
+        }
+
+        /**
+         * Completa il buffer con le voci più recenti lette dal database
+         * @param generation Valore di {@link #generation()} letto prima di avviare la lettura
+         */
+        synchronized void seed(HistoryPage page, int generation) {
+            if (seeded || generation != this.generation) {
+                return;
+            }
+
+            for (HistoryEntry entry : page.entries()) {
+                add(entry);
+            }
+            truncated |= page.hasMore();
+            seeded = true;
+        }
+
+        /**
+         * Legge limit voci dopo le prime skip, o null se il buffer non le contiene tutte
+         */
+        synchronized HistoryPage read(int skip, int limit) {
+            if (!seeded) {
+                return null;
+            }
+
+            int end = skip + limit;
+            if (size < end && truncated) {
+                return null;
+            }
+
+            List<HistoryEntry> page = new ArrayList<>(limit);
+            for (int i = skip; i < Math.min(end, size); i++) {
+                page.add(entries[i]);
+            }
+            return new HistoryPage(page, size > end || truncated);
+        }
+
+        synchronized void reset() {
+            size = 0;
+            seeded = false;
+            truncated = false;
+            generation++;
+        }
+    }
+}
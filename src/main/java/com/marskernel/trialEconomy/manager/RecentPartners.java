@@ -0,0 +1,64 @@
+package com.marskernel.trialEconomy.manager;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ultimi destinatari di /pay per ogni giocatore online,
+ * usati per mostrarli per primi nei suggerimenti del tab completion
+ */
+public class RecentPartners {
+
+    private static final int SIZE = 5;
+    private static final UUID[] NONE = new UUID[0];
+
+    // Giocatore -> ultimi destinatari, dal più recente (array mai modificato dopo la pubblicazione)
+    private final ConcurrentHashMap<UUID, UUID[]> partners;
+
+    public RecentPartners() {
+        this.partners = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registra un trasferimento riuscito, portando il destinatario in cima alla lista
+     */
+    public void record(UUID sender, UUID receiver) {
+        partners.compute(sender, (key, current) -> {
+            UUID[] updated = new UUID[SIZE];
+            updated[0] = receiver;
+            int size = 1;
+
+            if (current != null) {
+                for (UUID partner : current) {
+                    if (size == SIZE) {
+                        break;
+                    }
+                    if (!partner.equals(receiver)) {
+                        updated[size++] = partner;
+                    }
+                }
+            }
+
+            if (size == SIZE) {
+                return updated;
+            }
+            UUID[] trimmed = new UUID[size];
+            System.arraycopy(updated, 0, trimmed, 0, size);
+            return trimmed;
+        });
+    }
+
+    /**
+     * Ottiene gli ultimi destinatari di un giocatore, dal più recente
+     */
+    public UUID[] get(UUID player) {
+        return partners.getOrDefault(player, NONE);
+    }
+
+    /**
+     * Dimentica i destinatari di un giocatore disconnesso
+     */
+    public void remove(UUID player) {
+        partners.remove(player);
+    }
+}
@@ -0,0 +1,58 @@
+package com.marskernel.trialEconomy.messages;
+
+/**
+ * Formato degli importi di una lingua: simbolo, separatore decimale e delle migliaia.
+ * Scrive le cifre dei centesimi direttamente nel builder, senza String.format né BigDecimal.
+ */
+final class CurrencyFormat {
+
+    private final String symbol;
+    private final boolean symbolFirst;
+    private final char decimalSeparator;
+    private final String groupingSeparator;
+
+    CurrencyFormat(String symbol, boolean symbolFirst, char decimalSeparator, String groupingSeparator) {
+        this.symbol = symbol;
+        this.symbolFirst = symbolFirst;
+        this.decimalSeparator = decimalSeparator;
+        this.groupingSeparator = groupingSeparator;
+    }
+
+    /**
+     * Aggiunge un importo in centesimi (es: 123456 -> "€1.234,56" in italiano)
+     */
+    void append(StringBuilder builder, long minor) {
+        if (minor < 0) {
+            builder.append('-');
+        }
+        if (symbolFirst) {
+            builder.append(symbol);
+        }
+
+        // Valore assoluto senza overflow anche per Long.MIN_VALUE
+        long units = Math.abs(minor / 100);
+        int cents = (int) Math.abs(minor % 100);
+        appendGrouped(builder, units);
+        builder.append(decimalSeparator)
+                .append((char) ('0' + cents / 10))
+                .append((char) ('0' + cents % 10));
+
+        if (!symbolFirst) {
+            builder.append(' ').append(symbol);
+        }
+    }
+
+    private void appendGrouped(StringBuilder builder, long units) {
+        if (units < 1000 || groupingSeparator.isEmpty()) {
+            builder.append(units);
+            return;
+        }
+
+        appendGrouped(builder, units / 1000);
+        int group = (int) (units % 1000);
+        builder.append(groupingSeparator)
+                .append((char) ('0' + group / 100))
+                .append((char) ('0' + group / 10 % 10))
+                .append((char) ('0' + group % 10));
+    }
+}
@@ -0,0 +1,69 @@
+package com.marskernel.trialEconomy.messages;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Messaggi di una lingua compilati da un file messages_&lt;lingua&gt;.yml
+ */
+final class MessageBundle {
+
+    private static final MessageTemplate[] EMPTY = new MessageTemplate[0];
+
+    private final String language;
+    private final Map<MessageKey, MessageTemplate[]> templates;
+    private final CurrencyFormat currency;
+
+    private MessageBundle(String language, Map<MessageKey, MessageTemplate[]> templates, CurrencyFormat currency) {
+        this.language = language;
+        this.templates = templates;
+        this.currency = currency;
+    }
+
+    /**
+     * Compila tutti i messaggi; una voce può essere una stringa o una lista di righe.
+     * Le voci mancanti arrivano dai default del file (la versione inclusa nel plugin)
+     */
+    static MessageBundle load(String language, ConfigurationSection file, String currencySymbol, Logger logger) {
+        Map<MessageKey, MessageTemplate[]> templates = new EnumMap<>(MessageKey.class);
+        for (MessageKey key : MessageKey.values()) {
+            List<String> lines = file.isList(key.getPath())
+                    ? file.getStringList(key.getPath())
+                    : file.isString(key.getPath()) ? List.of(file.getString(key.getPath())) : List.of();
+            if (lines.isEmpty()) {
+                logger.warning("Messaggio " + key.getPath() + " mancante in messages_" + language + ".yml");
+            }
+
+            MessageTemplate[] compiled = new MessageTemplate[lines.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = MessageTemplate.parse(lines.get(i), key.getPlaceholders(), name ->
+                        logger.warning("Segnaposto {" + name + "} sconosciuto in " + key.getPath() +
+                                " (messages_" + language + ".yml)"));
+            }
+            templates.put(key, compiled);
+        }
+
+        String decimal = file.getString("format.decimal-separator", ".");
+        CurrencyFormat currency = new CurrencyFormat(currencySymbol,
+                file.getBoolean("format.symbol-first", true),
+                decimal.isEmpty() ? '.' : decimal.charAt(0),
+                file.getString("format.grouping-separator", ""));
+        return new MessageBundle(language, templates, currency);
+    }
+
+    String getLanguage() {
+        return language;
+    }
+
+    MessageTemplate[] get(MessageKey key) {
+        return templates.getOrDefault(key, EMPTY);
+    }
+
+    CurrencyFormat getCurrency() {
+        return currency;
+    }
+}
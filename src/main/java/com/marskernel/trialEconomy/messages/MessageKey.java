@@ -0,0 +1,52 @@
+package com.marskernel.trialEconomy.messages;
+
+import java.util.List;
+
+/**
+ * Messaggi ai giocatori: percorso nei file messages_&lt;lingua&gt;.yml e segnaposto accettati, nell'ordine
+ * in cui i valori vanno passati a {@link Messages#render}
+ */
+public enum MessageKey {
+
+    PLAYERS_ONLY("general.players-only"),
+    NO_PERMISSION("general.no-permission"),
+
+    BALANCE("balance.show", "balance", "currency"),
+    BALANCE_ERROR("balance.error"),
+
+    PAY_USAGE("pay.usage"),
+    PAY_INVALID_AMOUNT("pay.invalid-amount"),
+    PAY_NOT_POSITIVE("pay.not-positive"),
+    PAY_BELOW_MINIMUM("pay.below-minimum", "minimum"),
+    PAY_SELF("pay.self"),
+    PAY_RATE_LIMITED("pay.rate-limited", "seconds"),
+    PAY_SEARCHING("pay.searching"),
+    PAY_NOT_FOUND("pay.not-found", "player"),
+    PAY_LOOKUP_ERROR("pay.lookup-error"),
+    PAY_SENT("pay.sent", "amount", "player"),
+    PAY_RECEIVED("pay.received", "amount", "player"),
+    PAY_ERROR("pay.error"),
+
+    TRANSFER_BELOW_MINIMUM("pay.failed.below-minimum"),
+    TRANSFER_ABOVE_MAXIMUM("pay.failed.above-maximum"),
+    TRANSFER_SELF("pay.failed.self"),
+    TRANSFER_INSUFFICIENT_FUNDS("pay.failed.insufficient-funds"),
+    TRANSFER_RECEIVER_LIMIT("pay.failed.receiver-limit"),
+    TRANSFER_FAILED("pay.failed.other", "reason");
+
+    private final String path;
+    private final List<String> placeholders;
+
+    MessageKey(String path, String... placeholders) {
+        this.path = path;
+        this.placeholders = List.of(placeholders);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getPlaceholders() {
+        return placeholders;
+    }
+}
@@ -0,0 +1,78 @@
+package com.marskernel.trialEconomy.messages;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Riga di un messaggio compilata al caricamento: parti fisse (con i colori già tradotti)
+ * alternate agli indici dei segnaposto. Il rendering è una sequenza di append, senza regex.
+ */
+final class MessageTemplate {
+
+    // literals.length == arguments.length + 1: literals[0], arg[0], literals[1], arg[1], ..., literals[n]
+    private final String[] literals;
+    private final int[] arguments;
+
+    private MessageTemplate(String[] literals, int[] arguments) {
+        this.literals = literals;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Compila una riga: i codici colore &amp;x vengono tradotti, {nome} diventa l'indice del segnaposto
+     * in placeholders. Un segnaposto sconosciuto resta testo e viene segnalato a unknown
+     */
+    static MessageTemplate parse(String raw, List<String> placeholders, Consumer<String> unknown) {
+        String text = ChatColor.translateAlternateColorCodes('&', raw);
+        List<String> literals = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < text.length()) {
+            int open = text.indexOf('{', position);
+            int close = open < 0 ? -1 : text.indexOf('}', open + 1);
+            if (close < 0) {
+                literal.append(text, position, text.length());
+                break;
+            }
+
+            literal.append(text, position, open);
+            String name = text.substring(open + 1, close);
+            int index = placeholders.indexOf(name);
+            if (index < 0) {
+                unknown.accept(name);
+                literal.append(text, open, close + 1);
+            } else {
+                literals.add(literal.toString());
+                arguments.add(index);
+                literal.setLength(0);
+            }
+            position = close + 1;
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(literals.toArray(String[]::new),
+                arguments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Aggiunge la riga al builder. I valori Long sono importi in centesimi, scritti nel formato della lingua
+     */
+    void render(StringBuilder builder, Object[] values, CurrencyFormat currency) {
+        builder.append(literals[0]);
+        for (int i = 0; i < arguments.length; i++) {
+            int index = arguments[i];
+            Object value = index < values.length ? values[index] : null;
+            if (value instanceof Long minor) {
+                currency.append(builder, minor);
+            } else if (value != null) {
+                builder.append(value);
+            }
+            builder.append(literals[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.marskernel.trialEconomy.messages;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Messaggi ai giocatori nella loro lingua.
+ *
+ * All'avvio i file plugins/trial-economy/messages/messages_&lt;lingua&gt;.yml vengono compilati una sola volta
+ * (vedi {@link MessageTemplate}); le voci mancanti arrivano dalla versione inclusa nel plugin.
+ * La lingua di un giocatore segue il client (es: en_us, poi en) con messages.per-player-locale,
+ * altrimenti messages.default-locale. Il rendering riusa un StringBuilder per thread.
+ * /eco reload ricompila i file e pubblica il nuovo catalogo in un colpo solo (vedi {@link #reload}).
+ */
+public class Messages {
+
+    private static final String FOLDER = "messages";
+    private static final String PREFIX = "messages_";
+    private static final String SUFFIX = ".yml";
+    // Lingue incluse nel plugin, copiate nella cartella al primo avvio
+    private static final List<String> BUNDLED = List.of("it", "en");
+
+    private final Plugin plugin;
+    private volatile Catalog catalog;
+    private final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    public Messages(Plugin plugin, ConfigurationSection settings, String currencySymbol) {
+        this.plugin = plugin;
+        this.catalog = load(settings, currencySymbol);
+    }
+
+    /**
+     * Ricarica i file dei messaggi (es: dopo /eco reload); chi sta già renderizzando finisce col catalogo precedente
+     */
+    public void reload(ConfigurationSection settings, String currencySymbol) {
+        catalog = load(settings, currencySymbol);
+    }
+
+    private Catalog load(ConfigurationSection settings, String currencySymbol) {
+        Logger logger = plugin.getLogger();
+        File folder = new File(plugin.getDataFolder(), FOLDER);
+        for (String language : BUNDLED) {
+            if (!new File(folder, PREFIX + language + SUFFIX).exists()) {
+                plugin.saveResource(FOLDER + "/" + PREFIX + language + SUFFIX, false);
+            }
+        }
+
+        String defaultLanguage = settings.getString("messages.default-locale", "it").toLowerCase(Locale.ROOT);
+        Map<String, MessageBundle> bundles = new HashMap<>();
+
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                String language = name.substring(PREFIX.length(), name.length() - SUFFIX.length()).toLowerCase(Locale.ROOT);
+
+                YamlConfiguration messages = YamlConfiguration.loadConfiguration(file);
+                YamlConfiguration defaults = bundled(plugin, BUNDLED.contains(language) ? language : defaultLanguage);
+                if (defaults != null) {
+                    messages.setDefaults(defaults);
+                }
+                bundles.put(language, MessageBundle.load(language, messages, currencySymbol, logger));
+            }
+        }
+
+        MessageBundle fallback = bundles.get(defaultLanguage);
+        if (fallback == null) {
+            logger.warning("Lingua predefinita " + defaultLanguage + " non trovata in " + FOLDER + "/, uso it");
+            fallback = bundles.containsKey("it") ? bundles.get("it")
+                    : MessageBundle.load("it", bundled(plugin, "it"), currencySymbol, logger);
+        }
+
+        logger.info("Messaggi caricati: " + String.join(", ", bundles.keySet()) +
+                " (predefinita " + fallback.getLanguage() + ")");
+        return new Catalog(bundles, fallback, settings.getBoolean("messages.per-player-locale", true),
+                new ConcurrentHashMap<>());
+    }
+
+    private static YamlConfiguration bundled(Plugin plugin, String language) {
+        InputStream resource = plugin.getResource(FOLDER + "/" + PREFIX + language + SUFFIX);
+        if (resource == null) {
+            return null;
+        }
+        return YamlConfiguration.loadConfiguration(new InputStreamReader(resource, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Righe di un messaggio nella lingua del destinatario.
+     * I valori seguono l'ordine di {@link MessageKey#getPlaceholders()}; i Long sono importi in centesimi
+     */
+    public List<String> render(CommandSender recipient, MessageKey key, Object... values) {
+        MessageBundle bundle = bundleFor(recipient);
+        MessageTemplate[] lines = bundle.get(key);
+        StringBuilder builder = builders.get();
+
+        if (lines.length == 1) {
+            builder.setLength(0);
+            lines[0].render(builder, values, bundle.getCurrency());
+            return List.of(builder.toString());
+        }
+
+        List<String> rendered = new ArrayList<>(lines.length);
+        for (MessageTemplate line : lines) {
+            builder.setLength(0);
+            line.render(builder, values, bundle.getCurrency());
+            rendered.add(builder.toString());
+        }
+        return rendered;
+    }
+
+    /**
+     * Invia subito un messaggio (da chiamare sul main thread; dai callback asincroni usare il MessageDispatcher)
+     */
+    public void send(CommandSender recipient, MessageKey key, Object... values) {
+        recipient.sendMessage(render(recipient, key, values).toArray(String[]::new));
+    }
+
+    private MessageBundle bundleFor(CommandSender recipient) {
+        Catalog current = catalog;
+        if (!current.perPlayerLocale() || !(recipient instanceof Player player)) {
+            return current.defaultBundle();
+        }
+
+        String locale = player.getLocale();
+        if (locale == null || locale.isEmpty()) {
+            return current.defaultBundle();
+        }
+        return current.resolved().computeIfAbsent(locale, current::resolve);
+    }
+
+    /**
+     * Lingue compilate e impostazioni di una versione dei file.
+     * @param resolved Locale del client -> lingua scelta (poche decine di valori possibili)
+     */
+    private record Catalog(Map<String, MessageBundle> bundles, MessageBundle defaultBundle, boolean perPlayerLocale,
+                           ConcurrentHashMap<String, MessageBundle> resolved) {
+
+        /**
+         * Lingua per un locale del client: corrispondenza esatta (en_us), poi la sola lingua (en), poi la predefinita
+         */
+        MessageBundle resolve(String locale) {
+            String normalized = locale.toLowerCase(Locale.ROOT);
+            MessageBundle exact = bundles.get(normalized);
+            if (exact != null) {
+                return exact;
+            }
+
+            int separator = normalized.indexOf('_');
+            String language = separator < 0 ? normalized : normalized.substring(0, separator);
+            return bundles.getOrDefault(language, defaultBundle);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.marskernel.trialEconomy.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro delle metriche runtime dell'economy.
+ * Tutti i contatori sono lock-free: registrare una metrica non rallenta i percorsi misurati.
+ */
+public class EconomyMetrics {
+
+    /**
+     * Operazioni del database misurate (latenza dalla richiesta al completamento, attesa in coda inclusa)
+     */
+    public enum DatabaseOperation {
+        LOAD_BALANCE, LOAD_BALANCES, SAVE_BALANCE, SAVE_BALANCES, LOG_BATCH, FIND_BY_NAME, STREAM_ACCOUNTS, TOP_BALANCES,
+        ARCHIVE_BATCH, EXPORT, IMPORT, BULK_UPDATE, LOAD_HISTORY, TRANSFER, POLL_CHANGES
+    }
+
+    /**
+     * Motivi per cui un trasferimento non viene eseguito
+     */
+    public enum TransferFailure {
+        BELOW_MINIMUM, ABOVE_MAXIMUM, SELF_TRANSFER, INSUFFICIENT_FUNDS, RECEIVER_LIMIT, ERROR, RATE_LIMITED, INVALID_AMOUNT
+    }
+
+    private final Map<DatabaseOperation, LatencyHistogram> databaseLatency = new EnumMap<>(DatabaseOperation.class);
+    private final Map<TransferFailure, LongAdder> failedTransfers = new EnumMap<>(TransferFailure.class);
+    private final LongAdder transfers = new LongAdder();
+
+    private final LatencyHistogram flushDuration = new LatencyHistogram();
+    private volatile long lastFlushNanos;
+    private volatile int lastFlushRows;
+
+    private final LatencyHistogram vaultCalls = new LatencyHistogram();
+    private final LongAdder uncachedReads = new LongAdder();
+
+    private final LatencyHistogram dispatchDuration = new LatencyHistogram();
+
+    public EconomyMetrics() {
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            databaseLatency.put(operation, new LatencyHistogram());
+        }
+        for (TransferFailure failure : TransferFailure.values()) {
+            failedTransfers.put(failure, new LongAdder());
+        }
+    }
+
+    public void recordDatabase(DatabaseOperation operation, long nanos) {
+        databaseLatency.get(operation).record(nanos);
+    }
+
+    public void recordTransfer() {
+        transfers.increment();
+    }
+
+    public void recordTransferFailure(TransferFailure failure) {
+        failedTransfers.get(failure).increment();
+    }
+
+    public void recordFlush(long nanos, int rows) {
+        flushDuration.record(nanos);
+        lastFlushNanos = nanos;
+        lastFlushRows = rows;
+    }
+
+    /**
+     * Durata di una chiamata del provider Vault (sul thread del chiamante, di solito il main thread)
+     */
+    public void recordVaultCall(long nanos) {
+        vaultCalls.record(nanos);
+    }
+
+    /**
+     * Lettura o modifica immediata su un account non in cache (servita senza attendere il database)
+     */
+    public void recordUncachedRead() {
+        uncachedReads.increment();
+    }
+
+    /**
+     * Durata di un tick del MessageDispatcher che ha consegnato messaggi (sul main thread)
+     */
+    public void recordDispatch(long nanos) {
+        dispatchDuration.record(nanos);
+    }
+
+    public LatencyHistogram getDatabaseLatency(DatabaseOperation operation) {
+        return databaseLatency.get(operation);
+    }
+
+    /**
+     * Trasferimenti completati dall'avvio
+     */
+    public long getTransfers() {
+        return transfers.sum();
+    }
+
+    /**
+     * Trasferimenti rifiutati dall'avvio per il motivo indicato
+     */
+    public long getFailedTransfers(TransferFailure failure) {
+        return failedTransfers.get(failure).sum();
+    }
+
+    public LatencyHistogram getFlushDuration() {
+        return flushDuration;
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public int getLastFlushRows() {
+        return lastFlushRows;
+    }
+
+    public LatencyHistogram getVaultCalls() {
+        return vaultCalls;
+    }
+
+    /**
+     * Letture e modifiche immediate su account non in cache dall'avvio
+     */
+    public long getUncachedReads() {
+        return uncachedReads.sum();
+    }
+
+    public LatencyHistogram getDispatchDuration() {
+        return dispatchDuration;
+    }
+}
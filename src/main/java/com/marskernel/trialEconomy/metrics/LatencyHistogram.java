@@ -0,0 +1,137 @@
+package com.marskernel.trialEconomy.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Istogramma di latenze lock-free con bucket log-lineari in microsecondi.
+ *
+ * Fino a 16µs ogni bucket vale 1µs; oltre, ogni potenza di due è divisa in 8 bucket,
+ * quindi i percentili hanno un errore massimo di circa il 12,5% con ~300 contatori fissi.
+ * La registrazione è un incremento atomico: nessun lock e nessuna allocazione.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // ~12 giorni in microsecondi
+    // Bucket lineari + 8 bucket per ogni esponente da 4 a 39 + un bucket di overflow
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - 4) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Registra una durata in nanosecondi
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(indexOf(micros));
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Copia dei contatori dall'avvio
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, maxMicros.get());
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Valore massimo (in microsecondi) rappresentato da un bucket
+     */
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+
+    /**
+     * Stato dell'istogramma in un istante, o differenza tra due istanti
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long count, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Percentile in microsecondi (limite superiore del bucket, mai oltre il massimo)
+         * @param percentile Valore tra 0 e 100
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * Registrazioni avvenute dopo previous. Il massimo dell'intervallo è il limite
+         * superiore del bucket più alto (l'istogramma conserva solo il massimo assoluto).
+         */
+        public Snapshot since(Snapshot previous) {
+            long[] delta = new long[counts.length];
+            long total = 0;
+            long max = 0;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - previous.counts[i];
+                total += delta[i];
+                if (delta[i] > 0) {
+                    max = Math.min(upperBoundOf(i), maxMicros);
+                }
+            }
+            return new Snapshot(delta, total, max);
+        }
+    }
+}
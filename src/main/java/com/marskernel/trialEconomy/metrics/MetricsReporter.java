@@ -0,0 +1,278 @@
+package com.marskernel.trialEconomy.metrics;
+
+import com.marskernel.trialEconomy.commands.MessageDispatcher;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.manager.BalanceCache;
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.TransferFailure;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Campiona periodicamente le metriche ogni metrics.interval secondi.
+ *
+ * Ad ogni campione calcola i valori dell'intervallo (trasferimenti al secondo, hit ratio,
+ * percentili delle latenze) e, se abilitato, aggiunge una riga CSV al file del giorno
+ * in plugins/trial-economy/metrics/. I file più vecchi di metrics.retention-days vengono eliminati.
+ */
+public class MetricsReporter {
+
+    private static final String FILE_PREFIX = "metrics-";
+    private static final String FILE_SUFFIX = ".csv";
+
+    private final File directory;
+    private final Logger logger;
+    private final EconomyMetrics metrics;
+    private final DatabaseManager database;
+    private final EconomyManager economyManager;
+    private final MessageDispatcher dispatcher;
+
+    private final long interval; // In secondi
+    private final boolean writeFile;
+    private final int retentionDays;
+
+    private final ScheduledExecutorService scheduler;
+
+    // Ultimo campione, letto e scritto solo dal thread del reporter
+    private MetricsSnapshot previous;
+    private volatile double transfersPerSecond;
+
+    public MetricsReporter(File dataFolder, Logger logger, ConfigurationSection settings,
+                           DatabaseManager database, EconomyManager economyManager, MessageDispatcher dispatcher) {
+        this.directory = new File(dataFolder, "metrics");
+        this.logger = logger;
+        this.metrics = database.getMetrics();
+        this.database = database;
+        this.economyManager = economyManager;
+        this.dispatcher = dispatcher;
+
+        this.interval = Math.max(1, settings.getLong("metrics.interval", 60));
+        this.writeFile = settings.getBoolean("metrics.file", true);
+        this.retentionDays = Math.max(1, settings.getInt("metrics.retention-days", 7));
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TrialEconomy-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        previous = collect();
+        scheduler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Legge il valore attuale di tutte le metriche
+     */
+    public MetricsSnapshot collect() {
+        Map<TransferFailure, Long> failed = new EnumMap<>(TransferFailure.class);
+        for (TransferFailure failure : TransferFailure.values()) {
+            failed.put(failure, metrics.getFailedTransfers(failure));
+        }
+
+        Map<DatabaseOperation, LatencyHistogram.Snapshot> latency = new EnumMap<>(DatabaseOperation.class);
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            latency.put(operation, metrics.getDatabaseLatency(operation).snapshot());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(),
+                economyManager.getCacheStats(),
+                economyManager.getCoalescedLoads(),
+                database.getPoolStats(),
+                database.getExecutor().getQueueDepth(),
+                database.getLogWriter().getQueueDepth(),
+                metrics.getTransfers(),
+                failed,
+                metrics.getFlushDuration().snapshot(),
+                metrics.getLastFlushNanos(),
+                metrics.getLastFlushRows(),
+                metrics.getVaultCalls().snapshot(),
+                metrics.getUncachedReads(),
+                dispatcher.getQueueDepth(),
+                metrics.getDispatchDuration().snapshot(),
+                latency);
+    }
+
+    /**
+     * Trasferimenti completati al secondo nell'ultimo intervallo campionato
+     */
+    public double getTransfersPerSecond() {
+        return transfersPerSecond;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    private void sample() {
+        try {
+            MetricsSnapshot current = collect();
+            double seconds = Math.max(1, current.timestamp() - previous.timestamp()) / 1000.0;
+            transfersPerSecond = (current.transfers() - previous.transfers()) / seconds;
+
+            if (writeFile) {
+                append(current, previous);
+            }
+            previous = current;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Errore durante la scrittura delle metriche: " + e.getMessage());
+        }
+    }
+
+    private void append(MetricsSnapshot current, MetricsSnapshot previous) throws IOException {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(current.timestamp()), ZoneId.systemDefault());
+        File file = new File(directory, FILE_PREFIX + time.toLocalDate() + FILE_SUFFIX);
+
+        boolean newFile = !file.exists();
+        if (newFile) {
+            Files.createDirectories(directory.toPath());
+            deleteExpiredFiles(time.toLocalDate());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                writer.write(header());
+                writer.newLine();
+            }
+            writer.write(row(time, current, previous));
+            writer.newLine();
+        }
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder("timestamp,cache_size,cache_hit_ratio,cache_evictions,coalesced_loads,"
+                + "pool_active,pool_idle,pool_waiting,db_queue,log_queue,transfers_per_sec");
+        for (TransferFailure failure : TransferFailure.values()) {
+            header.append(",failed_").append(failure.name().toLowerCase(Locale.ROOT));
+        }
+        header.append(",flush_count,flush_p99_ms,flush_max_ms,last_flush_rows");
+        header.append(",vault_calls,vault_p99_ms,vault_max_ms,uncached_reads");
+        header.append(",dispatch_queue,dispatch_ticks,dispatch_p99_ms,dispatch_max_ms");
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            String name = operation.name().toLowerCase(Locale.ROOT);
+            header.append(',').append(name).append("_count")
+                    .append(',').append(name).append("_p50_ms")
+                    .append(',').append(name).append("_p99_ms")
+                    .append(',').append(name).append("_max_ms");
+        }
+        return header.toString();
+    }
+
+    /**
+     * Riga CSV con i valori dell'intervallo tra previous e current (istantanei per dimensioni e code)
+     */
+    private String row(LocalDateTime time, MetricsSnapshot current, MetricsSnapshot previous) {
+        BalanceCache.Stats cache = current.cache();
+        BalanceCache.Stats cachePrevious = previous.cache();
+        long hits = cache.hits() - cachePrevious.hits();
+        long lookups = hits + cache.misses() - cachePrevious.misses();
+
+        StringBuilder row = new StringBuilder()
+                .append(time.withNano(0))
+                .append(',').append(cache.size())
+                .append(',').append(format(lookups == 0 ? 0 : (double) hits / lookups))
+                .append(',').append(cache.evictions() - cachePrevious.evictions())
+                .append(',').append(current.coalescedLoads() - previous.coalescedLoads())
+                .append(',').append(current.pool().active())
+                .append(',').append(current.pool().idle())
+                .append(',').append(current.pool().waiting())
+                .append(',').append(current.databaseQueue())
+                .append(',').append(current.logQueue())
+                .append(',').append(format(transfersPerSecond));
+
+        for (TransferFailure failure : TransferFailure.values()) {
+            row.append(',').append(current.failedTransfers().get(failure) - previous.failedTransfers().get(failure));
+        }
+
+        LatencyHistogram.Snapshot flush = current.flush().since(previous.flush());
+        row.append(',').append(flush.getCount())
+                .append(',').append(millis(flush.percentile(99)))
+                .append(',').append(millis(flush.getMaxMicros()))
+                .append(',').append(current.lastFlushRows());
+
+        LatencyHistogram.Snapshot vault = current.vaultCalls().since(previous.vaultCalls());
+        row.append(',').append(vault.getCount())
+                .append(',').append(millis(vault.percentile(99)))
+                .append(',').append(millis(vault.getMaxMicros()))
+                .append(',').append(current.uncachedReads() - previous.uncachedReads());
+
+        LatencyHistogram.Snapshot dispatch = current.dispatch().since(previous.dispatch());
+        row.append(',').append(current.dispatchQueue())
+                .append(',').append(dispatch.getCount())
+                .append(',').append(millis(dispatch.percentile(99)))
+                .append(',').append(millis(dispatch.getMaxMicros()));
+
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            LatencyHistogram.Snapshot latency = current.databaseLatency().get(operation)
+                    .since(previous.databaseLatency().get(operation));
+            row.append(',').append(latency.getCount())
+                    .append(',').append(millis(latency.percentile(50)))
+                    .append(',').append(millis(latency.percentile(99)))
+                    .append(',').append(millis(latency.getMaxMicros()));
+        }
+        return row.toString();
+    }
+
+    private void deleteExpiredFiles(LocalDate today) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        LocalDate oldest = today.minusDays(retentionDays - 1);
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                LocalDate date = LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                if (date.isBefore(oldest) && !file.delete()) {
+                    logger.warning("Impossibile eliminare il file metriche " + name);
+                }
+            } catch (DateTimeParseException ignored) {
+                // File con nome non generato dal reporter: non viene toccato
+            }
+        }
+    }
+
+    private static String millis(long micros) {
+        return format(micros / 1000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Scrive l'ultimo campione e ferma il reporter
+     */
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (scheduler.awaitTermination(5, TimeUnit.SECONDS) && previous != null) {
+                sample();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
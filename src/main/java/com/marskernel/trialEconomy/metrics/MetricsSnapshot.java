@@ -0,0 +1,29 @@
+package com.marskernel.trialEconomy.metrics;
+
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.manager.BalanceCache;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.DatabaseOperation;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics.TransferFailure;
+
+import java.util.Map;
+
+/**
+ * Valori di tutte le metriche in un istante (contatori cumulativi dall'avvio)
+ */
+public record MetricsSnapshot(long timestamp,
+                              BalanceCache.Stats cache,
+                              long coalescedLoads,
+                              DatabaseManager.PoolStats pool,
+                              int databaseQueue,
+                              int logQueue,
+                              long transfers,
+                              Map<TransferFailure, Long> failedTransfers,
+                              LatencyHistogram.Snapshot flush,
+                              long lastFlushNanos,
+                              int lastFlushRows,
+                              LatencyHistogram.Snapshot vaultCalls,
+                              long uncachedReads,
+                              int dispatchQueue,
+                              LatencyHistogram.Snapshot dispatch,
+                              Map<DatabaseOperation, LatencyHistogram.Snapshot> databaseLatency) {
+}
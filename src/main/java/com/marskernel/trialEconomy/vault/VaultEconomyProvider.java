@@ -0,0 +1,445 @@
+package com.marskernel.trialEconomy.vault;
+
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.manager.EconomyManager;
+import com.marskernel.trialEconomy.manager.EconomyManager.CachedChange;
+import com.marskernel.trialEconomy.manager.Money;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider Vault: espone l'economy agli altri plugin tramite l'interfaccia sincrona Economy.
+ *
+ * Le chiamate arrivano quasi sempre dal main thread, quindi nessun metodo attende il database:
+ * - le letture rispondono dalla cache; per un account non in cache risponde la classifica in memoria
+ *   e il caricamento parte in background (warm-on-lookup)
+ * - le modifiche sono applicate subito in cache e rese persistenti da journal e flush write-behind
+ * - gli account dei giocatori in login sono già caricati prima del join (warm-on-join)
+ *
+ * Un account non in cache non ha un bilancio certo da controllare senza bloccare il tick: sul main thread
+ * prelievi e depositi falliscono (il caricamento è già partito, il tentativo successivo riesce): un esito
+ * SUCCESS significa sempre che l'importo è già in cache e nel journal. Da un thread asincrono entrambi
+ * attendono il caricamento.
+ * Ogni chiamata è misurata (/eco stats e colonne vault_* delle metriche).
+ */
+public class VaultEconomyProvider implements Economy {
+
+    private static final String NAME = "TrialEconomy";
+
+    private final JavaPlugin plugin;
+    private final EconomyManager economyManager;
+    private final DatabaseManager database;
+    private final EconomyMetrics metrics;
+
+    public VaultEconomyProvider(JavaPlugin plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        this.database = economyManager.getDatabase();
+        this.metrics = database.getMetrics();
+    }
+
+    /**
+     * Registra il provider nel ServicesManager. Va chiamato solo se Vault è installato:
+     * questa classe dipende dalle sue API.
+     */
+    public static void register(JavaPlugin plugin, EconomyManager economyManager) {
+        plugin.getServer().getServicesManager().register(Economy.class,
+                new VaultEconomyProvider(plugin, economyManager), plugin, ServicePriority.High);
+    }
+
+    // ==================== Operazioni per UUID ====================
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player) {
+        return hasAccount(player.getUniqueId());
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player) {
+        return balance(player.getUniqueId(), player.getName());
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, double amount) {
+        return has(player.getUniqueId(), player.getName(), amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        return withdraw(player.getUniqueId(), player.getName(), amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        return deposit(player.getUniqueId(), player.getName(), amount);
+    }
+
+    /**
+     * Crea l'account con il bilancio iniziale (in background)
+     * @return false se l'account esiste già o il giocatore non ha un nome
+     */
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player) {
+        long start = System.nanoTime();
+        try {
+            return !economyManager.isKnownAccount(player.getUniqueId()) && player.getName() != null
+                    && economyManager.prefetch(player.getUniqueId(), player.getName()) != null;
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private boolean hasAccount(UUID playerUUID) {
+        long start = System.nanoTime();
+        try {
+            return economyManager.isKnownAccount(playerUUID);
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private double balance(UUID playerUUID, String playerName) {
+        long start = System.nanoTime();
+        try {
+            return toDouble(economyManager.peekBalance(playerUUID, playerName));
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private boolean has(UUID playerUUID, String playerName, double amount) {
+        long start = System.nanoTime();
+        try {
+            return isValid(amount) && economyManager.peekBalance(playerUUID, playerName) >= toMinor(amount);
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse withdraw(UUID playerUUID, String playerName, double amount) {
+        long start = System.nanoTime();
+        try {
+            return applyWithdraw(playerUUID, playerName, amount);
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse deposit(UUID playerUUID, String playerName, double amount) {
+        long start = System.nanoTime();
+        try {
+            return applyDeposit(playerUUID, playerName, amount);
+        } finally {
+            metrics.recordVaultCall(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse applyWithdraw(UUID playerUUID, String playerName, double amount) {
+        if (!isValid(amount)) {
+            return failure(amount, "Importo non valido");
+        }
+
+        long minor = toMinor(amount);
+        CachedChange change = changeBalance(playerUUID, playerName, -minor);
+        return switch (change.status()) {
+            case APPLIED -> {
+                database.logTransaction(playerUUID, null, Money.toDecimal(minor), "VAULT_WITHDRAW",
+                        nameOf(playerUUID, playerName));
+                yield new EconomyResponse(amount, toDouble(change.balance()), ResponseType.SUCCESS, null);
+            }
+            case INSUFFICIENT_FUNDS, BALANCE_LIMIT -> new EconomyResponse(0, toDouble(change.balance()),
+                    ResponseType.FAILURE, "Fondi insufficienti");
+            case NOT_LOADED -> failure(amount, "Account non ancora caricato, riprova tra un istante");
+        };
+    }
+
+    private EconomyResponse applyDeposit(UUID playerUUID, String playerName, double amount) {
+        if (!isValid(amount)) {
+            return failure(amount, "Importo non valido");
+        }
+
+        long minor = toMinor(amount);
+        CachedChange change = changeBalance(playerUUID, playerName, minor);
+        return switch (change.status()) {
+            case APPLIED -> {
+                logDeposit(playerUUID, playerName, minor);
+                yield new EconomyResponse(amount, toDouble(change.balance()), ResponseType.SUCCESS, null);
+            }
+            case BALANCE_LIMIT, INSUFFICIENT_FUNDS -> new EconomyResponse(0, toDouble(change.balance()),
+                    ResponseType.FAILURE, "Il bilancio massimo verrebbe superato");
+            case NOT_LOADED -> failure(amount, "Account non ancora caricato, riprova tra un istante");
+        };
+    }
+
+    /**
+     * Modifica immediata in cache; fuori dal main thread un account non in cache viene prima caricato
+     */
+    private CachedChange changeBalance(UUID playerUUID, String playerName, long delta) {
+        CachedChange change = economyManager.changeCachedBalance(playerUUID, playerName, delta);
+        if (change.status() != CachedChange.Status.NOT_LOADED || Bukkit.isPrimaryThread()) {
+            return change;
+        }
+
+        CompletableFuture<Void> load = economyManager.prefetch(playerUUID, playerName);
+        if (load == null) {
+            return change;
+        }
+        load.join();
+        return economyManager.changeCachedBalance(playerUUID, playerName, delta);
+    }
+
+    private void logDeposit(UUID playerUUID, String playerName, long minor) {
+        database.logTransaction(null, playerUUID, Money.toDecimal(minor), "VAULT_DEPOSIT", nameOf(playerUUID, playerName));
+    }
+
+    private String nameOf(UUID playerUUID, String playerName) {
+        return playerName != null ? playerName : economyManager.getPlayerName(playerUUID);
+    }
+
+    /**
+     * Importo finito e non negativo (NaN e infiniti rifiutati)
+     */
+    private static boolean isValid(double amount) {
+        return Double.isFinite(amount) && amount >= 0;
+    }
+
+    /**
+     * Importo in centesimi (Math.round satura a Long.MAX_VALUE, che supera sempre max-balance)
+     */
+    private static long toMinor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static double toDouble(long minor) {
+        return minor < 0 ? 0 : minor / 100.0;
+    }
+
+    private static EconomyResponse failure(double amount, String message) {
+        return new EconomyResponse(amount, 0, ResponseType.FAILURE, message);
+    }
+
+    // ==================== Operazioni per nome (deprecate in Vault) ====================
+
+    /**
+     * Risolve un nome dall'indice in memoria; sul main thread non attende il database
+     * se l'indice non è ancora caricato
+     */
+    private UUID resolve(String playerName) {
+        CompletableFuture<UUID> lookup = economyManager.findPlayerUUID(playerName);
+        return Bukkit.isPrimaryThread() ? lookup.getNow(null) : lookup.join();
+    }
+
+    @Override
+    public boolean hasAccount(String playerName) {
+        UUID uuid = resolve(playerName);
+        return uuid != null && hasAccount(uuid);
+    }
+
+    @Override
+    public double getBalance(String playerName) {
+        UUID uuid = resolve(playerName);
+        return uuid != null ? balance(uuid, playerName) : 0;
+    }
+
+    @Override
+    public boolean has(String playerName, double amount) {
+        UUID uuid = resolve(playerName);
+        return uuid != null && has(uuid, playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(String playerName, double amount) {
+        UUID uuid = resolve(playerName);
+        return uuid != null ? withdraw(uuid, playerName, amount) : failure(amount, "Account inesistente");
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(String playerName, double amount) {
+        UUID uuid = resolve(playerName);
+        return uuid != null ? deposit(uuid, playerName, amount) : failure(amount, "Account inesistente");
+    }
+
+    /**
+     * Gli account senza UUID noto non vengono creati per nome: lo fa il primo accesso del giocatore
+     */
+    @Override
+    public boolean createPlayerAccount(String playerName) {
+        return false;
+    }
+
+    // ==================== Varianti per mondo (economy unica per tutti i mondi) ====================
+
+    @Override
+    public boolean hasAccount(String playerName, String worldName) {
+        return hasAccount(playerName);
+    }
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player, String worldName) {
+        return hasAccount(player);
+    }
+
+    @Override
+    public double getBalance(String playerName, String world) {
+        return getBalance(playerName);
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player, String world) {
+        return getBalance(player);
+    }
+
+    @Override
+    public boolean has(String playerName, String worldName, double amount) {
+        return has(playerName, amount);
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, String worldName, double amount) {
+        return has(player, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(String playerName, String worldName, double amount) {
+        return withdrawPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, String worldName, double amount) {
+        return withdrawPlayer(player, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
+        return depositPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, String worldName, double amount) {
+        return depositPlayer(player, amount);
+    }
+
+    @Override
+    public boolean createPlayerAccount(String playerName, String worldName) {
+        return createPlayerAccount(playerName);
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player, String worldName) {
+        return createPlayerAccount(player);
+    }
+
+    // ==================== Informazioni ====================
+
+    @Override
+    public boolean isEnabled() {
+        return plugin.isEnabled();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int fractionalDigits() {
+        return Money.SCALE;
+    }
+
+    @Override
+    public String format(double amount) {
+        return economyManager.formatAmount(BigDecimal.valueOf(amount));
+    }
+
+    @Override
+    public String currencyNamePlural() {
+        return economyManager.getCurrencyName();
+    }
+
+    @Override
+    public String currencyNameSingular() {
+        return economyManager.getCurrencyName();
+    }
+
+    // ==================== Banche (non supportate) ====================
+
+    @Override
+    public boolean hasBankSupport() {
+        return false;
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, String player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse deleteBank(String name) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankBalance(String name) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankHas(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankWithdraw(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankDeposit(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, String playerName) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, String playerName) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public List<String> getBanks() {
+        return List.of();
+    }
+
+    private static EconomyResponse noBanks() {
+        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, "TrialEconomy non supporta le banche");
+    }
+}
@@ -0,0 +1,56 @@
+package com.marskernel.trialEconomy;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin per i test, creato fuori dal PluginClassLoader come quello dei benchmark.
+ * La configurazione parte dal config.yml del plugin e può essere modificata prima di creare i manager.
+ */
+public final class TestPlugin extends JavaPlugin {
+
+    private static final Logger LOGGER = Logger.getLogger("TrialEconomy-Test");
+
+    @SuppressWarnings("deprecation")
+    public TestPlugin(File dataFolder) {
+        super(new JavaPluginLoader(installServer()),
+                new PluginDescriptionFile("TrialEconomy", "test", "com.marskernel.trialEconomy.TrialEconomy"),
+                dataFolder, new File(dataFolder, "TrialEconomy.jar"));
+
+        getLogger().setLevel(Level.WARNING);
+    }
+
+    /**
+     * Server Bukkit minimo (una sola volta per JVM): solo i metodi usati da Bukkit.setServer e da JavaPlugin,
+     * qualsiasi altra chiamata fallisce subito
+     */
+    private static synchronized Server installServer() {
+        Server current = Bukkit.getServer();
+        if (current != null) {
+            return current;
+        }
+
+        LOGGER.setLevel(Level.WARNING);
+        Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLogger" -> LOGGER;
+                    case "getName" -> "TestServer";
+                    case "getVersion", "getBukkitVersion" -> "test";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "TestServer";
+                    default -> throw new UnsupportedOperationException("Non disponibile nei test: Server." + method.getName());
+                });
+
+        Bukkit.setServer(server);
+        return server;
+    }
+}
@@ -0,0 +1,149 @@
+package com.marskernel.trialEconomy.manager;
+
+import com.marskernel.trialEconomy.TestPlugin;
+import com.marskernel.trialEconomy.database.DatabaseManager;
+import com.marskernel.trialEconomy.metrics.EconomyMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Trasferimenti concorrenti casuali su pochi account (molti conflitti sugli stessi lock):
+ * la somma dei bilanciamenti non cambia e nessun bilancio diventa negativo, né in cache né nel database.
+ */
+class TransferConservationTest {
+
+    private static final int ACCOUNTS = 16;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 2_000;
+    private static final BigDecimal STARTING_BALANCE = new BigDecimal("100.00");
+
+    @TempDir
+    File dataFolder;
+
+    @Test
+    void concurrentTransfersConserveTotalSupply() throws Exception {
+        TestPlugin plugin = new TestPlugin(dataFolder);
+        plugin.getConfig().set("starting-balance", STARTING_BALANCE.doubleValue());
+        DatabaseManager database = new DatabaseManager(dataFolder, plugin.getLogger(), plugin.getConfig(), new EconomyMetrics());
+
+        try {
+            UUID[] uuids = new UUID[ACCOUNTS];
+            String[] names = new String[ACCOUNTS];
+            Map<UUID, String> players = new HashMap<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                uuids[i] = UUID.randomUUID();
+                names[i] = "test" + i;
+                players.put(uuids[i], names[i]);
+            }
+            assertEquals(ACCOUNTS, database.loadBalances(players, STARTING_BALANCE, 500).join().size());
+
+            long expected = Money.toMinor(STARTING_BALANCE) * ACCOUNTS;
+            EconomyManager economy = new EconomyManager(plugin, database);
+            try {
+                assertEquals(expected, total(economy, uuids, names));
+                long successes = runTransfers(economy, uuids, names);
+
+                assertTrue(successes > 0, "Nessun trasferimento riuscito");
+                assertEquals(expected, total(economy, uuids, names), "Somma dei bilanciamenti in cache cambiata");
+            } finally {
+                // Flush finale: le righe del database vengono confrontate sotto
+                economy.shutdown();
+            }
+
+            long stored = 0;
+            for (BigDecimal balance : database.loadBalances(players, STARTING_BALANCE, 500).join().values()) {
+                assertTrue(balance.signum() >= 0, "Bilancio negativo nel database: " + balance);
+                stored += Money.toMinor(balance);
+            }
+            assertEquals(expected, stored, "Somma dei bilanciamenti nel database cambiata");
+        } finally {
+            database.close();
+        }
+    }
+
+    /**
+     * THREADS thread di trasferimenti casuali, anche oltre i fondi del mittente; intanto un altro thread
+     * controlla che nessun bilancio in cache scenda sotto zero
+     * @return Trasferimenti riusciti
+     */
+    private static long runTransfers(EconomyManager economy, UUID[] uuids, String[] names) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong lowest = new AtomicLong(Long.MAX_VALUE);
+
+        try {
+            Future<?> monitor = workers.submit(() -> {
+                while (running.get()) {
+                    for (int i = 0; i < ACCOUNTS; i++) {
+                        lowest.accumulateAndGet(economy.peekBalance(uuids[i], names[i]), Math::min);
+                    }
+                }
+            });
+
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(workers.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long succeeded = 0;
+                    for (int n = 0; n < TRANSFERS_PER_THREAD; n++) {
+                        int sender = random.nextInt(ACCOUNTS);
+                        int receiver = (sender + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        // Fino a 150: a volte più del bilancio iniziale, per esercitare anche i fondi insufficienti
+                        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(15_000), 2);
+
+                        if (economy.transfer(uuids[sender], names[sender], uuids[receiver], names[receiver], amount)
+                                .get(30, TimeUnit.SECONDS).isSuccess()) {
+                            succeeded++;
+                        }
+                    }
+                    return succeeded;
+                }));
+            }
+
+            start.countDown();
+            long successes = 0;
+            for (Future<Long> result : results) {
+                successes += result.get(5, TimeUnit.MINUTES);
+            }
+
+            running.set(false);
+            monitor.get(1, TimeUnit.MINUTES);
+            assertTrue(lowest.get() >= 0, "Bilancio negativo in cache: " + lowest.get());
+            return successes;
+        } finally {
+            running.set(false);
+            workers.shutdownNow();
+        }
+    }
+
+    private static long total(EconomyManager economy, UUID[] uuids, String[] names) {
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long balance = Money.toMinor(economy.getBalance(uuids[i], names[i]).join());
+            assertTrue(balance >= 0, "Bilancio negativo: " + names[i]);
+            total += balance;
+        }
+        return total;
+    }
+}